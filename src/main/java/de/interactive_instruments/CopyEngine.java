@@ -0,0 +1,225 @@
+/**
+ * Copyright 2017-2019 European Union, interactive instruments GmbH
+ * Licensed under the EUPL, Version 1.2 or - as soon they will be approved by
+ * the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ *
+ * This work was supported by the EU Interoperability Solutions for
+ * European Public Administrations Programme (http://ec.europa.eu/isa)
+ * through Action 1.17: A Reusable INSPIRE Reference Platform (ARE3NA).
+ */
+package de.interactive_instruments;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * Copies collections and maps of {@link Copyable} items for the static methods of {@link Copyable}.
+ *
+ * The constructors of the collection classes are looked up once per class and invoked through {@link MethodHandle}s.
+ * Target collections of the java.util classes in {@link #PRESIZED}, whose int constructor argument is an initial
+ * capacity, are created with the size of the source. Other int constructors, for instance the capacity bound of a
+ * {@code LinkedBlockingQueue}, are never used. Collections and maps with at
+ * least {@link #PARALLEL_THRESHOLD} items, which can be set with the system property
+ * {@code ii.copyable.parallel.threshold}, are copied in parallel, so the createCopy() methods of these items must not
+ * depend on each other. The order of the items is retained.
+ *
+ * @author Jon Herrmann ( herrmann aT interactive-instruments doT de )
+ */
+final class CopyEngine {
+
+    static final int PARALLEL_THRESHOLD = Integer.getInteger("ii.copyable.parallel.threshold", 10000);
+
+    private static final MethodType NO_ARG = MethodType.methodType(Object.class);
+    private static final MethodType INT_ARG = MethodType.methodType(Object.class, int.class);
+    private static final MethodType MAP_ARG = MethodType.methodType(Object.class, Map.class);
+
+    // Classes whose int constructor argument is only a hint for the initial capacity
+    private static final Set<Class<?>> PRESIZED = new HashSet<>(Arrays.asList(
+            ArrayList.class, Vector.class, ArrayDeque.class, PriorityQueue.class,
+            HashSet.class, LinkedHashSet.class, HashMap.class, LinkedHashMap.class, Hashtable.class,
+            WeakHashMap.class));
+
+    private CopyEngine() {}
+
+    private static final class Constructors {
+        private final MethodHandle noArg;
+        // only used for the PRESIZED classes, where the argument is the initial capacity
+        private final MethodHandle capacity;
+        private final MethodHandle copy;
+        private final boolean hashed;
+
+        private Constructors(final Class<?> type) {
+            this.noArg = find(type, NO_ARG);
+            this.capacity = PRESIZED.contains(type) ? find(type, INT_ARG) : null;
+            this.copy = Map.class.isAssignableFrom(type) ? find(type, MAP_ARG) : null;
+            this.hashed = Set.class.isAssignableFrom(type) || Map.class.isAssignableFrom(type);
+        }
+
+        private static MethodHandle find(final Class<?> type, final MethodType methodType) {
+            try {
+                return MethodHandles.publicLookup().findConstructor(type, methodType.changeReturnType(void.class))
+                        .asType(methodType);
+            } catch (NoSuchMethodException | IllegalAccessException e) {
+                return null;
+            }
+        }
+
+        private Object newInstance(final int size) {
+            try {
+                if (capacity != null) {
+                    return capacity.invokeExact(hashed ? (int) (size / 0.75f) + 1 : size);
+                }
+                return noArg != null ? noArg.invokeExact() : null;
+            } catch (final Error e) {
+                throw e;
+            } catch (final Throwable e) {
+                return null;
+            }
+        }
+
+        private Object newCopy(final Map<?, ?> map) {
+            try {
+                return copy != null ? copy.invokeExact(map) : null;
+            } catch (final Error e) {
+                throw e;
+            } catch (final Throwable e) {
+                return null;
+            }
+        }
+    }
+
+    private static final ClassValue<Constructors> constructors = new ClassValue<Constructors>() {
+        @Override
+        protected Constructors computeValue(final Class<?> type) {
+            return new Constructors(type);
+        }
+    };
+
+    private static Object copyItem(final Object item) {
+        return item instanceof Copyable ? ((Copyable) item).createCopy() : item;
+    }
+
+    private static void addCopies(final Collection<?> source, final Collection<Object> target) {
+        if (source.size() < PARALLEL_THRESHOLD) {
+            for (final Object t : source) {
+                target.add(copyItem(t));
+            }
+        } else {
+            final Object[] items = source.toArray();
+            Arrays.parallelSetAll(items, i -> copyItem(items[i]));
+            target.addAll(Arrays.asList(items));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> Collection<T> copy(final Collection<T> collection) {
+        Objects.requireNonNull(collection, "Collection to copy is null");
+        if (collection.isEmpty()) {
+            return new ArrayList<>();
+        }
+        final T firstItem = collection.iterator().next();
+        if (firstItem == null) {
+            return new ArrayList<>();
+        } else if (firstItem instanceof Copyable) {
+            Collection<Object> newCollection = (Collection<Object>) constructors.get(collection.getClass())
+                    .newInstance(collection.size());
+            if (newCollection == null) {
+                newCollection = new ArrayList<>(collection.size());
+            }
+            addCopies(collection, newCollection);
+            return (Collection<T>) newCollection;
+        } else {
+            return new ArrayList<>(collection);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> Set<T> copy(final Set<T> set) {
+        Objects.requireNonNull(set, "Collection to copy is null");
+        if (set.isEmpty()) {
+            return new LinkedHashSet<>();
+        }
+        final T firstItem = set.iterator().next();
+        if (firstItem == null) {
+            return new LinkedHashSet<>();
+        }
+        final boolean sorted = firstItem instanceof Comparable && ReflectionUtils.isHashable(firstItem.getClass());
+        if (firstItem instanceof Copyable) {
+            Set<Object> newSet = (Set<Object>) constructors.get(set.getClass()).newInstance(set.size());
+            if (newSet == null) {
+                newSet = sorted ? new TreeSet<>() : new LinkedHashSet<>((int) (set.size() / 0.75f) + 1);
+            }
+            addCopies(set, newSet);
+            return (Set<T>) newSet;
+        } else if (sorted) {
+            return new TreeSet<>(set);
+        } else {
+            return new LinkedHashSet<>(set);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    static <K, V> Map<K, V> copy(final Map<K, V> map) {
+        final Iterator<Map.Entry<K, V>> it = Objects.requireNonNull(map, "Map to copy is null").entrySet().iterator();
+        if (!it.hasNext()) {
+            return new LinkedHashMap<>();
+        }
+        // the copy strategy is determined by the first entry
+        final Map.Entry<K, V> entry = it.next();
+        final boolean copyKeys = entry.getKey() instanceof Copyable;
+        final boolean copyValues = entry.getValue() instanceof Copyable;
+        final boolean sorted = entry.getKey() instanceof Comparable &&
+                ReflectionUtils.isHashable(entry.getKey().getClass());
+        final Constructors mapConstructors = constructors.get(map.getClass());
+        if (!copyKeys && !copyValues) {
+            final Map<K, V> newMap = (Map<K, V>) mapConstructors.newCopy(map);
+            if (newMap != null) {
+                return newMap;
+            }
+            return sorted ? new TreeMap<>(map) : new LinkedHashMap<>(map);
+        }
+        Map<Object, Object> newMap = (Map<Object, Object>) mapConstructors.newInstance(map.size());
+        if (newMap == null) {
+            newMap = sorted ? new TreeMap<>() : new LinkedHashMap<>((int) (map.size() / 0.75f) + 1);
+        }
+        if (map.size() < PARALLEL_THRESHOLD) {
+            for (final Map.Entry<K, V> e : map.entrySet()) {
+                final Object key = copyKeys ? copyItem(e.getKey()) : e.getKey();
+                newMap.put(key, copyValues ? copyValue(e, key) : e.getValue());
+            }
+        } else {
+            final Map.Entry<?, ?>[] entries = map.entrySet().toArray(new Map.Entry<?, ?>[map.size()]);
+            final Object[] keys = new Object[entries.length];
+            final Object[] values = new Object[entries.length];
+            IntStream.range(0, entries.length).parallel().forEach(i -> {
+                keys[i] = copyKeys ? copyItem(entries[i].getKey()) : entries[i].getKey();
+                values[i] = copyValues ? copyValue(entries[i], keys[i]) : entries[i].getValue();
+            });
+            for (int i = 0; i < entries.length; i++) {
+                newMap.put(keys[i], values[i]);
+            }
+        }
+        return (Map<K, V>) newMap;
+    }
+
+    private static Object copyValue(final Map.Entry<?, ?> entry, final Object copiedKey) {
+        // keys and values that reference the same object are copied once
+        if (entry.getValue() == entry.getKey() && entry.getKey() instanceof Copyable) {
+            return copiedKey;
+        }
+        return copyItem(entry.getValue());
+    }
+}
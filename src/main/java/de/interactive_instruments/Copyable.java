@@ -19,7 +19,6 @@
  */
 package de.interactive_instruments;
 
-import java.lang.reflect.InvocationTargetException;
 import java.util.*;
 
 /**
@@ -41,6 +40,9 @@ public interface Copyable<T extends Copyable> {
      *
      * If the passed collection implements a copy Constructor Collection(Collection collection), the returned type will match the input type. Otherwise an ArrayList is returned.
      *
+     * Collections with at least 10000 items are copied in parallel, the threshold can be set with the system property
+     * {@code ii.copyable.parallel.threshold}.
+     *
      * @param collection
      *            collection to copy
      * @param <T>
@@ -48,23 +50,7 @@ public interface Copyable<T extends Copyable> {
      * @return a copy of the collection of {@link Copyable} items
      */
     static <T> Collection<T> createCopy(final Collection<T> collection) {
-        final T firstItem = Objects.requireNonNull(collection, "Collection to copy is null").iterator().next();
-        if (firstItem == null) {
-            return new ArrayList<>();
-        } else if (firstItem instanceof Copyable) {
-            Collection newCollection;
-            try {
-                newCollection = collection.getClass().getConstructor().newInstance();
-            } catch (InvocationTargetException | InstantiationException | IllegalAccessException | NoSuchMethodException e) {
-                newCollection = new ArrayList();
-            }
-            for (final T t : collection) {
-                newCollection.add(((Copyable) t).createCopy());
-            }
-            return newCollection;
-        } else {
-            return new ArrayList<>(collection);
-        }
+        return CopyEngine.copy(collection);
     }
 
     /**
@@ -79,41 +65,7 @@ public interface Copyable<T extends Copyable> {
      * @return a copy of the collection of {@link Copyable} items
      */
     static <T> Set<T> createCopy(final Set<T> set) {
-        final T firstItem = Objects.requireNonNull(set, "Collection to copy is null").iterator().next();
-        if (firstItem == null) {
-            return new LinkedHashSet<>();
-        } else if (firstItem instanceof Copyable) {
-            Set newSet;
-            try {
-                newSet = set.getClass().getConstructor().newInstance();
-            } catch (InvocationTargetException | InstantiationException | IllegalAccessException | NoSuchMethodException e) {
-                // check if the object implements Comparable and the hash code function so
-                // we can use a linked hash set
-                if (firstItem instanceof Comparable &&
-                        ReflectionUtils.isHashable(firstItem.getClass())) {
-                    newSet = new TreeSet<>();
-                } else {
-                    newSet = new LinkedHashSet<>();
-                }
-            }
-            for (final T t : set) {
-                newSet.add(((Copyable) t).createCopy());
-            }
-            return newSet;
-        } else {
-            try {
-                return set.getClass().getConstructor(Map.class).newInstance(set);
-            } catch (InvocationTargetException | InstantiationException | IllegalAccessException | NoSuchMethodException e) {
-                // check if the object implements Comparable and the hash code function so
-                // we can use a linked hash set
-                if (firstItem instanceof Comparable &&
-                        ReflectionUtils.isHashable(firstItem.getClass())) {
-                    return new TreeSet<>(set);
-                } else {
-                    return new LinkedHashSet<>(set);
-                }
-            }
-        }
+        return CopyEngine.copy(set);
     }
 
     /**
@@ -131,98 +83,7 @@ public interface Copyable<T extends Copyable> {
      * @return a copy of the map of {@link Copyable} keys and or {@link Copyable} values
      */
     static <K, V> Map<K, V> createCopy(final Map<K, V> map) {
-        // get first item
-        final Iterator<Map.Entry<K, V>> it = Objects.requireNonNull(map, "Map to copy is null").entrySet().iterator();
-        if (!it.hasNext()) {
-            return new LinkedHashMap<>();
-        }
-        Map.Entry entry = it.next();
-        // there are 5 possible cases:
-        // 0: k not and v not,
-        // 1: k copyable and v not,
-        // 2: k not and v is copyable,
-        // 3: k copyable and v copyable,
-        // 4: k and v are equal objects,
-        int copyStrategy = 0;
-        if (entry.getKey() instanceof Copyable) {
-            // key copyable
-            copyStrategy = 1;
-        }
-        if (entry.getValue() instanceof Copyable) {
-            // value copyable
-            copyStrategy += 2;
-        }
-        // check if objects are equal if they are both copyable
-        if (copyStrategy > 2 && entry.getKey() == entry.getValue()) {
-            // special map: key and values are equal
-            copyStrategy = 4;
-        }
-        if (copyStrategy == 0) {
-            try {
-                return map.getClass().getConstructor(Map.class).newInstance(map);
-            } catch (InvocationTargetException | InstantiationException | IllegalAccessException | NoSuchMethodException e) {
-                // check if the object implements Comparable and the hash code function so
-                // we can use a linked hash map
-                if (entry.getKey() instanceof Comparable &&
-                        ReflectionUtils.isHashable(entry.getKey().getClass())) {
-                    return new TreeMap<>(map);
-                } else {
-                    return new LinkedHashMap<>(map);
-                }
-            }
-        }
-        Map newMap;
-        try {
-            newMap = map.getClass().getConstructor().newInstance();
-        } catch (InvocationTargetException | InstantiationException | IllegalAccessException | NoSuchMethodException e) {
-            // check if the object implements Comparable and the hash code function so
-            // we can use a linked hash map
-            if (entry.getKey() instanceof Comparable &&
-                    ReflectionUtils.isHashable(entry.getKey().getClass())) {
-                newMap = new TreeMap<>();
-            } else {
-                newMap = new LinkedHashMap<>();
-            }
-        }
-        switch (copyStrategy) {
-        case 1:
-            // 1: k copyable and v not
-            newMap.put(((Copyable) entry.getKey()).createCopy(), entry.getValue());
-            while (it.hasNext()) {
-                entry = it.next();
-                newMap.put(((Copyable) entry.getKey()).createCopy(), entry.getValue());
-            }
-            return newMap;
-        case 2:
-            // 2: k not and v is copyable
-            newMap.put(entry.getKey(), ((Copyable) entry.getValue()).createCopy());
-            while (it.hasNext()) {
-                entry = it.next();
-                newMap.put(entry.getKey(), ((Copyable) entry.getValue()).createCopy());
-            }
-            return newMap;
-        case 3:
-            // 3: k copyable and v copyable
-            newMap.put(((Copyable) entry.getKey()).createCopy(), ((Copyable) entry.getValue()).createCopy());
-            while (it.hasNext()) {
-                entry = it.next();
-                newMap.put(((Copyable) entry.getKey()).createCopy(), ((Copyable) entry.getValue()).createCopy());
-            }
-            return newMap;
-        case 4:
-            // 4: k and v are equal objects
-            Copyable o = ((Copyable) entry).createCopy();
-            newMap.put(o, o);
-            while (it.hasNext()) {
-                entry = it.next();
-                o = ((Copyable) entry).createCopy();
-                newMap.put(o, o);
-            }
-            return newMap;
-        default:
-            // k and v are non copyable objects
-            return new LinkedHashMap<>(map);
-        }
+        return CopyEngine.copy(map);
     }
 
 }
@@ -35,4 +35,19 @@ public interface ExpirationItemHolder {
      *            TimeUnit
      */
     void removeExpiredItems(final long maxLifeTime, final TimeUnit unit);
+
+    /**
+     * Remove expired items and return the number of removed items. The default implementation delegates to
+     * {@link #removeExpiredItems(long, TimeUnit)} and returns -1 as the number is unknown.
+     *
+     * @param maxLifeTime
+     *            max lifetime
+     * @param unit
+     *            TimeUnit
+     * @return number of removed items or -1 if unknown
+     */
+    default long removeAndCountExpiredItems(final long maxLifeTime, final TimeUnit unit) {
+        removeExpiredItems(maxLifeTime, unit);
+        return -1;
+    }
 }
@@ -0,0 +1,249 @@
+/**
+ * Copyright 2017-2019 European Union, interactive instruments GmbH
+ * Licensed under the EUPL, Version 1.2 or - as soon they will be approved by
+ * the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ *
+ * This work was supported by the EU Interoperability Solutions for
+ * European Public Administrations Programme (http://ec.europa.eu/isa)
+ * through Action 1.17: A Reusable INSPIRE Reference Platform (ARE3NA).
+ */
+package de.interactive_instruments;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Invokes the {@link ExpirationItemHolder#removeAndCountExpiredItems(long, TimeUnit)} method of registered holders
+ * on a scheduled thread pool.
+ *
+ * Each holder is scheduled with its own period and runs isolated from the other holders: a holder is never invoked
+ * concurrently with itself, a long running or failing holder does not delay or abort the removal of the other
+ * holders. Holders can be registered and unregistered concurrently. The returned {@link Registration} provides
+ * metrics about the number of runs, the removed items and the time spent.
+ *
+ * @author Jon Herrmann ( herrmann aT interactive-instruments doT de )
+ */
+public final class ExpirationScheduler implements Releasable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExpirationScheduler.class);
+
+    private final ScheduledThreadPoolExecutor executor;
+    private final ConcurrentMap<ExpirationItemHolder, Registration> registrations = new ConcurrentHashMap<>();
+
+    private static final class InstanceHolder {
+        static final ExpirationScheduler INSTANCE = new ExpirationScheduler(
+                Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+    }
+
+    /**
+     * Statistics and handle of a registered ExpirationItemHolder
+     */
+    public final class Registration implements Releasable {
+        private final ExpirationItemHolder holder;
+        private final long maxLifeTime;
+        private final TimeUnit unit;
+        private final AtomicLong runs = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+        private final AtomicLong expiredItems = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private volatile ScheduledFuture<?> future;
+
+        private Registration(final ExpirationItemHolder holder, final long maxLifeTime, final TimeUnit unit) {
+            this.holder = holder;
+            this.maxLifeTime = maxLifeTime;
+            this.unit = unit;
+        }
+
+        private void run() {
+            final long start = System.nanoTime();
+            try {
+                final long removed = holder.removeAndCountExpiredItems(maxLifeTime, unit);
+                if (removed > 0) {
+                    expiredItems.addAndGet(removed);
+                }
+            } catch (final Exception e) {
+                failures.incrementAndGet();
+                logger.error("Expiration Item Holder threw exception: ", e);
+            } finally {
+                final long duration = System.nanoTime() - start;
+                runs.incrementAndGet();
+                totalNanos.addAndGet(duration);
+                maxNanos.accumulateAndGet(duration, Math::max);
+            }
+        }
+
+        public ExpirationItemHolder getHolder() {
+            return holder;
+        }
+
+        /**
+         * Number of invocations of the holder
+         *
+         * @return number of runs
+         */
+        public long getRuns() {
+            return runs.get();
+        }
+
+        /**
+         * Number of invocations that threw an exception
+         *
+         * @return number of failed runs
+         */
+        public long getFailures() {
+            return failures.get();
+        }
+
+        /**
+         * Number of removed items, only counted if the holder implements
+         * {@link ExpirationItemHolder#removeAndCountExpiredItems(long, TimeUnit)}
+         *
+         * @return number of removed items
+         */
+        public long getExpiredItems() {
+            return expiredItems.get();
+        }
+
+        /**
+         * Total time spent in the holder
+         *
+         * @param timeUnit
+         *            TimeUnit of the result
+         * @return time spent
+         */
+        public long getTotalTime(final TimeUnit timeUnit) {
+            return timeUnit.convert(totalNanos.get(), TimeUnit.NANOSECONDS);
+        }
+
+        /**
+         * Longest time spent in one run
+         *
+         * @param timeUnit
+         *            TimeUnit of the result
+         * @return max time spent
+         */
+        public long getMaxTime(final TimeUnit timeUnit) {
+            return timeUnit.convert(maxNanos.get(), TimeUnit.NANOSECONDS);
+        }
+
+        /**
+         * Unregisters the holder
+         */
+        @Override
+        public void release() {
+            unregister(holder);
+        }
+    }
+
+    /**
+     * Create a new ExpirationScheduler
+     *
+     * @param threads
+     *            number of threads that invoke the holders
+     */
+    public ExpirationScheduler(final int threads) {
+        final AtomicInteger threadCounter = new AtomicInteger();
+        this.executor = new ScheduledThreadPoolExecutor(threads, r -> {
+            final Thread thread = new Thread(r, "ExpirationScheduler-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.executor.setRemoveOnCancelPolicy(true);
+        this.executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    }
+
+    /**
+     * Returns the shared scheduler which uses half of the available processors
+     *
+     * @return shared ExpirationScheduler
+     */
+    public static ExpirationScheduler getShared() {
+        return InstanceHolder.INSTANCE;
+    }
+
+    /**
+     * Register a holder
+     *
+     * @param holder
+     *            holder to invoke
+     * @param maxLifeTime
+     *            max lifetime of the items
+     * @param unit
+     *            TimeUnit of the lifetime
+     * @param period
+     *            delay between the end of one and the start of the next run
+     * @param periodUnit
+     *            TimeUnit of the period
+     * @return the Registration
+     * @throws IllegalArgumentException
+     *             if the holder is null or already registered
+     */
+    public Registration register(final ExpirationItemHolder holder, final long maxLifeTime, final TimeUnit unit,
+            final long period, final TimeUnit periodUnit) {
+        if (holder == null) {
+            throw new IllegalArgumentException("ExpirationItemHolder is null");
+        }
+        if (period <= 0) {
+            throw new IllegalArgumentException("Invalid period: " + period);
+        }
+        final Registration registration = new Registration(holder, maxLifeTime, unit);
+        if (registrations.putIfAbsent(holder, registration) != null) {
+            throw new IllegalArgumentException("ExpirationItemHolder already registered");
+        }
+        registration.future = executor.scheduleWithFixedDelay(registration::run, period, period, periodUnit);
+        if (registrations.get(holder) != registration) {
+            // unregistered in the meantime
+            registration.future.cancel(false);
+        }
+        return registration;
+    }
+
+    /**
+     * Unregister a holder. A currently running invocation of the holder is not interrupted.
+     *
+     * @param holder
+     *            holder to unregister
+     * @return true if the holder was registered
+     */
+    public boolean unregister(final ExpirationItemHolder holder) {
+        final Registration registration = registrations.remove(holder);
+        if (registration == null) {
+            return false;
+        }
+        final ScheduledFuture<?> future = registration.future;
+        if (future != null) {
+            future.cancel(false);
+        }
+        return true;
+    }
+
+    public Collection<Registration> getRegistrations() {
+        return Collections.unmodifiableCollection(registrations.values());
+    }
+
+    /**
+     * Unregisters all holders and stops the threads
+     */
+    @Override
+    public void release() {
+        registrations.clear();
+        executor.shutdownNow();
+    }
+}
@@ -19,19 +19,29 @@
  */
 package de.interactive_instruments;
 
+import java.lang.ref.WeakReference;
 import java.lang.reflect.Field;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 
 /**
+ * Wraps the generic type of a field.
+ *
+ * FieldTypes are immutable. Instances obtained with {@link #of(Type)} or {@link #of(Field)} are interned as long as
+ * they are referenced, the argument lists are computed once and shared. The registry does not keep the types and their
+ * class loaders reachable.
+ *
  * @author Jon Herrmann ( herrmann aT interactive-instruments doT de )
  */
 public class FieldType {
+    // weak keys and values: an interned FieldType references its type, which would otherwise never be released
+    private static final Map<Type, WeakReference<FieldType>> interned = new WeakHashMap<>();
+
     private final Object t;
+    // computed on first use, as the types of the arguments are not checked before
+    private volatile List<Class<?>> arguments;
+    private volatile List<FieldType> argumentFieldTypes;
 
     public FieldType(final Field field) {
         this.t = field.getGenericType();
@@ -41,6 +51,36 @@ public class FieldType {
         this.t = t;
     }
 
+    /**
+     * Returns the interned FieldType of a type
+     *
+     * @param type
+     *            generic type or class
+     * @return FieldType
+     */
+    public static FieldType of(final Type type) {
+        synchronized (interned) {
+            final WeakReference<FieldType> ref = interned.get(type);
+            FieldType fieldType = ref != null ? ref.get() : null;
+            if (fieldType == null) {
+                fieldType = new FieldType(type);
+                interned.put(type, new WeakReference<>(fieldType));
+            }
+            return fieldType;
+        }
+    }
+
+    /**
+     * Returns the interned FieldType of the generic type of a field
+     *
+     * @param field
+     *            field
+     * @return FieldType
+     */
+    public static FieldType of(final Field field) {
+        return of(field.getGenericType());
+    }
+
     public boolean isParametrizedType() {
         return t instanceof ParameterizedType;
     }
@@ -64,41 +104,63 @@ public class FieldType {
         return (Class<?>) t;
     }
 
+    /**
+     * Returns the classes of the type arguments, the raw class is returned for parameterized arguments
+     *
+     * @return unmodifiable list or null if the type is not parameterized
+     */
     public List<Class<?>> getArguments() {
         if (!isParametrizedType()) {
             return null;
         }
-        final Type[] args = ((ParameterizedType) t).getActualTypeArguments();
-        final List<Class<?>> argsList = new ArrayList<>(args.length);
-        for (final Type arg : args) {
-            if (arg instanceof ParameterizedType) {
-                argsList.add((Class<?>) ((ParameterizedType) t).getRawType());
-            } else {
-                argsList.add((Class<?>) arg);
+        List<Class<?>> argsList = arguments;
+        if (argsList == null) {
+            final Type[] args = ((ParameterizedType) t).getActualTypeArguments();
+            final List<Class<?>> list = new ArrayList<>(args.length);
+            for (final Type arg : args) {
+                if (arg instanceof ParameterizedType) {
+                    list.add((Class<?>) ((ParameterizedType) arg).getRawType());
+                } else {
+                    list.add((Class<?>) arg);
+                }
             }
+            argsList = Collections.unmodifiableList(list);
+            arguments = argsList;
         }
         return argsList;
     }
 
+    /**
+     * Returns the interned FieldTypes of the type arguments
+     *
+     * @return unmodifiable list or null if the type is not parameterized
+     */
     public List<FieldType> getArgumentsAsFieldTypes() {
         if (!isParametrizedType()) {
             return null;
         }
-        final Type[] args = ((ParameterizedType) t).getActualTypeArguments();
-        final List<FieldType> argsList = new ArrayList<>(args.length);
-        for (final Type arg : args) {
-            argsList.add(new FieldType(arg));
+        List<FieldType> argsList = argumentFieldTypes;
+        if (argsList == null) {
+            final Type[] args = ((ParameterizedType) t).getActualTypeArguments();
+            final List<FieldType> list = new ArrayList<>(args.length);
+            for (final Type arg : args) {
+                list.add(of(arg));
+            }
+            argsList = Collections.unmodifiableList(list);
+            argumentFieldTypes = argsList;
         }
         return argsList;
     }
 
     public int argumentSize() {
-        return isParametrizedType() ? ((ParameterizedType) t).getActualTypeArguments().length : 0;
+        return isParametrizedType() ? getArgumentsAsFieldTypes().size() : 0;
     }
 
     public FieldType getFirstArgument() {
-        return new FieldType(((ParameterizedType) t).getActualTypeArguments()[0]);
-
+        if (!isParametrizedType()) {
+            throw new ClassCastException(t + " is not a parameterized type");
+        }
+        return getArgumentsAsFieldTypes().get(0);
     }
 
     @Override
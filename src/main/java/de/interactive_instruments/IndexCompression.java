@@ -24,7 +24,7 @@ package de.interactive_instruments;
  *
  * The algorithm is based on the assumption that a passed array of indices contains multiple '1' values. For each '1' value one bit is set in a long data type. A value greater than '1' must be initiated by a leading zero. Each number can have a max size of MAX_NUMBER_SIZE.
  *
- * Null indices are not supported.
+ * Null indices are not supported. Use the {@link IndexPathCompression} for index arrays that do not fit into a long.
  *
  * @author Jon Herrmann ( herrmann aT interactive-instruments doT de )
  */
@@ -82,24 +82,42 @@ public class IndexCompression {
     }
 
     /**
-     * Uncompress a long data type
+     * Uncompress a long data type.
+     *
+     * The returned array may be larger than the number of indices, the remaining values are 0. Use
+     * {@link #uncompress(long, int[])} to avoid allocating an array for each compressed value.
      *
      * @param compressedIndices
      * @return
      */
     public static int[] uncompress(final long compressedIndices) {
         final int[] array = new int[Long.SIZE - Integer.numberOfLeadingZeros((int) compressedIndices)];
+        uncompress(compressedIndices, array);
+        return array;
+    }
+
+    /**
+     * Uncompress a long data type into an existing array. Only the bits up to the highest set bit are inspected.
+     *
+     * @param compressedIndices
+     *            compressed indices
+     * @param dest
+     *            target array, which must be large enough for all indices ({@link Long#SIZE} is always sufficient)
+     * @return number of written indices
+     */
+    public static int uncompress(final long compressedIndices, final int[] dest) {
         int arrayPos = 0;
         int number = 0;
         // Values greater 0 indicate that the Zero Number Start Bit was found and
         // reflects the numbers bit position with an index
         int numberPos = 0;
-        for (int i = 0; i < Long.SIZE; i++) {
+        final int bitCount = Long.SIZE - Long.numberOfLeadingZeros(compressedIndices);
+        for (int i = 0; i < bitCount; i++) {
             final int bit = (int) ((compressedIndices >> i) & 1);
             if (bit == 0) {
                 if (numberPos > MAX_NUMBER_BIT_COUNT) {
                     // write current number
-                    array[arrayPos] = number;
+                    dest[arrayPos] = number;
                     ++arrayPos;
                     number = 0;
                     numberPos = 0;
@@ -112,11 +130,16 @@ public class IndexCompression {
                 number |= 1 << numberPos++ - 1;
             } else {
                 // not in number mode, just write current 1
-                array[arrayPos] = 1;
+                dest[arrayPos] = 1;
                 ++arrayPos;
             }
         }
-        return array;
+        if (number != 0) {
+            // the separator of the last number is not set
+            dest[arrayPos] = number;
+            ++arrayPos;
+        }
+        return arrayPos;
     }
 
 }
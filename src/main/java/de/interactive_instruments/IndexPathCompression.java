@@ -0,0 +1,476 @@
+/**
+ * Copyright 2017-2019 European Union, interactive instruments GmbH
+ * Licensed under the EUPL, Version 1.2 or - as soon they will be approved by
+ * the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ *
+ * This work was supported by the EU Interoperability Solutions for
+ * European Public Administrations Programme (http://ec.europa.eu/isa)
+ * through Action 1.17: A Reusable INSPIRE Reference Platform (ARE3NA).
+ */
+package de.interactive_instruments;
+
+import java.util.Arrays;
+
+/**
+ * Functions for compressing/decompressing index arrays of arbitrary length and with arbitrary non-negative values.
+ *
+ * Each index is encoded with a variable number of bytes, the first byte determines the length:
+ * <ul>
+ * <li>0 to 127: one byte {@code 0xxxxxxx}</li>
+ * <li>128 to 16511: two bytes, the first byte is in the range {@code 0x80} to {@code 0xBF}</li>
+ * <li>16512 to 2113663: three bytes, the first byte is in the range {@code 0xC0} to {@code 0xDF}</li>
+ * <li>larger values: {@code 0xE0} followed by the value as four big-endian bytes</li>
+ * </ul>
+ * The encoding preserves the order: comparing two encoded index arrays byte by byte (unsigned) yields the same
+ * result as comparing the index arrays element by element, where a shorter array that is a prefix of a longer one
+ * is ordered first. Sorted index paths can therefore be compared with {@link #compare(byte[], int, int, byte[], int,
+ * int)} without decoding them. Small indices, which are the most common ones in index paths, are decoded in a tight
+ * loop that only checks the sign of each byte.
+ *
+ * Many index paths can be stored in one {@link PathArray}, which does not allocate objects per path.
+ *
+ * @author Jon Herrmann ( herrmann aT interactive-instruments doT de )
+ */
+public final class IndexPathCompression {
+
+    private final static int MAX_1 = 0x7F;
+    private final static int MAX_2 = MAX_1 + (0x40 << 8);
+    private final static int MAX_3 = MAX_2 + (0x20 << 16);
+    private final static int PREFIX_2 = 0x80;
+    private final static int PREFIX_3 = 0xC0;
+    private final static int PREFIX_5 = 0xE0;
+
+    private IndexPathCompression() {}
+
+    /**
+     * Number of bytes required to encode a part of an index array
+     *
+     * @param indices
+     *            index array
+     * @param off
+     *            position of the first index
+     * @param len
+     *            number of indices
+     * @return number of bytes
+     */
+    public static int encodedLength(final int[] indices, final int off, final int len) {
+        int length = 0;
+        for (int i = off, end = off + len; i < end; i++) {
+            length += encodedLength(indices[i]);
+        }
+        return length;
+    }
+
+    private static int encodedLength(final int index) {
+        if (index < 0) {
+            throw new IllegalArgumentException("Negative indices are not supported: " + index);
+        } else if (index <= MAX_1) {
+            return 1;
+        } else if (index <= MAX_2) {
+            return 2;
+        } else if (index <= MAX_3) {
+            return 3;
+        }
+        return 5;
+    }
+
+    /**
+     * Compress an index array
+     *
+     * @param indices
+     *            array with indices
+     * @return encoded indices
+     */
+    public static byte[] compress(final int[] indices) {
+        final byte[] dest = new byte[encodedLength(indices, 0, indices.length)];
+        compress(indices, 0, indices.length, dest, 0);
+        return dest;
+    }
+
+    /**
+     * Compress a part of an index array into an existing byte array
+     *
+     * @param indices
+     *            array with indices
+     * @param off
+     *            position of the first index
+     * @param len
+     *            number of indices
+     * @param dest
+     *            target array, see {@link #encodedLength(int[], int, int)}
+     * @param destOff
+     *            position of the first written byte
+     * @return position after the last written byte
+     */
+    public static int compress(final int[] indices, final int off, final int len, final byte[] dest, final int destOff) {
+        int pos = destOff;
+        for (int i = off, end = off + len; i < end; i++) {
+            final int index = indices[i];
+            if (index < 0) {
+                throw new IllegalArgumentException("Negative indices are not supported: " + index);
+            } else if (index <= MAX_1) {
+                dest[pos++] = (byte) index;
+            } else if (index <= MAX_2) {
+                final int v = index - MAX_1 - 1;
+                dest[pos++] = (byte) (PREFIX_2 | (v >>> 8));
+                dest[pos++] = (byte) v;
+            } else if (index <= MAX_3) {
+                final int v = index - MAX_2 - 1;
+                dest[pos++] = (byte) (PREFIX_3 | (v >>> 16));
+                dest[pos++] = (byte) (v >>> 8);
+                dest[pos++] = (byte) v;
+            } else {
+                dest[pos++] = (byte) PREFIX_5;
+                dest[pos++] = (byte) (index >>> 24);
+                dest[pos++] = (byte) (index >>> 16);
+                dest[pos++] = (byte) (index >>> 8);
+                dest[pos++] = (byte) index;
+            }
+        }
+        return pos;
+    }
+
+    /**
+     * Uncompress an index array
+     *
+     * @param compressed
+     *            encoded indices
+     * @return index array
+     */
+    public static int[] uncompress(final byte[] compressed) {
+        final int[] dest = new int[count(compressed, 0, compressed.length)];
+        uncompress(compressed, 0, compressed.length, dest, 0);
+        return dest;
+    }
+
+    /**
+     * Number of indices in a part of an encoded array
+     *
+     * @param compressed
+     *            encoded indices
+     * @param off
+     *            position of the first byte
+     * @param len
+     *            number of bytes
+     * @return number of indices
+     */
+    public static int count(final byte[] compressed, final int off, final int len) {
+        int count = 0;
+        for (int pos = off, end = off + len; pos < end; count++) {
+            final int b = compressed[pos];
+            if (b >= 0) {
+                pos++;
+            } else {
+                pos += length(b & 0xFF);
+            }
+        }
+        return count;
+    }
+
+    private static int length(final int prefix) {
+        if (prefix < PREFIX_3) {
+            return 2;
+        } else if (prefix < PREFIX_5) {
+            return 3;
+        } else if (prefix == PREFIX_5) {
+            return 5;
+        }
+        throw new IllegalArgumentException("Invalid encoding: " + prefix);
+    }
+
+    /**
+     * Uncompress a part of an encoded array into an existing index array
+     *
+     * @param compressed
+     *            encoded indices
+     * @param off
+     *            position of the first byte
+     * @param len
+     *            number of bytes
+     * @param dest
+     *            target array, see {@link #count(byte[], int, int)}
+     * @param destOff
+     *            position of the first written index
+     * @return number of written indices
+     */
+    public static int uncompress(final byte[] compressed, final int off, final int len, final int[] dest,
+            final int destOff) {
+        int pos = off;
+        int destPos = destOff;
+        final int end = off + len;
+        while (pos < end) {
+            // fast path for runs of small indices
+            int b;
+            while ((b = compressed[pos]) >= 0) {
+                dest[destPos++] = b;
+                if (++pos == end) {
+                    return destPos - destOff;
+                }
+            }
+            final int prefix = b & 0xFF;
+            if (prefix < PREFIX_3) {
+                dest[destPos++] = MAX_1 + 1 + (((prefix & 0x3F) << 8) | (compressed[pos + 1] & 0xFF));
+                pos += 2;
+            } else if (prefix < PREFIX_5) {
+                dest[destPos++] = MAX_2 + 1 + (((prefix & 0x1F) << 16) | ((compressed[pos + 1] & 0xFF) << 8)
+                        | (compressed[pos + 2] & 0xFF));
+                pos += 3;
+            } else if (prefix == PREFIX_5) {
+                dest[destPos++] = ((compressed[pos + 1] & 0xFF) << 24) | ((compressed[pos + 2] & 0xFF) << 16)
+                        | ((compressed[pos + 3] & 0xFF) << 8) | (compressed[pos + 4] & 0xFF);
+                pos += 5;
+            } else {
+                throw new IllegalArgumentException("Invalid encoding: " + prefix);
+            }
+        }
+        return destPos - destOff;
+    }
+
+    /**
+     * Compares two encoded index arrays without decoding them
+     *
+     * @param a
+     *            first encoded array
+     * @param aOff
+     *            position of the first byte in the first array
+     * @param aLen
+     *            number of bytes in the first array
+     * @param b
+     *            second encoded array
+     * @param bOff
+     *            position of the first byte in the second array
+     * @param bLen
+     *            number of bytes in the second array
+     * @return a negative integer, zero, or a positive integer as the first index array is less than, equal to, or
+     *         greater than the second
+     */
+    public static int compare(final byte[] a, final int aOff, final int aLen, final byte[] b, final int bOff,
+            final int bLen) {
+        final int len = Math.min(aLen, bLen);
+        for (int i = 0; i < len; i++) {
+            final int x = a[aOff + i];
+            final int y = b[bOff + i];
+            if (x != y) {
+                return (x & 0xFF) - (y & 0xFF);
+            }
+        }
+        return aLen - bLen;
+    }
+
+    /**
+     * Compares two encoded index arrays without decoding them
+     *
+     * @param a
+     *            first encoded array
+     * @param b
+     *            second encoded array
+     * @return a negative integer, zero, or a positive integer as the first index array is less than, equal to, or
+     *         greater than the second
+     */
+    public static int compare(final byte[] a, final byte[] b) {
+        return compare(a, 0, a.length, b, 0, b.length);
+    }
+
+    /**
+     * Stores many encoded index paths in one byte array.
+     *
+     * The paths are accessed by their position, which is the order in which they were added. No objects are allocated
+     * per path.
+     */
+    public static final class PathArray {
+        private byte[] data;
+        // offsets[i] is the start of path i, offsets[size] the end of the last path
+        private int[] offsets;
+        private int size;
+
+        public PathArray() {
+            this(16, 256);
+        }
+
+        /**
+         * Creates a new array
+         *
+         * @param expectedPaths
+         *            expected number of paths
+         * @param expectedBytes
+         *            expected number of bytes of all encoded paths
+         */
+        public PathArray(final int expectedPaths, final int expectedBytes) {
+            this.data = new byte[Math.max(16, expectedBytes)];
+            this.offsets = new int[Math.max(16, expectedPaths + 1)];
+        }
+
+        /**
+         * Adds an index path
+         *
+         * @param indices
+         *            index path
+         * @return position of the path
+         */
+        public int add(final int[] indices) {
+            return add(indices, 0, indices.length);
+        }
+
+        /**
+         * Adds a part of an index array as path
+         *
+         * @param indices
+         *            index array
+         * @param off
+         *            position of the first index
+         * @param len
+         *            number of indices
+         * @return position of the path
+         */
+        public int add(final int[] indices, final int off, final int len) {
+            final int start = offsets[size];
+            // 5 bytes are sufficient for each index
+            final int maxEnd = start + 5 * len;
+            if (maxEnd > data.length || maxEnd < 0) {
+                data = Arrays.copyOf(data, Math.max(data.length * 2, start + encodedLength(indices, off, len)));
+            }
+            if (size + 2 > offsets.length) {
+                offsets = Arrays.copyOf(offsets, offsets.length * 2);
+            }
+            offsets[size + 1] = compress(indices, off, len, data, start);
+            return size++;
+        }
+
+        /**
+         * Number of paths
+         *
+         * @return number of paths
+         */
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Number of indices of a path
+         *
+         * @param path
+         *            position of the path
+         * @return number of indices
+         */
+        public int length(final int path) {
+            checkPath(path);
+            return count(data, offsets[path], offsets[path + 1] - offsets[path]);
+        }
+
+        /**
+         * Decodes a path into an existing array
+         *
+         * @param path
+         *            position of the path
+         * @param dest
+         *            target array
+         * @param destOff
+         *            position of the first written index
+         * @return number of written indices
+         */
+        public int get(final int path, final int[] dest, final int destOff) {
+            checkPath(path);
+            return uncompress(data, offsets[path], offsets[path + 1] - offsets[path], dest, destOff);
+        }
+
+        /**
+         * Decodes a path
+         *
+         * @param path
+         *            position of the path
+         * @return index path
+         */
+        public int[] get(final int path) {
+            final int[] dest = new int[length(path)];
+            get(path, dest, 0);
+            return dest;
+        }
+
+        /**
+         * Decodes all paths into one array
+         *
+         * @param dest
+         *            target array for the indices of all paths
+         * @param ends
+         *            target array for the end positions of the paths in dest, must have at least {@link #size()}
+         *            elements
+         * @return number of written indices
+         */
+        public int getAll(final int[] dest, final int[] ends) {
+            int destPos = 0;
+            for (int i = 0; i < size; i++) {
+                destPos += uncompress(data, offsets[i], offsets[i + 1] - offsets[i], dest, destPos);
+                ends[i] = destPos;
+            }
+            return destPos;
+        }
+
+        /**
+         * Compares two paths without decoding them
+         *
+         * @param path1
+         *            position of the first path
+         * @param path2
+         *            position of the second path
+         * @return a negative integer, zero, or a positive integer as the first path is less than, equal to, or
+         *         greater than the second
+         */
+        public int compare(final int path1, final int path2) {
+            checkPath(path1);
+            checkPath(path2);
+            return IndexPathCompression.compare(data, offsets[path1], offsets[path1 + 1] - offsets[path1],
+                    data, offsets[path2], offsets[path2 + 1] - offsets[path2]);
+        }
+
+        /**
+         * Compares a path with an encoded index array without decoding them
+         *
+         * @param path
+         *            position of the path
+         * @param compressed
+         *            encoded index array
+         * @return a negative integer, zero, or a positive integer as the path is less than, equal to, or greater than
+         *         the encoded array
+         */
+        public int compare(final int path, final byte[] compressed) {
+            checkPath(path);
+            return IndexPathCompression.compare(data, offsets[path], offsets[path + 1] - offsets[path],
+                    compressed, 0, compressed.length);
+        }
+
+        /**
+         * Returns the encoded path
+         *
+         * @param path
+         *            position of the path
+         * @return copy of the encoded path
+         */
+        public byte[] getCompressed(final int path) {
+            checkPath(path);
+            return Arrays.copyOfRange(data, offsets[path], offsets[path + 1]);
+        }
+
+        /**
+         * Removes all paths, the allocated memory is kept
+         */
+        public void clear() {
+            size = 0;
+        }
+
+        private void checkPath(final int path) {
+            if (path < 0 || path >= size) {
+                throw new IndexOutOfBoundsException("Path: " + path + ", size: " + size);
+            }
+        }
+    }
+}
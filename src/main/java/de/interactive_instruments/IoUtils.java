@@ -21,10 +21,14 @@ package de.interactive_instruments;
 
 import static de.interactive_instruments.CLUtils.getResourceAsStream;
 
+import java.io.BufferedOutputStream;
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPOutputStream;
 
 import de.interactive_instruments.exceptions.ExcUtils;
 import de.interactive_instruments.exceptions.IOsizeLimitExceededException;
@@ -83,6 +87,44 @@ public final class IoUtils {
         destFile.write(IoUtils.requireNonNullIO(stream, "Resource " + resourcePath + " not found"));
     }
 
+    /**
+     * Opens a buffered stream that creates or truncates a file
+     *
+     * @param target
+     *            file to write
+     * @param gzip
+     *            compress the written bytes with gzip
+     * @return buffered output stream
+     * @throws IOException
+     *             if the file can not be opened
+     */
+    public static OutputStream newOutputStream(final Path target, final boolean gzip) throws IOException {
+        final OutputStream out = new BufferedOutputStream(Files.newOutputStream(target), 65536);
+        return gzip ? new GZIPOutputStream(out, 65536) : out;
+    }
+
+    /**
+     * Writes bytes to a file, which is created or truncated
+     *
+     * @param target
+     *            file to write
+     * @param content
+     *            bytes to write
+     * @param gzip
+     *            compress the bytes with gzip
+     * @throws IOException
+     *             if the file can not be written
+     */
+    public static void write(final Path target, final byte[] content, final boolean gzip) throws IOException {
+        if (gzip) {
+            try (final OutputStream out = newOutputStream(target, true)) {
+                out.write(content);
+            }
+        } else {
+            Files.write(target, content);
+        }
+    }
+
     public static <T> T requireNonNullIO(final T obj, final String message) throws IOException {
         if (obj == null)
             throw new IOException(message);
@@ -0,0 +1,246 @@
+/**
+ * Copyright 2017-2019 European Union, interactive instruments GmbH
+ * Licensed under the EUPL, Version 1.2 or - as soon they will be approved by
+ * the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ *
+ * This work was supported by the EU Interoperability Solutions for
+ * European Public Administrations Programme (http://ec.europa.eu/isa)
+ * through Action 1.17: A Reusable INSPIRE Reference Platform (ARE3NA).
+ */
+package de.interactive_instruments;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+
+/**
+ * Immutable set of IPv4 and IPv6 address ranges in CIDR notation, which are either blocked or allowed.
+ *
+ * The ranges are compiled into binary prefix tries, an address is looked up with at most one step per address bit.
+ * If ranges overlap, the longest matching prefix decides, so that a small allowed range can be excluded from a larger
+ * blocked range.
+ *
+ * @author Jon Herrmann ( herrmann aT interactive-instruments doT de )
+ */
+public final class IpRanges {
+
+    private static final byte NONE = 0;
+    private static final byte BLOCKED = 1;
+    private static final byte ALLOWED = 2;
+
+    /**
+     * Unspecified, loopback, private and link-local ranges
+     */
+    public static final String[] PRIVATE_NETS = {
+            // IPv4
+            "0.0.0.0/8", "10.0.0.0/8", "127.0.0.0/8", "169.254.0.0/16", "172.16.0.0/12", "192.168.0.0/16",
+            // IPv6: unspecified, loopback, unique local and link-local
+            "::/128", "::1/128", "fc00::/7", "fe80::/10"
+    };
+
+    private final Trie ipv4;
+    private final Trie ipv6;
+
+    private static final class Trie {
+        private int[] zero;
+        private int[] one;
+        private byte[] values;
+        private int size = 1;
+
+        private Trie() {
+            zero = new int[16];
+            one = new int[16];
+            values = new byte[16];
+        }
+
+        private void add(final byte[] address, final int prefixLength, final byte value) {
+            int node = 0;
+            for (int i = 0; i < prefixLength; i++) {
+                final boolean bit = bit(address, i);
+                int child = bit ? one[node] : zero[node];
+                if (child == 0) {
+                    if (size == values.length) {
+                        zero = Arrays.copyOf(zero, size * 2);
+                        one = Arrays.copyOf(one, size * 2);
+                        values = Arrays.copyOf(values, size * 2);
+                    }
+                    child = size++;
+                    if (bit) {
+                        one[node] = child;
+                    } else {
+                        zero[node] = child;
+                    }
+                }
+                node = child;
+            }
+            values[node] = value;
+        }
+
+        private Trie compact() {
+            zero = Arrays.copyOf(zero, size);
+            one = Arrays.copyOf(one, size);
+            values = Arrays.copyOf(values, size);
+            return this;
+        }
+
+        private byte lookup(final byte[] address) {
+            int node = 0;
+            byte match = values[0];
+            for (int i = 0, bits = address.length * 8; i < bits; i++) {
+                node = bit(address, i) ? one[node] : zero[node];
+                if (node == 0) {
+                    break;
+                }
+                if (values[node] != NONE) {
+                    match = values[node];
+                }
+            }
+            return match;
+        }
+
+        private static boolean bit(final byte[] address, final int index) {
+            return (address[index >>> 3] & (0x80 >>> (index & 7))) != 0;
+        }
+    }
+
+    /**
+     * Builder for IpRanges objects
+     */
+    public static final class Builder {
+        private final Trie ipv4 = new Trie();
+        private final Trie ipv6 = new Trie();
+
+        private Builder() {}
+
+        /**
+         * Adds blocked ranges
+         *
+         * @param cidrs
+         *            ranges in CIDR notation, e.g. 10.0.0.0/8 or fe80::/10, or single addresses
+         * @return Builder object
+         * @throws IllegalArgumentException
+         *             if a range is invalid
+         */
+        public Builder block(final String... cidrs) {
+            for (final String cidr : cidrs) {
+                add(cidr, BLOCKED);
+            }
+            return this;
+        }
+
+        /**
+         * Adds allowed ranges
+         *
+         * @param cidrs
+         *            ranges in CIDR notation, e.g. 10.0.0.0/8 or fe80::/10, or single addresses
+         * @return Builder object
+         * @throws IllegalArgumentException
+         *             if a range is invalid
+         */
+        public Builder allow(final String... cidrs) {
+            for (final String cidr : cidrs) {
+                add(cidr, ALLOWED);
+            }
+            return this;
+        }
+
+        private void add(final String cidr, final byte value) {
+            final String range = cidr.trim();
+            if (range.isEmpty()) {
+                return;
+            }
+            final int slash = range.indexOf('/');
+            final String address = slash == -1 ? range : range.substring(0, slash);
+            final byte[] bytes = parseLiteral(address);
+            if (bytes == null) {
+                throw new IllegalArgumentException("Invalid IP range: " + cidr);
+            }
+            final int bits = bytes.length * 8;
+            final int prefixLength;
+            try {
+                prefixLength = slash == -1 ? bits : Integer.parseInt(range.substring(slash + 1));
+            } catch (final NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid prefix length: " + cidr, e);
+            }
+            if (prefixLength < 0 || prefixLength > bits) {
+                throw new IllegalArgumentException("Invalid prefix length: " + cidr);
+            }
+            (bytes.length == 4 ? ipv4 : ipv6).add(bytes, prefixLength, value);
+        }
+
+        public IpRanges build() {
+            return new IpRanges(ipv4.compact(), ipv6.compact());
+        }
+    }
+
+    private IpRanges(final Trie ipv4, final Trie ipv6) {
+        this.ipv4 = ipv4;
+        this.ipv6 = ipv6;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Parses an IP address literal without name resolution
+     *
+     * @param address
+     *            IPv4 or IPv6 address
+     * @return address bytes or null if the string is not an IP address
+     */
+    static byte[] parseLiteral(final String address) {
+        if (address.isEmpty()) {
+            return null;
+        }
+        final String literal = address.charAt(0) == '[' && address.endsWith("]")
+                ? address.substring(1, address.length() - 1)
+                : address;
+        if (literal.indexOf(':') == -1) {
+            // InetAddress would resolve anything else than a dotted IPv4 address
+            for (int i = 0; i < literal.length(); i++) {
+                final char c = literal.charAt(i);
+                if ((c < '0' || c > '9') && c != '.') {
+                    return null;
+                }
+            }
+        }
+        try {
+            return InetAddress.getByName(literal).getAddress();
+        } catch (final UnknownHostException | SecurityException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Checks if an address is in a blocked range
+     *
+     * @param address
+     *            IPv4 or IPv6 address
+     * @return true if the longest matching range is blocked
+     */
+    public boolean isBlocked(final InetAddress address) {
+        return isBlocked(address.getAddress());
+    }
+
+    /**
+     * Checks if an address is in a blocked range
+     *
+     * @param address
+     *            4 or 16 address bytes
+     * @return true if the longest matching range is blocked
+     */
+    public boolean isBlocked(final byte[] address) {
+        return (address.length == 4 ? ipv4 : ipv6).lookup(address) == BLOCKED;
+    }
+}
@@ -67,9 +67,24 @@ public class MdUtils {
          *            input data to hash
          */
         public void update(final byte[] data) {
+            update(data, 0, data.length);
+        }
+
+        /**
+         * Updates the hash with a part of a buffer, so streams can be hashed without buffering their whole content.
+         *
+         * @param data
+         *            input data to hash
+         * @param off
+         *            start offset in the data
+         * @param len
+         *            number of bytes to hash
+         */
+        public void update(final byte[] data, final int off, final int len) {
             // n = 64
             // prime = 1099511628211
-            for (int i = 0; i < data.length; i++) {
+            final int end = off + len;
+            for (int i = off; i < end; i++) {
                 hash ^= data[i];
                 hash *= FNV_64_PRIME;
             }
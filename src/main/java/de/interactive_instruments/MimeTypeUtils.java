@@ -24,6 +24,8 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
@@ -33,12 +35,18 @@ import org.apache.tika.mime.MediaType;
 import org.apache.tika.mime.MimeTypeException;
 import org.apache.tika.mime.MimeTypes;
 
+import de.interactive_instruments.collections.ExpiringCache;
 import de.interactive_instruments.container.Pair;
 import de.interactive_instruments.exceptions.MimeTypeUtilsException;
 
 /**
  * Utility functions for detecting mime types and file extensions on basis of the Tika library.
  *
+ * Content based detection only inspects the first {@link #SNIFF_WINDOW} bytes, which are read into a buffer that is
+ * reused by each thread. The MIME types of files are cached, a cached type is used as long as the size and the
+ * modification time of the file do not change. The size of the window and the max number of cached files can be set
+ * with the system properties {@code ii.mimetype.sniff.window} and {@code ii.mimetype.cache.size}.
+ *
  * @author Jon Herrmann ( herrmann aT interactive-instruments doT de )
  */
 public class MimeTypeUtils {
@@ -103,6 +111,28 @@ public class MimeTypeUtils {
     private static MimeTypes allTypes = MimeTypes.getDefaultMimeTypes();
     private static Tika tika = new Tika();
 
+    /**
+     * Max number of bytes that are inspected for content based detection
+     */
+    public static final int SNIFF_WINDOW = Math.max(64, Integer.getInteger("ii.mimetype.sniff.window", 8192));
+
+    private static final ThreadLocal<byte[]> sniffBuffer = ThreadLocal.withInitial(() -> new byte[SNIFF_WINDOW]);
+
+    private static final ExpiringCache<String, FileMimeType> fileMimeTypes = ExpiringCache.<String, FileMimeType> builder()
+            .maximumSize(Long.getLong("ii.mimetype.cache.size", 4096)).build();
+
+    private static final class FileMimeType {
+        private final long size;
+        private final long lastModified;
+        private final String mimeType;
+
+        private FileMimeType(final long size, final long lastModified, final String mimeType) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.mimeType = mimeType;
+        }
+    }
+
     /**
      * Including a dot character before the extension
      *
@@ -130,14 +160,31 @@ public class MimeTypeUtils {
      * Content based detection
      */
     public static String detectMimeType(final String str) throws MimeTypeUtilsException {
-        InputStream stream = null;
-        try {
-            stream = new ByteArrayInputStream(str.getBytes(StandardCharsets.UTF_8));
-            return tika.getDetector().detect(stream, new Metadata()).toString();
+        // at most SNIFF_WINDOW bytes are required, each char is encoded with at least one byte
+        int end = Math.min(str.length(), SNIFF_WINDOW);
+        if (end < str.length() && Character.isHighSurrogate(str.charAt(end - 1))) {
+            end--;
+        }
+        final byte[] prefix = str.substring(0, end).getBytes(StandardCharsets.UTF_8);
+        return detect(prefix, Math.min(prefix.length, SNIFF_WINDOW), new Metadata());
+    }
+
+    private static String detect(final byte[] prefix, final int length, final Metadata metadata)
+            throws MimeTypeUtilsException {
+        try (final InputStream stream = new ByteArrayInputStream(prefix, 0, length)) {
+            return tika.getDetector().detect(stream, metadata).toString();
         } catch (IOException e) {
             throw new MimeTypeUtilsException(e);
-        } finally {
-            IoUtils.closeQuietly(stream);
+        }
+    }
+
+    private static int readPrefix(final File file, final byte[] buffer, final int max) throws IOException {
+        try (final InputStream stream = Files.newInputStream(file.toPath())) {
+            int length = 0;
+            for (int read; length < max && (read = stream.read(buffer, length, max - length)) != -1;) {
+                length += read;
+            }
+            return length;
         }
     }
 
@@ -149,9 +196,25 @@ public class MimeTypeUtils {
         }
     }
 
+    /**
+     * Content and file name based detection, the result is cached
+     */
     public static String detectMimeType(final File file) throws MimeTypeUtilsException {
         try {
-            return tika.detect(file);
+            final BasicFileAttributes attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+            final String key = file.getAbsolutePath();
+            final long lastModified = attributes.lastModifiedTime().toMillis();
+            final FileMimeType cached = fileMimeTypes.getIfPresent(key);
+            if (cached != null && cached.size == attributes.size() && cached.lastModified == lastModified) {
+                return cached.mimeType;
+            }
+            final byte[] buffer = sniffBuffer.get();
+            final int length = readPrefix(file, buffer, SNIFF_WINDOW);
+            final Metadata metadata = new Metadata();
+            metadata.set(Metadata.RESOURCE_NAME_KEY, file.getName());
+            final String mimeType = detect(buffer, length, metadata);
+            fileMimeTypes.put(key, new FileMimeType(attributes.size(), lastModified, mimeType));
+            return mimeType;
         } catch (IOException e) {
             throw new MimeTypeUtilsException(e);
         }
@@ -0,0 +1,133 @@
+/**
+ * Copyright 2017-2019 European Union, interactive instruments GmbH
+ * Licensed under the EUPL, Version 1.2 or - as soon they will be approved by
+ * the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ *
+ * This work was supported by the EU Interoperability Solutions for
+ * European Public Administrations Programme (http://ec.europa.eu/isa)
+ * through Action 1.17: A Reusable INSPIRE Reference Platform (ARE3NA).
+ */
+package de.interactive_instruments;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import de.interactive_instruments.collections.ExpiringCache;
+import de.interactive_instruments.properties.PropertyUtils;
+
+/**
+ * Checks if host names or addresses belong to private networks, for {@link UriUtils#isPrivateNet(String)}.
+ *
+ * The results of name resolutions are cached for {@code ii.privatenet.cache.ttl} seconds (default 60), failed
+ * resolutions for {@code ii.privatenet.cache.negative.ttl} seconds (default 10). A host is considered private if one
+ * of its addresses is in a blocked range. Besides the {@link IpRanges#PRIVATE_NETS}, further ranges can be blocked or
+ * allowed with the comma separated CIDR lists {@code ii.privatenet.blocked} and {@code ii.privatenet.allowed}.
+ *
+ * @author Jon Herrmann ( herrmann aT interactive-instruments doT de )
+ */
+final class PrivateNetGuard {
+
+    private static final long TTL_MILLIS = TimeUnit.SECONDS.toMillis(
+            PropertyUtils.getenvOrProperty("ii.privatenet.cache.ttl", 60L));
+    private static final long NEGATIVE_TTL_MILLIS = TimeUnit.SECONDS.toMillis(
+            PropertyUtils.getenvOrProperty("ii.privatenet.cache.negative.ttl", 10L));
+
+    private static final IpRanges ranges = IpRanges.builder()
+            .block(IpRanges.PRIVATE_NETS)
+            .block(PropertyUtils.getenvOrProperty("ii.privatenet.blocked", "").split(","))
+            .allow(PropertyUtils.getenvOrProperty("ii.privatenet.allowed", "").split(","))
+            .build();
+
+    private static final ExpiringCache<String, Resolution> resolutions = ExpiringCache.<String, Resolution> builder()
+            .maximumSize(PropertyUtils.getenvOrProperty("ii.privatenet.cache.size", 4096))
+            .expireAfterWrite(Math.max(TTL_MILLIS, NEGATIVE_TTL_MILLIS), TimeUnit.MILLISECONDS).build();
+
+    private static final ExecutorService resolver = createResolver();
+
+    private static final class Resolution {
+        private final boolean privateNet;
+        private final UnknownHostException error;
+        private final long expires;
+
+        private Resolution(final boolean privateNet, final UnknownHostException error, final long ttl) {
+            this.privateNet = privateNet;
+            this.error = error;
+            this.expires = System.currentTimeMillis() + ttl;
+        }
+    }
+
+    private PrivateNetGuard() {}
+
+    private static ExecutorService createResolver() {
+        final AtomicInteger threadCounter = new AtomicInteger();
+        return Executors.newFixedThreadPool(4, r -> {
+            final Thread thread = new Thread(r, "PrivateNetResolver-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static Resolution resolve(final String host) {
+        try {
+            for (final InetAddress address : InetAddress.getAllByName(host)) {
+                if (ranges.isBlocked(address)) {
+                    return new Resolution(true, null, TTL_MILLIS);
+                }
+            }
+            return new Resolution(false, null, TTL_MILLIS);
+        } catch (final UnknownHostException e) {
+            return new Resolution(false, e, NEGATIVE_TTL_MILLIS);
+        }
+    }
+
+    private static Resolution cachedResolution(final String host) {
+        Resolution resolution = resolutions.get(host, PrivateNetGuard::resolve);
+        if (resolution.expires < System.currentTimeMillis()) {
+            resolutions.invalidate(host);
+            resolution = resolutions.get(host, PrivateNetGuard::resolve);
+        }
+        return resolution;
+    }
+
+    static boolean isPrivateNet(final String host) throws UnknownHostException {
+        final byte[] literal = IpRanges.parseLiteral(host);
+        if (literal != null) {
+            return ranges.isBlocked(literal);
+        }
+        final Resolution resolution = cachedResolution(host.toLowerCase(Locale.ENGLISH));
+        if (resolution.error != null) {
+            final UnknownHostException e = new UnknownHostException(resolution.error.getMessage());
+            e.initCause(resolution.error);
+            throw e;
+        }
+        return resolution.privateNet;
+    }
+
+    static CompletableFuture<Boolean> isPrivateNetAsync(final String host) {
+        final CompletableFuture<Boolean> result = new CompletableFuture<>();
+        resolver.execute(() -> {
+            try {
+                result.complete(isPrivateNet(host));
+            } catch (final UnknownHostException | RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+}
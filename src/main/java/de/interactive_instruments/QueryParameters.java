@@ -0,0 +1,339 @@
+/**
+ * Copyright 2017-2019 European Union, interactive instruments GmbH
+ * Licensed under the EUPL, Version 1.2 or - as soon they will be approved by
+ * the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ *
+ * This work was supported by the EU Interoperability Solutions for
+ * European Public Administrations Programme (http://ec.europa.eu/isa)
+ * through Action 1.17: A Reusable INSPIRE Reference Platform (ARE3NA).
+ */
+package de.interactive_instruments;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.util.*;
+
+/**
+ * Immutable view of the query parameters of an URL.
+ *
+ * The query is split in a single pass, without regular expressions. Parameter names are case-insensitive and are
+ * ordered by {@link String#CASE_INSENSITIVE_ORDER}, the values of a parameter retain their order. The canonical form,
+ * which consists of the URL without query, the upper case parameter names and all values, and its hash code are
+ * computed on first use. Two views are equal if their canonical forms are equal, so that views can be used as cache
+ * keys for requests.
+ *
+ * @author Jon Herrmann ( herrmann aT interactive-instruments doT de )
+ */
+public final class QueryParameters {
+
+    private static final String AMP_ENTITY = "&amp;";
+
+    private final String baseUrl;
+    // names of the first occurrences, ordered
+    private final String[] names;
+    // values of the names, at the same index
+    private final List<List<String>> values;
+    private String canonical;
+    private int hash;
+
+    /**
+     * Receives the parameters of a query
+     */
+    @FunctionalInterface
+    interface ParameterConsumer {
+
+        /**
+         * @param query
+         *            the query
+         * @param start
+         *            start index of the parameter
+         * @param separator
+         *            index of the '=' character or -1
+         * @param end
+         *            end index of the parameter, exclusive
+         */
+        void accept(final String query, final int start, final int separator, final int end);
+    }
+
+    private QueryParameters(final String baseUrl, final String[] names, final List<List<String>> values) {
+        this.baseUrl = baseUrl;
+        this.names = names;
+        this.values = values;
+    }
+
+    /**
+     * Splits a query at '&amp;' characters and '&amp;amp;' entities. Like {@link String#split(String)}, trailing empty
+     * parameters are omitted, but an empty query is passed as one empty parameter.
+     *
+     * @param query
+     *            query without '?'
+     * @param consumer
+     *            consumer of the parameters
+     */
+    static void forEachParameter(final String query, final ParameterConsumer consumer) {
+        int end = query.length();
+        while (end > 0) {
+            if (query.startsWith(AMP_ENTITY, end - AMP_ENTITY.length())) {
+                end -= AMP_ENTITY.length();
+            } else if (query.charAt(end - 1) == '&') {
+                end--;
+            } else {
+                break;
+            }
+        }
+        if (end == 0) {
+            if (query.isEmpty()) {
+                consumer.accept(query, 0, -1, 0);
+            }
+            return;
+        }
+        int start = 0;
+        int separator = -1;
+        for (int i = 0; i < end; i++) {
+            final char c = query.charAt(i);
+            if (c == '&') {
+                consumer.accept(query, start, separator, i);
+                i += query.startsWith(AMP_ENTITY, i) ? AMP_ENTITY.length() - 1 : 0;
+                start = i + 1;
+                separator = -1;
+            } else if (c == '=' && separator == -1) {
+                separator = i;
+            }
+        }
+        consumer.accept(query, start, separator, end);
+    }
+
+    /**
+     * Parses the query parameters of an URL. The URL is decoded with {@link UriUtils#ensureUrlDecoded(String)}.
+     *
+     * @param url
+     *            URL
+     * @return immutable view of the parameters
+     */
+    @SuppressWarnings("unchecked")
+    public static QueryParameters parse(final String url) {
+        final String baseUrl = UriUtils.withoutQueryParameters(url);
+        final String decodedUrl = UriUtils.ensureUrlDecoded(url);
+        final int paramIndex = decodedUrl.indexOf('?');
+        if (paramIndex == -1 || paramIndex == decodedUrl.length() - 1) {
+            return new QueryParameters(baseUrl, new String[0], Collections.emptyList());
+        }
+        final String query = decodedUrl.substring(paramIndex + 1);
+        final List<String> parsedNames = new ArrayList<>();
+        final List<String> parsedValues = new ArrayList<>();
+        forEachParameter(query, (q, start, separator, end) -> {
+            if (separator == -1) {
+                parsedNames.add(q.substring(start, end));
+                parsedValues.add("");
+            } else {
+                parsedNames.add(q.substring(start, separator));
+                parsedValues.add(q.substring(separator + 1, end));
+            }
+        });
+
+        // stable sort of the indices by name
+        final Integer[] order = new Integer[parsedNames.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (i1, i2) -> String.CASE_INSENSITIVE_ORDER.compare(parsedNames.get(i1), parsedNames.get(i2)));
+
+        final List<String> names = new ArrayList<>(order.length);
+        final List<List<String>> values = new ArrayList<>(order.length);
+        for (int i = 0; i < order.length;) {
+            final String name = parsedNames.get(order[i]);
+            int groupEnd = i + 1;
+            while (groupEnd < order.length &&
+                    String.CASE_INSENSITIVE_ORDER.compare(name, parsedNames.get(order[groupEnd])) == 0) {
+                groupEnd++;
+            }
+            if (groupEnd - i == 1) {
+                values.add(Collections.singletonList(parsedValues.get(order[i])));
+            } else {
+                final String[] group = new String[groupEnd - i];
+                for (int g = 0; g < group.length; g++) {
+                    group[g] = parsedValues.get(order[i + g]);
+                }
+                values.add(Collections.unmodifiableList(Arrays.asList(group)));
+            }
+            names.add(name);
+            i = groupEnd;
+        }
+        return new QueryParameters(baseUrl, names.toArray(new String[names.size()]), values);
+    }
+
+    /**
+     * Parses the query parameters of an URI
+     *
+     * @param uri
+     *            URI
+     * @return immutable view of the parameters
+     */
+    public static QueryParameters parse(final URI uri) {
+        return parse(uri.toString());
+    }
+
+    /**
+     * Returns the URL without the query
+     *
+     * @return URL without query
+     */
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    public boolean isEmpty() {
+        return names.length == 0;
+    }
+
+    /**
+     * Returns the name of the parameter at an index, as it was first used in the URL
+     *
+     * @param index
+     *            index of the parameter
+     * @return parameter name
+     */
+    public String getName(final int index) {
+        return names[index];
+    }
+
+    /**
+     * Returns the values of the parameter at an index
+     *
+     * @param index
+     *            index of the parameter
+     * @return unmodifiable list of values
+     */
+    public List<String> getValues(final int index) {
+        return values.get(index);
+    }
+
+    private int indexOf(final String name) {
+        return Arrays.binarySearch(names, name, String.CASE_INSENSITIVE_ORDER);
+    }
+
+    public boolean contains(final String name) {
+        return indexOf(name) >= 0;
+    }
+
+    /**
+     * Returns the values of a parameter
+     *
+     * @param name
+     *            case-insensitive parameter name
+     * @return unmodifiable list of values or null if the parameter does not exist
+     */
+    public List<String> get(final String name) {
+        final int index = indexOf(name);
+        return index >= 0 ? values.get(index) : null;
+    }
+
+    /**
+     * Returns the first value of a parameter
+     *
+     * @param name
+     *            case-insensitive parameter name
+     * @return value or null if the parameter does not exist
+     */
+    public String getFirst(final String name) {
+        final int index = indexOf(name);
+        return index >= 0 ? values.get(index).get(0) : null;
+    }
+
+    /**
+     * Returns the URL with the first value of each parameter, ordered by parameter names. Values are encoded if they
+     * contain unsafe characters.
+     *
+     * @param keysUpperCase
+     *            if set to true the parameter names are returned upper case
+     * @return URL
+     */
+    public String toUrl(final boolean keysUpperCase) {
+        if (names.length == 0) {
+            return baseUrl;
+        }
+        final StringBuilder url = new StringBuilder(baseUrl.length() + names.length * 16).append(baseUrl);
+        for (int i = 0; i < names.length; i++) {
+            appendParameter(url.append(i == 0 ? '?' : '&'), names[i], values.get(i).get(0), keysUpperCase);
+        }
+        return url.toString();
+    }
+
+    private static void appendParameter(final StringBuilder url, final String name, final String value,
+            final boolean keysUpperCase) {
+        url.append(keysUpperCase ? name.toUpperCase(Locale.ENGLISH) : name).append('=');
+        if (UriUtils.containsUnsafeChars(value)) {
+            try {
+                url.append(URLEncoder.encode(value, "UTF-8"));
+            } catch (final UnsupportedEncodingException e) {
+                throw new IllegalStateException(e);
+            }
+        } else {
+            url.append(value);
+        }
+    }
+
+    /**
+     * Returns the canonical form: the URL with upper case parameter names, ordered by name, and all values
+     *
+     * @return canonical URL
+     */
+    public String toCanonicalString() {
+        String c = canonical;
+        if (c == null) {
+            final StringBuilder url = new StringBuilder(baseUrl.length() + names.length * 16).append(baseUrl);
+            char separator = '?';
+            for (int i = 0; i < names.length; i++) {
+                for (final String value : values.get(i)) {
+                    appendParameter(url.append(separator), names[i], value, true);
+                    separator = '&';
+                }
+            }
+            c = url.toString();
+            canonical = c;
+        }
+        return c;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof QueryParameters)) {
+            return false;
+        }
+        final QueryParameters that = (QueryParameters) o;
+        return hashCode() == that.hashCode() && toCanonicalString().equals(that.toCanonicalString());
+    }
+
+    @Override
+    public int hashCode() {
+        int h = hash;
+        if (h == 0) {
+            h = toCanonicalString().hashCode();
+            hash = h;
+        }
+        return h;
+    }
+
+    @Override
+    public String toString() {
+        return toCanonicalString();
+    }
+}
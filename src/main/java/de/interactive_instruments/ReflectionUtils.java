@@ -19,12 +19,22 @@
  */
 package de.interactive_instruments;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
-import java.util.Arrays;
-import java.util.LinkedList;
-import java.util.List;
+import java.lang.reflect.Modifier;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import de.interactive_instruments.exceptions.ExcUtils;
 
 /**
+ * Reflection helpers.
+ *
+ * The fields of a class, the result of {@link #isHashable(Class)} and the handles that are used to set fields are
+ * computed once per class and cached.
  *
  * @author Jon Herrmann ( herrmann aT interactive-instruments doT de )
  */
@@ -34,23 +44,90 @@ public class ReflectionUtils {
 
     }
 
-    public static List<Field> getFieldsAndSuperFields(final Class<?> clasz) {
-        final List<Field> fields = new LinkedList<>();
-        fields.addAll(Arrays.asList(clasz.getDeclaredFields()));
-        final Class<?> superClass = clasz.getSuperclass();
-        if (superClass != null) {
-            getAllFields(fields, superClass);
+    private static final class FieldSetter {
+        private final Field field;
+        private final MethodHandle setter;
+
+        private FieldSetter(final Field field) {
+            field.setAccessible(true);
+            this.field = field;
+            MethodHandle handle;
+            try {
+                handle = MethodHandles.lookup().unreflectSetter(field);
+                handle = (Modifier.isStatic(field.getModifiers()) ? MethodHandles.dropArguments(handle, 0, Object.class)
+                        : handle).asType(MethodType.methodType(void.class, Object.class, Object.class));
+            } catch (final IllegalAccessException e) {
+                // final fields can not be set with a handle on Java 8
+                handle = null;
+            }
+            this.setter = handle;
+        }
+
+        private void set(final Object object, final Object value) throws Throwable {
+            if (setter != null) {
+                setter.invokeExact(object, value);
+            } else {
+                field.set(object, value);
+            }
+        }
+    }
+
+    private static final class ClassMetadata {
+        private final Class<?> type;
+        private final List<Field> fields;
+        private final boolean hashable;
+        private final ConcurrentMap<String, Optional<FieldSetter>> setters = new ConcurrentHashMap<>();
+
+        private ClassMetadata(final Class<?> type) {
+            this.type = type;
+            final List<Field> allFields = new ArrayList<>(Arrays.asList(type.getDeclaredFields()));
+            final Class<?> superClass = type.getSuperclass();
+            if (superClass != null) {
+                allFields.addAll(metadata.get(superClass).fields);
+            }
+            this.fields = Collections.unmodifiableList(allFields);
+            boolean objectMethods;
+            try {
+                objectMethods = Object.class == type.getMethod("hashCode").getDeclaringClass() &&
+                        Object.class == type.getMethod("equals", Object.class).getDeclaringClass();
+            } catch (final NoSuchMethodException e) {
+                objectMethods = false;
+            }
+            this.hashable = objectMethods;
+        }
+
+        private FieldSetter setter(final String fieldName) {
+            return setters.computeIfAbsent(fieldName, name -> {
+                for (Class<?> clazz = type; clazz != null; clazz = clazz.getSuperclass()) {
+                    try {
+                        return Optional.of(new FieldSetter(clazz.getDeclaredField(name)));
+                    } catch (final NoSuchFieldException e) {
+                        ExcUtils.suppress(e);
+                    } catch (final Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+                return Optional.empty();
+            }).orElse(null);
         }
-        return fields;
     }
 
-    private static List<Field> getAllFields(final List<Field> fields, Class<?> clasz) {
-        fields.addAll(Arrays.asList(clasz.getDeclaredFields()));
-        final Class<?> superClass = clasz.getSuperclass();
-        if (superClass != null) {
-            return getAllFields(fields, superClass);
+    private static final ClassValue<ClassMetadata> metadata = new ClassValue<ClassMetadata>() {
+        @Override
+        protected ClassMetadata computeValue(final Class<?> type) {
+            return new ClassMetadata(type);
         }
-        return fields;
+    };
+
+    /**
+     * Returns the declared fields of a class and its super classes
+     *
+     * @param clasz
+     *            the Class to analyze
+     * @return a new list with the fields of the class, followed by the fields of the super classes
+     */
+    public static List<Field> getFieldsAndSuperFields(final Class<?> clasz) {
+        return new ArrayList<>(metadata.get(clasz).fields);
     }
 
     /**
@@ -62,28 +139,21 @@ public class ReflectionUtils {
      * @return true if equals and hashCode are overridden
      */
     public static boolean isHashable(final Class clasz) {
-        try {
-            return Object.class == clasz.getMethod("hashCode").getDeclaringClass() &&
-                    Object.class == clasz.getMethod("equals", Object.class).getDeclaringClass();
-        } catch (final NoSuchMethodException e) {
-            return false;
-        }
+        return metadata.get(clasz).hashable;
     }
 
     public static boolean setObjectField(final Object object, final String fieldName, final Object fieldValue) {
-        Class<?> clazz = object.getClass();
-        while (clazz != null) {
-            try {
-                final Field field = clazz.getDeclaredField(fieldName);
-                field.setAccessible(true);
-                field.set(object, fieldValue);
-                return true;
-            } catch (NoSuchFieldException e) {
-                clazz = clazz.getSuperclass();
-            } catch (Exception e) {
-                throw new IllegalStateException(e);
-            }
+        final FieldSetter fieldSetter = metadata.get(object.getClass()).setter(fieldName);
+        if (fieldSetter == null) {
+            return false;
+        }
+        try {
+            fieldSetter.set(object, fieldValue);
+            return true;
+        } catch (final Error e) {
+            throw e;
+        } catch (final Throwable e) {
+            throw new IllegalStateException(e);
         }
-        return false;
     }
 }
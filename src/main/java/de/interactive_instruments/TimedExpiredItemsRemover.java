@@ -19,20 +19,25 @@
  */
 package de.interactive_instruments;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.TimerTask;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
+ * A TimerTask that removes the expired items of all added holders in one run. Holders may be added and removed
+ * concurrently, an exception thrown by one holder does not prevent the other holders from being invoked.
+ *
+ * Use the {@link ExpirationScheduler} to invoke each holder with its own cadence.
+ *
  * @author Jon Herrmann ( herrmann aT interactive-instruments doT de )
  */
 public class TimedExpiredItemsRemover extends TimerTask {
 
-    private final List<ExpItemHldRemTimes> holders = new ArrayList<>();
+    private final List<ExpItemHldRemTimes> holders = new CopyOnWriteArrayList<>();
     private static final Logger logger = LoggerFactory.getLogger(TimedExpiredItemsRemover.class);
 
     private static class ExpItemHldRemTimes {
@@ -49,12 +54,12 @@ public class TimedExpiredItemsRemover extends TimerTask {
 
     @Override
     public void run() {
-        try {
-            for (final ExpItemHldRemTimes e : holders) {
+        for (final ExpItemHldRemTimes e : holders) {
+            try {
                 e.holder.removeExpiredItems(e.maxTime, e.timeUnit);
+            } catch (final Exception ex) {
+                logger.error("Expiration Item Holder threw exception: ", ex);
             }
-        } catch (final Exception e) {
-            logger.error("Expiration Item Holder threw exception: ", e);
         }
     }
 
@@ -64,4 +69,8 @@ public class TimedExpiredItemsRemover extends TimerTask {
         }
         holders.add(new ExpItemHldRemTimes(holder, maxTime, unit));
     }
+
+    public boolean removeExpirationItemHolder(ExpirationItemHolder holder) {
+        return holders.removeIf(e -> e.holder == holder);
+    }
 }
@@ -20,11 +20,16 @@
 package de.interactive_instruments;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.HttpURLConnection;
 import java.net.ProtocolException;
 import java.net.URI;
 
 /**
+ * Checks a single resource for modifications.
+ *
+ * Use the {@link UriModificationMonitor} to watch many resources concurrently.
+ *
  * @author Jon Herrmann ( herrmann aT interactive-instruments doT de )
  */
 public class UriModificationCheck {
@@ -49,7 +54,7 @@ public class UriModificationCheck {
             connectionWithHead.setRequestMethod("HEAD");
             connectionWithHead.setInstanceFollowRedirects(true);
             final int responseCodeHead = connectionWithHead.getResponseCode();
-            if (200 >= responseCodeHead && responseCodeHead < 400) {
+            if (responseCodeHead >= 200 && responseCodeHead < 400) {
                 final String lastModified = connectionWithHead.getHeaderField("Last-Modified");
                 if (!SUtils.isNullOrEmpty(lastModified)) {
                     useHeadMethod = true;
@@ -72,25 +77,34 @@ public class UriModificationCheck {
             connectionWithGet.setReadTimeout(TIMEOUT);
             connectionWithGet.setRequestMethod("GET");
             connectionWithGet.setInstanceFollowRedirects(true);
-            final int responseCodeGet = connectionWithHead.getResponseCode();
-            if (200 >= responseCodeGet && responseCodeGet < 400) {
+            final int responseCodeGet = connectionWithGet.getResponseCode();
+            if (responseCodeGet >= 200 && responseCodeGet < 400) {
                 final String lastModified = connectionWithGet.getHeaderField("Last-Modified");
                 if (!SUtils.isNullOrEmpty(lastModified)) {
                     type = 1;
                     expected = lastModified;
+                    UriUtils.disconnectQuietly(connectionWithGet);
                     return;
                 } else {
                     final String eTag = connectionWithGet.getHeaderField("ETag");
                     if (!SUtils.isNullOrEmpty(eTag)) {
                         type = 2;
                         expected = eTag;
+                        UriUtils.disconnectQuietly(connectionWithGet);
                         return;
                     }
                 }
             }
             type = 3;
-            final byte[] bytes = UriUtils.toByteArray(uri, credentials);
-            expected = MdUtils.checksumAsHexStr(bytes);
+            // hash the body of the GET request without buffering it
+            final MdUtils.FnvChecksum checksum = new MdUtils.FnvChecksum();
+            try (final InputStream inputStream = connectionWithGet.getInputStream()) {
+                final byte[] buffer = new byte[8192];
+                for (int read; (read = inputStream.read(buffer)) != -1;) {
+                    checksum.update(buffer, 0, read);
+                }
+            }
+            expected = checksum.toString();
         } catch (ProtocolException e) {
             UriUtils.disconnectQuietly(connectionWithHead);
             UriUtils.disconnectQuietly(connectionWithGet);
@@ -113,6 +127,7 @@ public class UriModificationCheck {
             if (actual.equals(expected)) {
                 return null;
             }
+            expected = actual;
             return bytes;
         } else {
             final HttpURLConnection connection = (HttpURLConnection) UriUtils.openConnection(
@@ -124,7 +139,7 @@ public class UriModificationCheck {
                 connection.setRequestMethod("GET");
             }
             if (type == 1) {
-                connection.setRequestProperty("If-Unmodified-Since", expected);
+                connection.setRequestProperty("If-Modified-Since", expected);
             } else {
                 // type 2
                 connection.setRequestProperty("If-None-Match", expected);
@@ -142,9 +157,17 @@ public class UriModificationCheck {
                     actual = connection.getHeaderField("ETag");
                 }
                 if (!SUtils.isNullOrEmpty(actual) && actual.equals(expected)) {
+                    UriUtils.disconnectQuietly(connection);
                     return null;
                 }
-                final byte[] bytes = UriUtils.toByteArray(connection);
+                final byte[] bytes;
+                if (useHeadMethod) {
+                    // a HEAD response has no body
+                    UriUtils.disconnectQuietly(connection);
+                    bytes = UriUtils.toByteArray(uri, credentials);
+                } else {
+                    bytes = UriUtils.toByteArray(connection);
+                }
                 expected = actual;
                 return bytes;
             } else {
@@ -0,0 +1,496 @@
+/**
+ * Copyright 2017-2019 European Union, interactive instruments GmbH
+ * Licensed under the EUPL, Version 1.2 or - as soon they will be approved by
+ * the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ *
+ * This work was supported by the EU Interoperability Solutions for
+ * European Public Administrations Programme (http://ec.europa.eu/isa)
+ * through Action 1.17: A Reusable INSPIRE Reference Platform (ARE3NA).
+ */
+package de.interactive_instruments;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.interactive_instruments.exceptions.ExcUtils;
+import de.interactive_instruments.properties.PropertyUtils;
+
+/**
+ * Polls many resources concurrently and informs listeners about modified resources.
+ *
+ * Each resource is checked with a conditional GET request that sends the last known ETag as {@code If-None-Match}
+ * and the last known modification date as {@code If-Modified-Since} header. If the server answers with a 304, or
+ * with unchanged validators, the body is not read. For resources without validators the body is streamed through a
+ * {@link MdUtils.FnvChecksum} and only the hash is kept, a changed Content-Length is detected without reading the
+ * body at all. The first check of a resource only records its state.
+ *
+ * Checks of a resource never run concurrently. The poll intervals are jittered by {@code ii.urimonitor.jitter}
+ * percent (default 10) so that thousands of registered resources do not hit the servers at the same time. Requests
+ * to the same host are spaced by at least {@code ii.urimonitor.host.interval} milliseconds (default 250): a check
+ * that would exceed the rate of a host is rescheduled to the next free slot of that host, the threads are never
+ * blocked. The number of polling threads can be set with {@code ii.urimonitor.threads} (default 16).
+ *
+ * The events are delivered on the polling threads in the order in which the changes were detected for a resource.
+ * A {@link EventKind#FAILED} event is only fired when a resource becomes unreachable, not for every failed check.
+ *
+ * @author Jon Herrmann ( herrmann aT interactive-instruments doT de )
+ */
+public final class UriModificationMonitor implements Releasable {
+
+    private static final Logger logger = LoggerFactory.getLogger(UriModificationMonitor.class);
+
+    private static final int TIMEOUT = 60000;
+
+    private final ScheduledThreadPoolExecutor executor;
+    private final long hostIntervalNanos;
+    private final double jitter;
+    private final ConcurrentMap<URI, Registration> registrations = new ConcurrentHashMap<>();
+    // next free request slot per host, in System.nanoTime()
+    private final ConcurrentMap<String, AtomicLong> hostSlots = new ConcurrentHashMap<>();
+    private final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    public enum EventKind {
+        /**
+         * The resource has been modified since the last check
+         */
+        MODIFIED,
+
+        /**
+         * The resource could not be accessed after it had been accessible
+         */
+        FAILED
+    }
+
+    /**
+     * A detected change of a monitored resource
+     */
+    public static final class Event {
+        private final URI uri;
+        private final EventKind kind;
+        private final long timestamp;
+        private final IOException cause;
+
+        private Event(final URI uri, final EventKind kind, final IOException cause) {
+            this.uri = uri;
+            this.kind = kind;
+            this.timestamp = System.currentTimeMillis();
+            this.cause = cause;
+        }
+
+        public URI getUri() {
+            return uri;
+        }
+
+        public EventKind getKind() {
+            return kind;
+        }
+
+        /**
+         * Time of the detection in milliseconds since the epoch
+         *
+         * @return timestamp
+         */
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        /**
+         * Returns the exception of a {@link EventKind#FAILED} event
+         *
+         * @return exception or null
+         */
+        public IOException getCause() {
+            return cause;
+        }
+
+        @Override
+        public String toString() {
+            return "Event{" + "uri=" + uri + ", kind=" + kind + ", timestamp=" + timestamp + '}';
+        }
+    }
+
+    /**
+     * Informs the implementing client about modified resources
+     */
+    @FunctionalInterface
+    public interface Listener {
+
+        /**
+         * Invoked on a polling thread, implementations should return quickly.
+         *
+         * @param event
+         *            the detected change
+         */
+        void uriChanged(final Event event);
+    }
+
+    /**
+     * State and handle of a monitored resource
+     */
+    public final class Registration implements Releasable {
+        private final URI uri;
+        private final Credentials credentials;
+        private final long intervalNanos;
+        private final AtomicLong checks = new AtomicLong();
+        private final AtomicLong modifications = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+        private volatile ScheduledFuture<?> future;
+        private volatile boolean released;
+
+        // only accessed by the check, which never runs concurrently
+        private boolean initialized;
+        private boolean failing;
+        private String eTag;
+        private String lastModified;
+        private long contentLength = -1;
+        private long hash;
+        // false if the last check detected a modification without reading the body
+        private boolean hashKnown;
+
+        private Registration(final URI uri, final Credentials credentials, final long intervalNanos) {
+            this.uri = uri;
+            this.credentials = credentials;
+            this.intervalNanos = intervalNanos;
+        }
+
+        private void run() {
+            if (released) {
+                return;
+            }
+            checks.incrementAndGet();
+            try {
+                final boolean modified = check();
+                failing = false;
+                if (modified) {
+                    modifications.incrementAndGet();
+                    fire(new Event(uri, EventKind.MODIFIED, null));
+                }
+            } catch (final IOException e) {
+                failures.incrementAndGet();
+                if (!failing) {
+                    failing = true;
+                    logger.warn("Checking {} for modifications failed: {}", uri, e.getMessage());
+                    fire(new Event(uri, EventKind.FAILED, e));
+                }
+            } catch (final RuntimeException e) {
+                failures.incrementAndGet();
+                logger.error("Checking {} for modifications failed: ", uri, e);
+            } finally {
+                schedule(this, jittered(intervalNanos));
+            }
+        }
+
+        private boolean check() throws IOException {
+            if (UriUtils.isFile(uri)) {
+                return update(null, Long.toString(Files.getLastModifiedTime(Paths.get(uri)).toMillis()),
+                        Files.size(Paths.get(uri)), 0, false);
+            }
+            final URLConnection c = UriUtils.openConnection(uri, credentials, TIMEOUT);
+            if (!(c instanceof HttpURLConnection)) {
+                try (final InputStream inputStream = c.getInputStream()) {
+                    return update(null, null, -1, hash(inputStream), true);
+                }
+            }
+            final HttpURLConnection connection = (HttpURLConnection) c;
+            try {
+                connection.setInstanceFollowRedirects(true);
+                if (eTag != null) {
+                    connection.setRequestProperty("If-None-Match", eTag);
+                }
+                if (lastModified != null) {
+                    connection.setRequestProperty("If-Modified-Since", lastModified);
+                }
+                final int responseCode = connection.getResponseCode();
+                if (responseCode == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                    return false;
+                } else if (responseCode < 200 || responseCode >= 300) {
+                    throw new IOException("Server returned HTTP response code '" + responseCode + "'");
+                }
+                final String actualETag = connection.getHeaderField("ETag");
+                final String actualLastModified = connection.getHeaderField("Last-Modified");
+                final long actualLength = connection.getContentLengthLong();
+                if (!SUtils.isNullOrEmpty(actualETag) || !SUtils.isNullOrEmpty(actualLastModified)) {
+                    // the validators are sufficient, the body is not read
+                    return update(actualETag, actualLastModified, actualLength, 0, false);
+                }
+                if (initialized && actualLength != -1 && contentLength != -1 && actualLength != contentLength) {
+                    // modified, the hash of the new content is established by the next check
+                    return update(null, null, actualLength, 0, false);
+                }
+                try (final InputStream inputStream = connection.getInputStream()) {
+                    return update(null, null, actualLength, hash(inputStream), true);
+                }
+            } finally {
+                UriUtils.disconnectQuietly(connection);
+            }
+        }
+
+        private boolean update(final String actualETag, final String actualLastModified, final long actualLength,
+                final long actualHash, final boolean actualHashKnown) {
+            final boolean validators = actualETag != null || actualLastModified != null;
+            final boolean lengthChanged = actualLength != -1 && contentLength != -1 && actualLength != contentLength;
+            // a changed length is a modification, hashes are only compared if both are known
+            final boolean modified = initialized && (!Objects.equals(eTag, actualETag)
+                    || !Objects.equals(lastModified, actualLastModified)
+                    || (!validators && (lengthChanged || (hashKnown && actualHashKnown && hash != actualHash))));
+            initialized = true;
+            eTag = actualETag;
+            lastModified = actualLastModified;
+            contentLength = actualLength;
+            hash = actualHash;
+            hashKnown = actualHashKnown;
+            return modified;
+        }
+
+        public URI getUri() {
+            return uri;
+        }
+
+        /**
+         * Number of checks
+         *
+         * @return number of checks
+         */
+        public long getChecks() {
+            return checks.get();
+        }
+
+        /**
+         * Number of detected modifications
+         *
+         * @return number of modifications
+         */
+        public long getModifications() {
+            return modifications.get();
+        }
+
+        /**
+         * Number of failed checks
+         *
+         * @return number of failures
+         */
+        public long getFailures() {
+            return failures.get();
+        }
+
+        /**
+         * Stops monitoring the resource
+         */
+        @Override
+        public void release() {
+            released = true;
+            registrations.remove(uri, this);
+            final ScheduledFuture<?> f = future;
+            if (f != null) {
+                f.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * Creates a monitor with the settings of the system properties
+     */
+    public UriModificationMonitor() {
+        this(PropertyUtils.getenvOrProperty("ii.urimonitor.threads", 16),
+                PropertyUtils.getenvOrProperty("ii.urimonitor.host.interval", 250L), TimeUnit.MILLISECONDS,
+                PropertyUtils.getenvOrProperty("ii.urimonitor.jitter", 10) / 100d);
+    }
+
+    /**
+     * Creates a new monitor
+     *
+     * @param threads
+     *            number of polling threads
+     * @param hostInterval
+     *            min time between two requests to the same host
+     * @param unit
+     *            TimeUnit of the hostInterval
+     * @param jitter
+     *            max relative deviation of the poll intervals, between 0 and 1
+     */
+    public UriModificationMonitor(final int threads, final long hostInterval, final TimeUnit unit, final double jitter) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Invalid number of threads: " + threads);
+        }
+        if (hostInterval < 0) {
+            throw new IllegalArgumentException("Invalid host interval: " + hostInterval);
+        }
+        if (jitter < 0 || jitter > 1) {
+            throw new IllegalArgumentException("Invalid jitter: " + jitter);
+        }
+        this.hostIntervalNanos = unit.toNanos(hostInterval);
+        this.jitter = jitter;
+        final AtomicInteger threadCounter = new AtomicInteger();
+        this.executor = new ScheduledThreadPoolExecutor(threads, r -> {
+            final Thread thread = new Thread(r, "UriModificationMonitor-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.executor.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Adds a listener that is informed about all changes
+     *
+     * @param listener
+     *            listener to add
+     */
+    public void addListener(final Listener listener) {
+        listeners.add(Objects.requireNonNull(listener));
+    }
+
+    public void removeListener(final Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Starts monitoring a resource. The first check is made after a random delay within the interval.
+     *
+     * @param uri
+     *            URI of the resource
+     * @param credentials
+     *            credentials or null
+     * @param interval
+     *            poll interval
+     * @param unit
+     *            TimeUnit of the interval
+     * @return the registration of the resource
+     * @throws IllegalStateException
+     *             if the URI is already monitored
+     */
+    public Registration register(final URI uri, final Credentials credentials, final long interval,
+            final TimeUnit unit) {
+        UriUtils.expectAbsolute(uri);
+        if (interval <= 0) {
+            throw new IllegalArgumentException("Invalid interval: " + interval);
+        }
+        final Registration registration = new Registration(uri, credentials, unit.toNanos(interval));
+        if (registrations.putIfAbsent(uri, registration) != null) {
+            throw new IllegalStateException("URI is already monitored: " + uri);
+        }
+        schedule(registration, (long) (ThreadLocalRandom.current().nextDouble() * registration.intervalNanos));
+        return registration;
+    }
+
+    /**
+     * Stops monitoring a resource
+     *
+     * @param uri
+     *            URI of the resource
+     * @return true if the resource was monitored
+     */
+    public boolean unregister(final URI uri) {
+        final Registration registration = registrations.get(uri);
+        if (registration != null) {
+            registration.release();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the registration of a monitored resource
+     *
+     * @param uri
+     *            URI of the resource
+     * @return registration or null
+     */
+    public Registration getRegistration(final URI uri) {
+        return registrations.get(uri);
+    }
+
+    /**
+     * Number of monitored resources
+     *
+     * @return number of resources
+     */
+    public int size() {
+        return registrations.size();
+    }
+
+    private long jittered(final long intervalNanos) {
+        if (jitter == 0) {
+            return intervalNanos;
+        }
+        return (long) (intervalNanos * (1 + jitter * (ThreadLocalRandom.current().nextDouble() * 2 - 1)));
+    }
+
+    /**
+     * Reserves the next free slot of the host and schedules the check
+     */
+    private void schedule(final Registration registration, final long delayNanos) {
+        if (registration.released || executor.isShutdown()) {
+            return;
+        }
+        final long wanted = System.nanoTime() + delayNanos;
+        long at = wanted;
+        final String host = registration.uri.getHost();
+        if (host != null && hostIntervalNanos > 0) {
+            final AtomicLong next = hostSlots.computeIfAbsent(host.toLowerCase(Locale.ENGLISH),
+                    h -> new AtomicLong(wanted));
+            for (long slot = next.get();; slot = next.get()) {
+                final long reserved = slot - wanted > 0 ? slot : wanted;
+                if (next.compareAndSet(slot, reserved + hostIntervalNanos)) {
+                    at = reserved;
+                    break;
+                }
+            }
+        }
+        try {
+            registration.future = executor.schedule(registration::run, at - System.nanoTime(), TimeUnit.NANOSECONDS);
+        } catch (final RejectedExecutionException e) {
+            ExcUtils.suppress(e);
+        }
+    }
+
+    private void fire(final Event event) {
+        for (final Listener listener : listeners) {
+            try {
+                listener.uriChanged(event);
+            } catch (final RuntimeException e) {
+                logger.error("Listener threw exception: ", e);
+            }
+        }
+    }
+
+    private static long hash(final InputStream inputStream) throws IOException {
+        final MdUtils.FnvChecksum checksum = new MdUtils.FnvChecksum();
+        final byte[] buffer = new byte[8192];
+        for (int read; (read = inputStream.read(buffer)) != -1;) {
+            checksum.update(buffer, 0, read);
+        }
+        return checksum.getHash();
+    }
+
+    /**
+     * Stops monitoring all resources
+     */
+    @Override
+    public void release() {
+        registrations.values().forEach(Registration::release);
+        executor.shutdownNow();
+    }
+}
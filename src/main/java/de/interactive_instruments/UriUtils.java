@@ -28,6 +28,7 @@ import java.nio.file.FileVisitOption;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.zip.GZIPInputStream;
@@ -64,13 +65,6 @@ public final class UriUtils {
 
     private static final Pattern CONTENT_DISPOSITION_PATTERN = Pattern.compile("attachment;\\s*filename\\s*=\\s*\"([^\"]*)\"");
 
-    private static Pattern privateNets = Pattern.compile(
-            "(^127\\.)|"
-                    + "(^172\\.1[6-9]\\.)|(^172\\.2[0-9]\\.)|(^172\\.3[0-1]\\.)|"
-                    + "(^192\\.168\\.)|"
-                    + "(^10\\.)|"
-                    + "(^(0{0,4}:){1,7}(0{0,3}1$))");
-
     // without +
     private static String unsafeChars = " '!?()*$,/:;@<>#%[]";
 
@@ -314,41 +308,17 @@ public final class UriUtils {
      * @return
      */
     public static SortedMap<String, List<String>> getQueryParameters(final String url, final boolean keysUpperCase) {
-        final String[] urlParts = ensureUrlDecoded(url).split("\\?", 2);
-        if (urlParts.length > 1) {
-            final String query = urlParts[1];
-            final String[] split = query.split("&amp;|&");
-            if (!(split.length == 1 && SUtils.isNullOrEmpty(split[0]))) {
-                final SortedMap<String, List<String>> params = new TreeMap<>();
-                for (int i = 0, splitLength = split.length; i < splitLength; i++) {
-                    final String param = split[i];
-                    final String[] pair = param.split("=", 2);
-                    final String key;
-                    if (keysUpperCase) {
-                        key = pair[0].toUpperCase(Locale.ENGLISH);
-                    } else {
-                        key = pair[0];
-                    }
-                    final String value;
-                    if (pair.length > 1) {
-                        value = pair[1];
-                    } else {
-                        value = "";
-                    }
-                    final List<String> values = params.get(key);
-                    if (values == null) {
-                        params.put(key, new ArrayList<String>() {
-                            {
-                                add(value);
-                            }
-                        });
-                    } else {
-                        values.add(value);
-                    }
-
-                }
-                return params;
-            }
+        final String decodedUrl = ensureUrlDecoded(url);
+        final int paramIndex = decodedUrl.indexOf('?');
+        if (paramIndex != -1 && paramIndex < decodedUrl.length() - 1) {
+            final SortedMap<String, List<String>> params = new TreeMap<>();
+            QueryParameters.forEachParameter(decodedUrl.substring(paramIndex + 1), (query, start, separator, end) -> {
+                final String name = query.substring(start, separator != -1 ? separator : end);
+                final String key = keysUpperCase ? name.toUpperCase(Locale.ENGLISH) : name;
+                final String value = separator != -1 ? query.substring(separator + 1, end) : "";
+                params.computeIfAbsent(key, k -> new ArrayList<>(1)).add(value);
+            });
+            return params;
         }
         return Collections.emptySortedMap();
     }
@@ -459,7 +429,7 @@ public final class UriUtils {
     }
 
     public static String sortQueryParameters(final String url, final boolean keysUpperCase) {
-        return withQueryParameters(url, toSingleQueryParameterValues(getQueryParameters(url, keysUpperCase)), keysUpperCase);
+        return QueryParameters.parse(url).toUrl(keysUpperCase);
     }
 
     public static URI sortQueryParameters(final URI url) {
@@ -467,8 +437,7 @@ public final class UriUtils {
     }
 
     public static URI sortQueryParameters(final URI uri, final boolean keysUpperCase) {
-        return URI.create(withQueryParameters(uri.toString(),
-                toSingleQueryParameterValues(getQueryParameters(uri, keysUpperCase)), keysUpperCase));
+        return URI.create(QueryParameters.parse(uri).toUrl(keysUpperCase));
     }
 
     public static boolean isFile(final URI uri) {
@@ -852,9 +821,30 @@ public final class UriUtils {
         }
     }
 
+    /**
+     * Checks if a host is in a private, loopback or link-local network. Resolved names are cached.
+     *
+     * @param host
+     *            host name or IP address
+     * @return true if one of the addresses of the host is in a private network
+     * @throws UnknownHostException
+     *             if the host name can not be resolved
+     * @see IpRanges#PRIVATE_NETS
+     */
     public static boolean isPrivateNet(final String host) throws UnknownHostException {
-        final String ip = InetAddress.getByName(host).getHostAddress();
-        return privateNets.matcher(ip).find();
+        return PrivateNetGuard.isPrivateNet(host);
+    }
+
+    /**
+     * Checks asynchronously if a host is in a private, loopback or link-local network. Can be used to resolve host
+     * names in advance, so that a following {@link #isPrivateNet(String)} call does not block.
+     *
+     * @param host
+     *            host name or IP address
+     * @return future that completes with the result or an UnknownHostException
+     */
+    public static CompletableFuture<Boolean> isPrivateNetAsync(final String host) {
+        return PrivateNetGuard.isPrivateNetAsync(host);
     }
 
     /**
@@ -865,7 +855,7 @@ public final class UriUtils {
      * @throws UriNotAbsoluteException
      *             if the URI has no schema set
      */
-    private static void expectAbsolute(final URI uri) {
+    static void expectAbsolute(final URI uri) {
         if (!uri.isAbsolute()) {
             throw new UriNotAbsoluteException("URI '" + uri.toString() + "' is not absolute", uri);
         }
@@ -984,6 +974,21 @@ public final class UriUtils {
             return inputStream.read();
         }
 
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            return inputStream.read(b, off, len);
+        }
+
+        @Override
+        public int available() throws IOException {
+            return inputStream.available();
+        }
+
+        @Override
+        public void close() throws IOException {
+            inputStream.close();
+        }
+
         public String getMimeType() {
             return this.connection.getContentType();
         }
@@ -1293,39 +1298,34 @@ public final class UriUtils {
      * @return
      */
     public static String ensureUrlEncodedParams(final String url) {
-        try {
-            final String decodedUrl = ensureUrlDecoded(url);
-            final int paramIndex = decodedUrl.indexOf("?");
-            if (paramIndex != -1) {
-                final StringBuilder newUrl = new StringBuilder(url.length());
-                newUrl.append(decodedUrl.substring(0, paramIndex + 1));
-                final String[] split = decodedUrl.substring(paramIndex + 1).split("&amp;|&");
-                int i = 0;
-                while (true) {
-                    final String param = split[i];
-                    final int pos = param.indexOf("=");
-                    if (pos == -1) {
-                        newUrl.append(param);
-                    } else if (pos == param.length() - 1) {
-                        newUrl.append(param);
-                        newUrl.append("=");
-                    } else {
-                        newUrl.append(param.substring(0, pos));
-                        newUrl.append("=");
-                        newUrl.append(URLEncoder.encode(param.substring(pos + 1), "UTF-8"));
-                    }
-                    if (++i < split.length) {
-                        newUrl.append("&");
-                    } else {
-                        break;
+        final String decodedUrl = ensureUrlDecoded(url);
+        final int paramIndex = decodedUrl.indexOf("?");
+        if (paramIndex != -1) {
+            final StringBuilder newUrl = new StringBuilder(url.length());
+            newUrl.append(decodedUrl, 0, paramIndex + 1);
+            final int[] count = {0};
+            QueryParameters.forEachParameter(decodedUrl.substring(paramIndex + 1), (query, start, separator, end) -> {
+                if (count[0]++ > 0) {
+                    newUrl.append('&');
+                }
+                if (separator == -1) {
+                    newUrl.append(query, start, end);
+                } else if (separator == end - 1) {
+                    newUrl.append(query, start, end);
+                    newUrl.append("=");
+                } else {
+                    newUrl.append(query, start, separator);
+                    newUrl.append("=");
+                    try {
+                        newUrl.append(URLEncoder.encode(query.substring(separator + 1, end), "UTF-8"));
+                    } catch (final UnsupportedEncodingException e) {
+                        throw new IllegalStateException(e);
                     }
                 }
-                return newUrl.toString();
-            }
-            return url;
-        } catch (UnsupportedEncodingException e) {
-            throw new IllegalStateException(e);
+            });
+            return newUrl.toString();
         }
+        return url;
     }
 
     /**
@@ -1346,7 +1346,7 @@ public final class UriUtils {
         return (ch > 128 || ch == 0) || unsafeChars.indexOf(ch) >= 0;
     }
 
-    private static boolean containsUnsafeChars(final String str) {
+    static boolean containsUnsafeChars(final String str) {
         for (int i = 0; i < str.length(); i++) {
             if (isUnsafe(str.charAt(i))) {
                 return true;
@@ -1362,6 +1362,10 @@ public final class UriUtils {
      * @return encoded URL
      */
     public static String ensureUrlDecoded(final String url) {
+        if (url.indexOf('%') == -1 && url.indexOf('+') == -1) {
+            // nothing to decode
+            return url;
+        }
         try {
             final String decoded = URLDecoder.decode(url, "UTF-8");
             if (url.length() == decoded.length() && url.contains("+")) {
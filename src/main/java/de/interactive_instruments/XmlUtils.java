@@ -20,21 +20,40 @@
 package de.interactive_instruments;
 
 import java.io.*;
-
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.namespace.QName;
 import javax.xml.parsers.*;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.transform.Templates;
 import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerConfigurationException;
 import javax.xml.transform.TransformerException;
 import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
+import javax.xml.transform.stream.StreamSource;
 import javax.xml.xpath.XPath;
 import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathExpression;
 import javax.xml.xpath.XPathExpressionException;
 import javax.xml.xpath.XPathFactory;
 
 import org.w3c.dom.*;
 import org.xml.sax.*;
 
+import de.interactive_instruments.collections.ExpiringCache;
+import de.interactive_instruments.exceptions.ExcUtils;
+import de.interactive_instruments.xml.NamespaceHolder;
+
 /**
  * Very simple XML Utilities
  *
@@ -101,37 +120,347 @@ public final class XmlUtils {
     }
 
     public static XmlHandle newXmlHandle(final InputSource source) throws FileNotFoundException {
-        return new XmlHandle(null, source);
+        return new XmlHandle(null, null, source);
     }
 
     public static XmlHandle newXmlHandle(final XPath xpath, final InputSource source) {
-        return new XmlHandle(xpath, source);
+        return new XmlHandle(xpath, null, source);
     }
 
     public static XmlHandle newXmlHandle(final File source) throws FileNotFoundException {
-        return new XmlHandle(null, new InputSource(new FileInputStream(source)));
+        return new XmlHandle(null, null, new InputSource(new FileInputStream(source)));
     }
 
     public static XmlHandle newXmlHandle(final XPath xpath, final File source) throws FileNotFoundException {
-        return new XmlHandle(xpath, new InputSource(new FileInputStream(source)));
+        return new XmlHandle(xpath, null, new InputSource(new FileInputStream(source)));
+    }
+
+    /**
+     * Creates a handle that resolves the prefixes of the XPath expressions with a NamespaceContext, for instance a
+     * {@link de.interactive_instruments.xml.NamespaceHolder}
+     *
+     * @param namespaceContext
+     *            NamespaceContext used for compiling the expressions
+     * @param source
+     *            XML file
+     * @return XmlHandle
+     * @throws FileNotFoundException
+     *             if the file does not exist
+     */
+    public static XmlHandle newXmlHandle(final NamespaceContext namespaceContext, final File source)
+            throws FileNotFoundException {
+        return new XmlHandle(null, namespaceContext, new InputSource(new FileInputStream(source)));
+    }
+
+    public static XmlHandle newXmlHandle(final NamespaceContext namespaceContext, final InputSource source) {
+        return new XmlHandle(null, namespaceContext, source);
+    }
+
+    /**
+     * Evaluates an XPath expression on a file and returns the values of the selected nodes (see
+     * {@link #nodeValues(NodeList)}).
+     *
+     * Simple absolute paths like {@code /ns:a/ns:b/@c}, which only consist of element name or wildcard steps and an
+     * optional attribute step at the end, are evaluated while the file is streamed, without
+     * building a DOM. All other expressions are evaluated with an {@link XmlHandle}.
+     *
+     * @param namespaceContext
+     *            NamespaceContext used for resolving prefixes or null
+     * @param source
+     *            XML file
+     * @param xpathExpression
+     *            XPath expression
+     * @return values of the selected nodes
+     * @throws IOException
+     *             if the file can not be read
+     * @throws XPathExpressionException
+     *             if the expression is invalid or the file can not be parsed
+     */
+    public static String[] evaluateValues(final NamespaceContext namespaceContext, final File source,
+            final String xpathExpression) throws IOException, XPathExpressionException {
+        final SimplePath path = SimplePath.parse(xpathExpression, namespaceContext);
+        if (path == null) {
+            return newXmlHandle(namespaceContext, source).evaluateValues(xpathExpression);
+        }
+        try (final InputStream inputStream = new BufferedInputStream(new FileInputStream(source), 65536)) {
+            return path.evaluate(inputStream);
+        }
     }
 
+    /**
+     * Evaluates XPath expressions on a document that is parsed only once, when the first expression is evaluated.
+     *
+     * Compiled expressions are cached per thread, if no NamespaceContext or an immutable NamespaceHolder created with
+     * {@link de.interactive_instruments.xml.NamespaceBuilder#build()} is used. A handle is not thread-safe.
+     */
     public static class XmlHandle {
         private final XPath xpath;
-        // FIXME can only be used once! Use buffer!
-        private final InputSource source;
+        private final NamespaceContext namespaceContext;
+        private InputSource source;
+        private Document document;
 
-        XmlHandle(final XPath xpath, final InputSource source) {
-            this.xpath = xpath != null ? xpath : XPathFactory.newInstance().newXPath();
+        XmlHandle(final XPath xpath, final NamespaceContext namespaceContext, final InputSource source) {
+            this.xpath = xpath;
+            this.namespaceContext = namespaceContext;
             this.source = source;
         }
 
+        private Document document() throws XPathExpressionException {
+            if (document == null) {
+                try {
+                    document = CompiledXPaths.get().parse(source);
+                } catch (SAXException | IOException e) {
+                    throw new XPathExpressionException(e);
+                } finally {
+                    source = null;
+                }
+            }
+            return document;
+        }
+
+        private XPathExpression compile(final String xpathExpression) throws XPathExpressionException {
+            if (xpath != null) {
+                return xpath.compile(xpathExpression);
+            }
+            return CompiledXPaths.get().compile(xpathExpression, namespaceContext);
+        }
+
         public String evaluateValue(final String xpathExpression) throws XPathExpressionException {
-            return (String) xpath.evaluate(xpathExpression, source, XPathConstants.STRING);
+            return (String) compile(xpathExpression).evaluate(document(), XPathConstants.STRING);
         }
 
         public String[] evaluateValues(final String xpathExpression) throws XPathExpressionException {
-            return nodeValues((NodeList) xpath.evaluate(xpathExpression, source, XPathConstants.NODESET));
+            return nodeValues((NodeList) compile(xpathExpression).evaluate(document(), XPathConstants.NODESET));
+        }
+    }
+
+    /**
+     * Per thread cache for compiled XPath expressions and a reusable DocumentBuilder, as neither XPath objects nor
+     * DocumentBuilders are thread-safe.
+     */
+    private static final class CompiledXPaths {
+        private static final int MAX_EXPRESSIONS = 256;
+        private static final ThreadLocal<CompiledXPaths> instances = ThreadLocal.withInitial(CompiledXPaths::new);
+
+        private final XPath xpath = XPathFactory.newInstance().newXPath();
+        // the NamespaceContext of an XPath object can not be reset to null
+        private final XPath xpathWithoutNamespaces = XPathFactory.newInstance().newXPath();
+        private DocumentBuilder documentBuilder;
+        private final Map<Key, XPathExpression> expressions = new LinkedHashMap<Key, XPathExpression>(16, 0.75f,
+                true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<Key, XPathExpression> eldest) {
+                return size() > MAX_EXPRESSIONS;
+            }
+        };
+
+        private static final class Key {
+            private final String expression;
+            private final NamespaceContext namespaceContext;
+
+            private Key(final String expression, final NamespaceContext namespaceContext) {
+                this.expression = expression;
+                this.namespaceContext = namespaceContext;
+            }
+
+            @Override
+            public boolean equals(final Object o) {
+                if (!(o instanceof Key)) {
+                    return false;
+                }
+                final Key key = (Key) o;
+                // only immutable NamespaceHolders are cached, which can be compared by identity
+                return namespaceContext == key.namespaceContext && expression.equals(key.expression);
+            }
+
+            @Override
+            public int hashCode() {
+                return 31 * expression.hashCode() + System.identityHashCode(namespaceContext);
+            }
+        }
+
+        static CompiledXPaths get() {
+            return instances.get();
+        }
+
+        XPathExpression compile(final String expression, final NamespaceContext namespaceContext)
+                throws XPathExpressionException {
+            if (namespaceContext != null && !NamespaceHolder.isImmutable(namespaceContext)) {
+                // a mutable context may change, the expression is compiled but not cached
+                xpath.setNamespaceContext(namespaceContext);
+                return xpath.compile(expression);
+            }
+            final Key key = new Key(expression, namespaceContext);
+            XPathExpression compiled = expressions.get(key);
+            if (compiled == null) {
+                if (namespaceContext != null) {
+                    xpath.setNamespaceContext(namespaceContext);
+                    compiled = xpath.compile(expression);
+                } else {
+                    compiled = xpathWithoutNamespaces.compile(expression);
+                }
+                expressions.put(key, compiled);
+            }
+            return compiled;
+        }
+
+        Document parse(final InputSource source) throws SAXException, IOException {
+            if (documentBuilder == null) {
+                final DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+                factory.setNamespaceAware(true);
+                factory.setXIncludeAware(false);
+                try {
+                    factory.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
+                    documentBuilder = factory.newDocumentBuilder();
+                } catch (ParserConfigurationException e) {
+                    throw new IllegalStateException(e);
+                }
+            } else {
+                documentBuilder.reset();
+            }
+            return documentBuilder.parse(source);
+        }
+    }
+
+    /**
+     * An absolute location path which only consists of element name or wildcard steps and an optional attribute step
+     * at the end, and which can be evaluated on a stream.
+     */
+    private static final class SimplePath {
+        private static final Pattern STEP = Pattern.compile("\\*|([\\w.-]+:)?[\\w.-]+");
+        private static final XMLInputFactory inputFactory = XMLInputFactory.newFactory();
+
+        static {
+            inputFactory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+            inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+            inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        }
+
+        // null for wildcard steps
+        private final QName[] elements;
+        private final QName attribute;
+
+        private SimplePath(final QName[] elements, final QName attribute) {
+            this.elements = elements;
+            this.attribute = attribute;
+        }
+
+        /**
+         * Parses a simple path
+         *
+         * @return the path or null if the expression is not a simple path
+         */
+        static SimplePath parse(final String expression, final NamespaceContext namespaceContext)
+                throws XPathExpressionException {
+            if (expression == null || expression.length() < 2 || expression.charAt(0) != '/'
+                    || expression.charAt(1) == '/') {
+                return null;
+            }
+            final String[] steps = expression.substring(1).split("/", -1);
+            QName attribute = null;
+            int elementSteps = steps.length;
+            if (steps[steps.length - 1].startsWith("@")) {
+                final String attributeStep = steps[steps.length - 1].substring(1);
+                if (attributeStep.equals("*") || !STEP.matcher(attributeStep).matches()) {
+                    return null;
+                }
+                attribute = qname(attributeStep, namespaceContext);
+                elementSteps--;
+            }
+            if (elementSteps == 0) {
+                return null;
+            }
+            final QName[] elements = new QName[elementSteps];
+            for (int i = 0; i < elementSteps; i++) {
+                if (!STEP.matcher(steps[i]).matches()) {
+                    return null;
+                }
+                elements[i] = steps[i].equals("*") ? null : qname(steps[i], namespaceContext);
+            }
+            return new SimplePath(elements, attribute);
+        }
+
+        private static QName qname(final String name, final NamespaceContext namespaceContext)
+                throws XPathExpressionException {
+            final int colon = name.indexOf(':');
+            if (colon == -1) {
+                // unprefixed names are not in a namespace
+                return new QName(name);
+            }
+            final String prefix = name.substring(0, colon);
+            final String namespaceUri = namespaceContext != null ? namespaceContext.getNamespaceURI(prefix) : null;
+            if (namespaceUri == null || namespaceUri.isEmpty()) {
+                throw new XPathExpressionException("Unknown namespace prefix '" + prefix + "'");
+            }
+            return new QName(namespaceUri, name.substring(colon + 1));
+        }
+
+        private boolean matches(final int step, final QName name) {
+            final QName expected = elements[step];
+            return expected == null || (expected.getLocalPart().equals(name.getLocalPart())
+                    && expected.getNamespaceURI().equals(name.getNamespaceURI()));
+        }
+
+        String[] evaluate(final InputStream inputStream) throws XPathExpressionException {
+            final List<String> values = new ArrayList<>();
+            XMLStreamReader reader = null;
+            try {
+                reader = inputFactory.createXMLStreamReader(inputStream);
+                int depth = 0;
+                // number of steps that match the current element and its ancestors
+                int matched = 0;
+                int event = reader.next();
+                while (event != XMLStreamConstants.END_DOCUMENT) {
+                    if (event == XMLStreamConstants.START_ELEMENT) {
+                        depth++;
+                        if (matched == depth - 1 && depth <= elements.length && matches(depth - 1, reader.getName())) {
+                            matched = depth;
+                            if (matched == elements.length) {
+                                if (attribute != null) {
+                                    final String value = reader.getAttributeValue(
+                                            attribute.getNamespaceURI().isEmpty() ? null : attribute.getNamespaceURI(),
+                                            attribute.getLocalPart());
+                                    if (value != null) {
+                                        values.add(value);
+                                    }
+                                } else {
+                                    // the value of the first child text node, like nodeValue()
+                                    event = reader.next();
+                                    if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.SPACE) {
+                                        final StringBuilder text = new StringBuilder();
+                                        while (event == XMLStreamConstants.CHARACTERS
+                                                || event == XMLStreamConstants.SPACE) {
+                                            text.append(reader.getText());
+                                            event = reader.next();
+                                        }
+                                        values.add(text.toString());
+                                    } else {
+                                        values.add(null);
+                                    }
+                                    continue;
+                                }
+                            }
+                        }
+                    } else if (event == XMLStreamConstants.END_ELEMENT) {
+                        if (matched == depth) {
+                            matched--;
+                        }
+                        depth--;
+                    }
+                    event = reader.next();
+                }
+            } catch (final XMLStreamException e) {
+                throw new XPathExpressionException(e);
+            } finally {
+                if (reader != null) {
+                    try {
+                        reader.close();
+                    } catch (final XMLStreamException e) {
+                        ExcUtils.suppress(e);
+                    }
+                }
+            }
+            return values.toArray(new String[0]);
         }
     }
 
@@ -327,7 +656,48 @@ public final class XmlUtils {
     }
 
     /**
-     * Write a DOM Document to the file
+     * Returns the compiled stylesheet of a file. Compiled stylesheets are cached, a cached stylesheet is used as long
+     * as the modification time of the file does not change. Templates objects are thread-safe and create Transformers
+     * cheaply, so they should be used for repeated transformations.
+     *
+     * @param stylesheet
+     *            XSLT file
+     * @return compiled stylesheet
+     * @throws TransformerConfigurationException
+     *             if the stylesheet can not be compiled
+     */
+    public static Templates getTemplates(final File stylesheet) throws TransformerConfigurationException {
+        final String key = stylesheet.getAbsolutePath();
+        final long lastModified = stylesheet.lastModified();
+        final CachedTemplates cached = templatesCache.getIfPresent(key);
+        if (cached != null && cached.lastModified == lastModified) {
+            return cached.templates;
+        }
+        final Templates templates = transformerFactory.get().newTemplates(new StreamSource(stylesheet));
+        templatesCache.put(key, new CachedTemplates(lastModified, templates));
+        return templates;
+    }
+
+    private static final class CachedTemplates {
+        private final long lastModified;
+        private final Templates templates;
+
+        private CachedTemplates(final long lastModified, final Templates templates) {
+            this.lastModified = lastModified;
+            this.templates = templates;
+        }
+    }
+
+    // TransformerFactories are not thread-safe
+    private static final ThreadLocal<TransformerFactory> transformerFactory = ThreadLocal
+            .withInitial(TransformerFactory::newInstance);
+
+    private static final ExpiringCache<String, CachedTemplates> templatesCache = ExpiringCache
+            .<String, CachedTemplates> builder().maximumSize(64).build();
+
+    /**
+     * Write a DOM Document to the file. Large documents should be written with a
+     * {@link de.interactive_instruments.xml.StreamingXmlWriter} instead.
      *
      * @param doc
      *            The DOM Document
@@ -338,8 +708,7 @@ public final class XmlUtils {
             throws IOException, TransformerException {
         try {
             file.expectFileIsWritable();
-            final TransformerFactory transformerFactory = TransformerFactory.newInstance();
-            final Transformer transformer = transformerFactory.newTransformer();
+            final Transformer transformer = transformerFactory.get().newTransformer();
             final DOMSource source = new DOMSource(doc);
             final StreamResult result = new StreamResult(file);
             transformer.transform(source, result);
@@ -0,0 +1,549 @@
+/**
+ * Copyright 2017-2019 European Union, interactive instruments GmbH
+ * Licensed under the EUPL, Version 1.2 or - as soon they will be approved by
+ * the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ *
+ * This work was supported by the EU Interoperability Solutions for
+ * European Public Administrations Programme (http://ec.europa.eu/isa)
+ * through Action 1.17: A Reusable INSPIRE Reference Platform (ARE3NA).
+ */
+package de.interactive_instruments.collections;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.ToIntBiFunction;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.interactive_instruments.ExpirationItemHolder;
+
+/**
+ * A bounded cache that evicts the least recently used entries and entries that expired after their last access or
+ * write.
+ *
+ * All entries are linked in access and in write order, so that the least recently used and the oldest entries are
+ * found in constant time. Expired entries are removed lazily on write operations or by a periodic
+ * {@link #removeExpiredItems(long, TimeUnit)} call, for instance by registering the cache at a
+ * {@link de.interactive_instruments.TimedExpiredItemsRemover} or a {@link de.interactive_instruments.ExpirationScheduler}.
+ *
+ * Values can be loaded with {@link #get(Object, Function)}. Concurrent requests for the same missing key invoke the
+ * loader only once and wait for its result.
+ *
+ * Null keys and values are not permitted.
+ *
+ * @author Jon Herrmann ( herrmann aT interactive-instruments doT de )
+ */
+public final class ExpiringCache<K, V> implements ExpirationItemHolder {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExpiringCache.class);
+
+    private final long maxWeight;
+    private final ToIntBiFunction<? super K, ? super V> weigher;
+    private final long expireAfterAccessNanos;
+    private final long expireAfterWriteNanos;
+    private final BiConsumer<? super K, ? super V> evictionListener;
+
+    private final Map<K, Node<K, V>> map = new HashMap<>();
+    private final ConcurrentMap<K, CompletableFuture<V>> loading = new ConcurrentHashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    // sentinels of the circular lists
+    private final Node<K, V> accessOrder = new Node<>(null, null, 0, 0);
+    private final Node<K, V> writeOrder = new Node<>(null, null, 0, 0);
+    private long totalWeight;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong loads = new AtomicLong();
+    private final AtomicLong loadFailures = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    private static final class Node<K, V> {
+        private final K key;
+        private V value;
+        private int weight;
+        private long accessTime;
+        private long writeTime;
+        private Node<K, V> accessPrev = this;
+        private Node<K, V> accessNext = this;
+        private Node<K, V> writePrev = this;
+        private Node<K, V> writeNext = this;
+
+        private Node(final K key, final V value, final int weight, final long now) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+            this.accessTime = now;
+            this.writeTime = now;
+        }
+    }
+
+    /**
+     * Builder for ExpiringCache objects
+     */
+    public static final class Builder<K, V> {
+        private long maxWeight = Long.MAX_VALUE;
+        private ToIntBiFunction<? super K, ? super V> weigher = (k, v) -> 1;
+        private long expireAfterAccessNanos;
+        private long expireAfterWriteNanos;
+        private BiConsumer<? super K, ? super V> evictionListener;
+
+        private Builder() {}
+
+        /**
+         * Maximum number of entries
+         *
+         * @param maximumSize
+         *            maximum number of entries
+         * @return Builder object
+         */
+        public Builder<K, V> maximumSize(final long maximumSize) {
+            return maximumWeight(maximumSize, (k, v) -> 1);
+        }
+
+        /**
+         * Maximum sum of the weights of all entries
+         *
+         * @param maximumWeight
+         *            maximum weight
+         * @param weigher
+         *            function that calculates the weight of an entry
+         * @return Builder object
+         */
+        public Builder<K, V> maximumWeight(final long maximumWeight, final ToIntBiFunction<? super K, ? super V> weigher) {
+            if (maximumWeight < 0) {
+                throw new IllegalArgumentException("Invalid maximum weight: " + maximumWeight);
+            }
+            this.maxWeight = maximumWeight;
+            this.weigher = weigher;
+            return this;
+        }
+
+        /**
+         * Entries expire after the duration has passed since the last read or write access
+         *
+         * @param duration
+         *            duration
+         * @param unit
+         *            TimeUnit of the duration
+         * @return Builder object
+         */
+        public Builder<K, V> expireAfterAccess(final long duration, final TimeUnit unit) {
+            this.expireAfterAccessNanos = unit.toNanos(duration);
+            return this;
+        }
+
+        /**
+         * Entries expire after the duration has passed since they were created or replaced
+         *
+         * @param duration
+         *            duration
+         * @param unit
+         *            TimeUnit of the duration
+         * @return Builder object
+         */
+        public Builder<K, V> expireAfterWrite(final long duration, final TimeUnit unit) {
+            this.expireAfterWriteNanos = unit.toNanos(duration);
+            return this;
+        }
+
+        /**
+         * Listener that is invoked for every evicted, expired, replaced or invalidated entry, for instance to release resources.
+         * The listener is not invoked while the cache is locked.
+         *
+         * @param evictionListener
+         *            listener
+         * @return Builder object
+         */
+        public Builder<K, V> evictionListener(final BiConsumer<? super K, ? super V> evictionListener) {
+            this.evictionListener = evictionListener;
+            return this;
+        }
+
+        public ExpiringCache<K, V> build() {
+            return new ExpiringCache<>(this);
+        }
+    }
+
+    private ExpiringCache(final Builder<K, V> builder) {
+        this.maxWeight = builder.maxWeight;
+        this.weigher = builder.weigher;
+        this.expireAfterAccessNanos = builder.expireAfterAccessNanos;
+        this.expireAfterWriteNanos = builder.expireAfterWriteNanos;
+        this.evictionListener = builder.evictionListener;
+    }
+
+    public static <K, V> Builder<K, V> builder() {
+        return new Builder<>();
+    }
+
+    /**
+     * Returns the cached value
+     *
+     * @param key
+     *            key
+     * @return the value or null if there is no value for the key or the entry expired
+     */
+    public V getIfPresent(final Object key) {
+        final V value = lookup(key);
+        if (value != null) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+        }
+        return value;
+    }
+
+    private V lookup(final Object key) {
+        final long now = System.nanoTime();
+        List<Node<K, V>> removed = null;
+        V value = null;
+        lock.lock();
+        try {
+            final Node<K, V> node = map.get(key);
+            if (node != null) {
+                if (isExpired(node, now)) {
+                    removeNode(node);
+                    removed = new ArrayList<>(1);
+                    removed.add(node);
+                } else {
+                    node.accessTime = now;
+                    unlinkAccess(node);
+                    linkAccess(node);
+                    value = node.value;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        notifyListener(removed);
+        return value;
+    }
+
+    /**
+     * Returns the cached value or loads it. Concurrent calls for the same key invoke the loader only once, the other
+     * callers wait for the result.
+     *
+     * @param key
+     *            key
+     * @param loader
+     *            function that loads the value, may return null if no value exists
+     * @return the cached or loaded value
+     */
+    public V get(final K key, final Function<? super K, ? extends V> loader) {
+        final V cached = getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        final CompletableFuture<V> future = new CompletableFuture<>();
+        final CompletableFuture<V> inFlight = loading.putIfAbsent(key, future);
+        if (inFlight != null) {
+            try {
+                return inFlight.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw e;
+            }
+        }
+        try {
+            // a concurrent load may have completed between the lookup and putIfAbsent()
+            final V loaded = lookup(key);
+            if (loaded != null) {
+                future.complete(loaded);
+                return loaded;
+            }
+            final V value = loader.apply(key);
+            loads.incrementAndGet();
+            if (value != null) {
+                put(key, value);
+            }
+            future.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            loadFailures.incrementAndGet();
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(key, future);
+        }
+    }
+
+    /**
+     * Adds or replaces a value
+     *
+     * @param key
+     *            key
+     * @param value
+     *            value
+     */
+    public void put(final K key, final V value) {
+        if (key == null || value == null) {
+            throw new IllegalArgumentException("Key or value is null");
+        }
+        final int weight = weigher.applyAsInt(key, value);
+        final long now = System.nanoTime();
+        final List<Node<K, V>> removed = new ArrayList<>();
+        lock.lock();
+        try {
+            final Node<K, V> existing = map.get(key);
+            if (existing != null) {
+                if (existing.value != value) {
+                    removed.add(new Node<>(key, existing.value, existing.weight, now));
+                }
+                totalWeight += weight - existing.weight;
+                existing.value = value;
+                existing.weight = weight;
+                existing.accessTime = now;
+                existing.writeTime = now;
+                unlinkAccess(existing);
+                linkAccess(existing);
+                unlinkWrite(existing);
+                linkWrite(existing);
+            } else {
+                final Node<K, V> node = new Node<>(key, value, weight, now);
+                map.put(key, node);
+                totalWeight += weight;
+                linkAccess(node);
+                linkWrite(node);
+            }
+            expire(now, expireAfterAccessNanos, expireAfterWriteNanos, removed);
+            while (totalWeight > maxWeight && accessOrder.accessNext != accessOrder) {
+                final Node<K, V> eldest = accessOrder.accessNext;
+                removeNode(eldest);
+                removed.add(eldest);
+                evictions.incrementAndGet();
+            }
+        } finally {
+            lock.unlock();
+        }
+        notifyListener(removed);
+    }
+
+    /**
+     * Removes a value
+     *
+     * @param key
+     *            key
+     * @return the removed value or null
+     */
+    public V invalidate(final Object key) {
+        final Node<K, V> node;
+        lock.lock();
+        try {
+            node = map.get(key);
+            if (node != null) {
+                removeNode(node);
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (node == null) {
+            return null;
+        }
+        if (evictionListener != null) {
+            notifyListener(node);
+        }
+        return node.value;
+    }
+
+    /**
+     * Removes all values
+     */
+    public void invalidateAll() {
+        final List<Node<K, V>> removed;
+        lock.lock();
+        try {
+            removed = new ArrayList<>(map.values());
+            map.clear();
+            totalWeight = 0;
+            accessOrder.accessNext = accessOrder.accessPrev = accessOrder;
+            writeOrder.writeNext = writeOrder.writePrev = writeOrder;
+        } finally {
+            lock.unlock();
+        }
+        notifyListener(removed);
+    }
+
+    /**
+     * Removes all entries that expired according to the configured durations
+     *
+     * @return number of removed entries
+     */
+    public long cleanUp() {
+        return removeExpired(expireAfterAccessNanos, expireAfterWriteNanos);
+    }
+
+    /**
+     * Removes all entries that have not been accessed for maxLifeTime or that expired according to the configured
+     * durations.
+     *
+     * @param maxLifeTime
+     *            max lifetime
+     * @param unit
+     *            TimeUnit
+     */
+    @Override
+    public void removeExpiredItems(final long maxLifeTime, final TimeUnit unit) {
+        removeAndCountExpiredItems(maxLifeTime, unit);
+    }
+
+    @Override
+    public long removeAndCountExpiredItems(final long maxLifeTime, final TimeUnit unit) {
+        final long maxNanos = unit.toNanos(maxLifeTime);
+        final long accessNanos = expireAfterAccessNanos > 0 ? Math.min(expireAfterAccessNanos, maxNanos) : maxNanos;
+        return removeExpired(accessNanos, expireAfterWriteNanos);
+    }
+
+    private long removeExpired(final long accessNanos, final long writeNanos) {
+        final List<Node<K, V>> removed = new ArrayList<>();
+        lock.lock();
+        try {
+            expire(System.nanoTime(), accessNanos, writeNanos, removed);
+        } finally {
+            lock.unlock();
+        }
+        notifyListener(removed);
+        return removed.size();
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return map.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public long getLoadCount() {
+        return loads.get();
+    }
+
+    public long getLoadFailureCount() {
+        return loadFailures.get();
+    }
+
+    /**
+     * Number of entries that were removed because the maximum size or weight was exceeded
+     *
+     * @return number of evicted entries
+     */
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    /**
+     * Ratio of hits to all getIfPresent() and get() calls
+     *
+     * @return hit rate between 0 and 1, or 1 if the cache was not used yet
+     */
+    public double getHitRate() {
+        final long h = hits.get();
+        final long requests = h + misses.get();
+        return requests == 0 ? 1.0 : (double) h / requests;
+    }
+
+    private boolean isExpired(final Node<K, V> node, final long now) {
+        return (expireAfterAccessNanos > 0 && now - node.accessTime >= expireAfterAccessNanos) ||
+                (expireAfterWriteNanos > 0 && now - node.writeTime >= expireAfterWriteNanos);
+    }
+
+    // must be called with the lock held
+    private void expire(final long now, final long accessNanos, final long writeNanos,
+            final List<Node<K, V>> removed) {
+        if (accessNanos > 0) {
+            while (accessOrder.accessNext != accessOrder && now - accessOrder.accessNext.accessTime >= accessNanos) {
+                final Node<K, V> node = accessOrder.accessNext;
+                removeNode(node);
+                removed.add(node);
+            }
+        }
+        if (writeNanos > 0) {
+            while (writeOrder.writeNext != writeOrder && now - writeOrder.writeNext.writeTime >= writeNanos) {
+                final Node<K, V> node = writeOrder.writeNext;
+                removeNode(node);
+                removed.add(node);
+            }
+        }
+    }
+
+    private void removeNode(final Node<K, V> node) {
+        map.remove(node.key);
+        totalWeight -= node.weight;
+        unlinkAccess(node);
+        unlinkWrite(node);
+    }
+
+    private void linkAccess(final Node<K, V> node) {
+        node.accessPrev = accessOrder.accessPrev;
+        node.accessNext = accessOrder;
+        accessOrder.accessPrev.accessNext = node;
+        accessOrder.accessPrev = node;
+    }
+
+    private void unlinkAccess(final Node<K, V> node) {
+        node.accessPrev.accessNext = node.accessNext;
+        node.accessNext.accessPrev = node.accessPrev;
+        node.accessPrev = node.accessNext = node;
+    }
+
+    private void linkWrite(final Node<K, V> node) {
+        node.writePrev = writeOrder.writePrev;
+        node.writeNext = writeOrder;
+        writeOrder.writePrev.writeNext = node;
+        writeOrder.writePrev = node;
+    }
+
+    private void unlinkWrite(final Node<K, V> node) {
+        node.writePrev.writeNext = node.writeNext;
+        node.writeNext.writePrev = node.writePrev;
+        node.writePrev = node.writeNext = node;
+    }
+
+    private void notifyListener(final List<Node<K, V>> removed) {
+        if (evictionListener != null && removed != null) {
+            for (final Node<K, V> node : removed) {
+                notifyListener(node);
+            }
+        }
+    }
+
+    private void notifyListener(final Node<K, V> node) {
+        try {
+            evictionListener.accept(node.key, node.value);
+        } catch (final Exception e) {
+            logger.error("Eviction listener threw exception: ", e);
+        }
+    }
+}
@@ -0,0 +1,204 @@
+/**
+ * Copyright 2017-2019 European Union, interactive instruments GmbH
+ * Licensed under the EUPL, Version 1.2 or - as soon they will be approved by
+ * the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ *
+ * This work was supported by the EU Interoperability Solutions for
+ * European Public Administrations Programme (http://ec.europa.eu/isa)
+ * through Action 1.17: A Reusable INSPIRE Reference Platform (ARE3NA).
+ */
+package de.interactive_instruments.collections;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * A set of primitive long values, for instance index arrays compressed with
+ * {@link de.interactive_instruments.IndexCompression#compress(int[])}.
+ *
+ * Uses the same open addressing scheme as the {@link LongObjectHashMap}: the values are stored unboxed in one array,
+ * which occupies 11 to 22 bytes per value depending on the load, compared to about 64 bytes per value of a
+ * {@link java.util.HashSet}. The set can be iterated without allocation with {@link #forEach(LongConsumer)}.
+ *
+ * The set is not thread safe.
+ *
+ * @author Jon Herrmann ( herrmann aT interactive-instruments doT de )
+ */
+public final class LongHashSet {
+
+    // the value 0 marks a free slot and is stored separately
+    private static final long FREE = 0L;
+
+    private long[] keys;
+    private int mask;
+    private int size;
+    private int threshold;
+    private boolean hasZeroKey;
+
+    public LongHashSet() {
+        this(16);
+    }
+
+    /**
+     * Creates a set that does not need to be resized until the expected number of values is reached
+     *
+     * @param expectedSize
+     *            expected number of values
+     */
+    public LongHashSet(final int expectedSize) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("Invalid size: " + expectedSize);
+        }
+        allocate(LongObjectHashMap.capacityFor(expectedSize));
+    }
+
+    private void allocate(final int capacity) {
+        keys = new long[capacity];
+        mask = capacity - 1;
+        threshold = (int) (capacity * LongObjectHashMap.LOAD_FACTOR);
+    }
+
+    private int slot(final long key) {
+        int slot = LongObjectHashMap.hash(key) & mask;
+        for (long k; (k = keys[slot]) != FREE; slot = (slot + 1) & mask) {
+            if (k == key) {
+                return slot;
+            }
+        }
+        return -(slot + 1);
+    }
+
+    public int size() {
+        return hasZeroKey ? size + 1 : size;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public boolean contains(final long key) {
+        return key == FREE ? hasZeroKey : slot(key) >= 0;
+    }
+
+    /**
+     * Adds a value
+     *
+     * @param key
+     *            the value
+     * @return true if the set did not contain the value
+     */
+    public boolean add(final long key) {
+        if (key == FREE) {
+            final boolean added = !hasZeroKey;
+            hasZeroKey = true;
+            return added;
+        }
+        final int slot = slot(key);
+        if (slot >= 0) {
+            return false;
+        }
+        keys[-slot - 1] = key;
+        if (++size > threshold) {
+            rehash(keys.length << 1);
+        }
+        return true;
+    }
+
+    private void rehash(final int capacity) {
+        final long[] oldKeys = keys;
+        allocate(capacity);
+        for (final long key : oldKeys) {
+            if (key != FREE) {
+                int slot = LongObjectHashMap.hash(key) & mask;
+                while (keys[slot] != FREE) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+            }
+        }
+    }
+
+    /**
+     * Removes a value
+     *
+     * @param key
+     *            the value
+     * @return true if the set contained the value
+     */
+    public boolean remove(final long key) {
+        if (key == FREE) {
+            final boolean removed = hasZeroKey;
+            hasZeroKey = false;
+            return removed;
+        }
+        final int slot = slot(key);
+        if (slot < 0) {
+            return false;
+        }
+        LongObjectHashMap.shiftBack(keys, null, mask, slot);
+        size--;
+        return true;
+    }
+
+    /**
+     * Removes all values, the allocated memory is kept
+     */
+    public void clear() {
+        Arrays.fill(keys, FREE);
+        size = 0;
+        hasZeroKey = false;
+    }
+
+    /**
+     * Passes all values in no particular order to the consumer
+     *
+     * @param consumer
+     *            value consumer
+     */
+    public void forEach(final LongConsumer consumer) {
+        if (hasZeroKey) {
+            consumer.accept(FREE);
+        }
+        for (final long key : keys) {
+            if (key != FREE) {
+                consumer.accept(key);
+            }
+        }
+    }
+
+    /**
+     * Returns all values in no particular order
+     *
+     * @return new array with the values
+     */
+    public long[] toArray() {
+        final long[] result = new long[size()];
+        int pos = 0;
+        if (hasZeroKey) {
+            result[pos++] = FREE;
+        }
+        for (final long key : keys) {
+            if (key != FREE) {
+                result[pos++] = key;
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        final long[] values = toArray();
+        Arrays.sort(values);
+        return Arrays.toString(values);
+    }
+}
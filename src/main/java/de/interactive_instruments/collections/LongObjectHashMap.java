@@ -0,0 +1,310 @@
+/**
+ * Copyright 2017-2019 European Union, interactive instruments GmbH
+ * Licensed under the EUPL, Version 1.2 or - as soon they will be approved by
+ * the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ *
+ * This work was supported by the EU Interoperability Solutions for
+ * European Public Administrations Programme (http://ec.europa.eu/isa)
+ * through Action 1.17: A Reusable INSPIRE Reference Platform (ARE3NA).
+ */
+package de.interactive_instruments.collections;
+
+import java.util.Arrays;
+
+/**
+ * A map with primitive long keys, for instance index arrays compressed with
+ * {@link de.interactive_instruments.IndexCompression#compress(int[])}.
+ *
+ * The keys and values are stored in two arrays with open addressing and linear probing, the keys are not boxed and
+ * no entry objects are allocated. Removed entries are not marked with tombstones, the following entries of the probe
+ * sequence are shifted back instead. A slot occupies 12 bytes with compressed references, that are 16 to 32 bytes per
+ * entry depending on the load, compared to about 64 bytes per entry of a {@link java.util.HashMap} with boxed keys.
+ * The map can be iterated without allocation with {@link #forEach(EntryConsumer)}. Null values are supported.
+ *
+ * The map is not thread safe.
+ *
+ * @author Jon Herrmann ( herrmann aT interactive-instruments doT de )
+ */
+public final class LongObjectHashMap<V> {
+
+    // the key 0 marks a free slot, an entry with the key 0 is stored separately
+    private static final long FREE = 0L;
+    static final float LOAD_FACTOR = 0.75f;
+
+    private long[] keys;
+    private Object[] values;
+    private int mask;
+    private int size;
+    private int threshold;
+    private boolean hasZeroKey;
+    private Object zeroValue;
+
+    /**
+     * Receives the entries of a map
+     *
+     * @param <V>
+     *            type of the values
+     */
+    @FunctionalInterface
+    public interface EntryConsumer<V> {
+        void accept(final long key, final V value);
+    }
+
+    public LongObjectHashMap() {
+        this(16);
+    }
+
+    /**
+     * Creates a map that does not need to be resized until the expected number of entries is reached
+     *
+     * @param expectedSize
+     *            expected number of entries
+     */
+    public LongObjectHashMap(final int expectedSize) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("Invalid size: " + expectedSize);
+        }
+        allocate(capacityFor(expectedSize));
+    }
+
+    static int capacityFor(final int expectedSize) {
+        final long required = Math.max(4, (long) Math.ceil(expectedSize / LOAD_FACTOR));
+        if (required > (1 << 30)) {
+            throw new IllegalArgumentException("Size exceeds max capacity: " + expectedSize);
+        }
+        return Integer.highestOneBit((int) required - 1) << 1;
+    }
+
+    /**
+     * Spreads the bits of the key, compressed indices often only differ in their higher bits
+     */
+    static int hash(final long key) {
+        long h = key;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+
+    private void allocate(final int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        threshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private int slot(final long key) {
+        int slot = hash(key) & mask;
+        for (long k; (k = keys[slot]) != FREE; slot = (slot + 1) & mask) {
+            if (k == key) {
+                return slot;
+            }
+        }
+        return -(slot + 1);
+    }
+
+    public int size() {
+        return hasZeroKey ? size + 1 : size;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public boolean containsKey(final long key) {
+        return key == FREE ? hasZeroKey : slot(key) >= 0;
+    }
+
+    /**
+     * Returns the value of a key
+     *
+     * @param key
+     *            the key
+     * @return the value or null if the map does not contain the key
+     */
+    public V get(final long key) {
+        return getOrDefault(key, null);
+    }
+
+    @SuppressWarnings("unchecked")
+    public V getOrDefault(final long key, final V defaultValue) {
+        if (key == FREE) {
+            return hasZeroKey ? (V) zeroValue : defaultValue;
+        }
+        final int slot = slot(key);
+        return slot >= 0 ? (V) values[slot] : defaultValue;
+    }
+
+    /**
+     * Associates the value with the key
+     *
+     * @param key
+     *            the key
+     * @param value
+     *            the value
+     * @return the previous value or null
+     */
+    @SuppressWarnings("unchecked")
+    public V put(final long key, final V value) {
+        if (key == FREE) {
+            final V previous = (V) zeroValue;
+            hasZeroKey = true;
+            zeroValue = value;
+            return previous;
+        }
+        final int slot = slot(key);
+        if (slot >= 0) {
+            final V previous = (V) values[slot];
+            values[slot] = value;
+            return previous;
+        }
+        final int free = -slot - 1;
+        keys[free] = key;
+        values[free] = value;
+        if (++size > threshold) {
+            rehash(keys.length << 1);
+        }
+        return null;
+    }
+
+    private void rehash(final int capacity) {
+        final long[] oldKeys = keys;
+        final Object[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            final long key = oldKeys[i];
+            if (key != FREE) {
+                int slot = hash(key) & mask;
+                while (keys[slot] != FREE) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * Removes a key
+     *
+     * @param key
+     *            the key
+     * @return the removed value or null
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(final long key) {
+        if (key == FREE) {
+            final V previous = (V) zeroValue;
+            hasZeroKey = false;
+            zeroValue = null;
+            return previous;
+        }
+        final int slot = slot(key);
+        if (slot < 0) {
+            return null;
+        }
+        final V previous = (V) values[slot];
+        shiftBack(keys, values, mask, slot);
+        size--;
+        return previous;
+    }
+
+    /**
+     * Closes the gap of a removed entry by moving the following entries of the probe sequence that would not be
+     * found anymore
+     */
+    static void shiftBack(final long[] keys, final Object[] values, final int mask, final int removed) {
+        int gap = removed;
+        for (int slot = (gap + 1) & mask;; slot = (slot + 1) & mask) {
+            final long key = keys[slot];
+            if (key == FREE) {
+                break;
+            }
+            final int home = hash(key) & mask;
+            // move the entry if its home slot is not between the gap and its slot (cyclic)
+            if (((slot - home) & mask) >= ((slot - gap) & mask)) {
+                keys[gap] = key;
+                if (values != null) {
+                    values[gap] = values[slot];
+                }
+                gap = slot;
+            }
+        }
+        keys[gap] = FREE;
+        if (values != null) {
+            values[gap] = null;
+        }
+    }
+
+    /**
+     * Removes all entries, the allocated memory is kept
+     */
+    public void clear() {
+        Arrays.fill(keys, FREE);
+        Arrays.fill(values, null);
+        size = 0;
+        hasZeroKey = false;
+        zeroValue = null;
+    }
+
+    /**
+     * Passes all entries in no particular order to the consumer
+     *
+     * @param consumer
+     *            entry consumer
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(final EntryConsumer<? super V> consumer) {
+        if (hasZeroKey) {
+            consumer.accept(FREE, (V) zeroValue);
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != FREE) {
+                consumer.accept(keys[i], (V) values[i]);
+            }
+        }
+    }
+
+    /**
+     * Returns all keys in no particular order
+     *
+     * @return new array with the keys
+     */
+    public long[] keys() {
+        final long[] result = new long[size()];
+        int pos = 0;
+        if (hasZeroKey) {
+            result[pos++] = FREE;
+        }
+        for (final long key : keys) {
+            if (key != FREE) {
+                result[pos++] = key;
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder("{");
+        forEach((key, value) -> {
+            if (builder.length() > 1) {
+                builder.append(", ");
+            }
+            builder.append(key).append('=').append(value);
+        });
+        return builder.append('}').toString();
+    }
+}
@@ -0,0 +1,338 @@
+/**
+ * Copyright 2017-2019 European Union, interactive instruments GmbH
+ * Licensed under the EUPL, Version 1.2 or - as soon they will be approved by
+ * the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ *
+ * This work was supported by the EU Interoperability Solutions for
+ * European Public Administrations Programme (http://ec.europa.eu/isa)
+ * through Action 1.17: A Reusable INSPIRE Reference Platform (ARE3NA).
+ */
+package de.interactive_instruments.collections;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * An ordered map with primitive long keys for range scans, for instance over index arrays compressed with
+ * {@link de.interactive_instruments.IndexCompression#compress(int[])}. The keys are ordered as signed longs.
+ *
+ * Note that the order of compressed index arrays is not the order of the index paths and that the entries below a
+ * path do not form a contiguous key range: [1] is compressed to 1, [1,1] to 3, [1,2] to 9 and [2] to 4. Prefix scans
+ * over index paths require the order preserving encoding of {@link de.interactive_instruments.IndexPathCompression}.
+ *
+ * The entries are stored in two sorted arrays, which occupy 12 to 18 bytes per entry with compressed references,
+ * compared to about 64 bytes per entry of a {@link java.util.TreeMap} with boxed keys. Lookups use a binary search.
+ * Keys that are added in ascending order are appended, other new keys are collected in a {@link LongObjectHashMap}
+ * and merged into the sorted arrays with one sort when the order is required the next time. Building the map from
+ * unordered keys therefore costs O(n log n) in total. Removing a key of the sorted arrays costs O(n).
+ *
+ * The entries can be scanned without allocation by their position:
+ *
+ * <pre>
+ * for (int i = map.ceilingIndex(from); i &lt; map.size() &amp;&amp; map.keyAt(i) &lt; to; i++) {
+ *     process(map.keyAt(i), map.valueAt(i));
+ * }
+ * </pre>
+ *
+ * The map is not thread safe, also read operations may merge pending keys.
+ *
+ * @author Jon Herrmann ( herrmann aT interactive-instruments doT de )
+ */
+public final class SortedLongObjectMap<V> {
+
+    private long[] keys;
+    private Object[] values;
+    // number of sorted entries
+    private int sorted;
+    // unordered new keys, not contained in the sorted arrays
+    private LongObjectHashMap<V> pending;
+
+    public SortedLongObjectMap() {
+        this(16);
+    }
+
+    /**
+     * Creates a map that does not need to be resized until the expected number of entries is reached
+     *
+     * @param expectedSize
+     *            expected number of entries
+     */
+    public SortedLongObjectMap(final int expectedSize) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("Invalid size: " + expectedSize);
+        }
+        keys = new long[Math.max(4, expectedSize)];
+        values = new Object[keys.length];
+    }
+
+    public int size() {
+        return pending != null ? sorted + pending.size() : sorted;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    private boolean hasPending() {
+        return pending != null && !pending.isEmpty();
+    }
+
+    public boolean containsKey(final long key) {
+        return Arrays.binarySearch(keys, 0, sorted, key) >= 0 || (pending != null && pending.containsKey(key));
+    }
+
+    /**
+     * Returns the value of a key
+     *
+     * @param key
+     *            the key
+     * @return the value or null if the map does not contain the key
+     */
+    @SuppressWarnings("unchecked")
+    public V get(final long key) {
+        final int index = Arrays.binarySearch(keys, 0, sorted, key);
+        if (index >= 0) {
+            return (V) values[index];
+        }
+        return pending != null ? pending.get(key) : null;
+    }
+
+    /**
+     * Associates the value with the key
+     *
+     * @param key
+     *            the key
+     * @param value
+     *            the value
+     * @return the previous value or null
+     */
+    @SuppressWarnings("unchecked")
+    public V put(final long key, final V value) {
+        if (sorted == 0 || key > keys[sorted - 1]) {
+            if (pending == null || !pending.containsKey(key)) {
+                // ascending keys are appended
+                ensureCapacity(sorted + 1);
+                keys[sorted] = key;
+                values[sorted++] = value;
+                return null;
+            }
+            return pending.put(key, value);
+        }
+        final int index = Arrays.binarySearch(keys, 0, sorted, key);
+        if (index >= 0) {
+            final V previous = (V) values[index];
+            values[index] = value;
+            return previous;
+        }
+        if (pending == null) {
+            pending = new LongObjectHashMap<>();
+        }
+        return pending.put(key, value);
+    }
+
+    /**
+     * Removes a key
+     *
+     * @param key
+     *            the key
+     * @return the removed value or null
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(final long key) {
+        if (pending != null && pending.containsKey(key)) {
+            return pending.remove(key);
+        }
+        final int index = Arrays.binarySearch(keys, 0, sorted, key);
+        if (index < 0) {
+            return null;
+        }
+        final V previous = (V) values[index];
+        System.arraycopy(keys, index + 1, keys, index, sorted - index - 1);
+        System.arraycopy(values, index + 1, values, index, sorted - index - 1);
+        values[--sorted] = null;
+        return previous;
+    }
+
+    private void ensureCapacity(final int capacity) {
+        if (capacity > keys.length) {
+            final int newCapacity = Math.max(capacity, keys.length + (keys.length >> 1));
+            keys = Arrays.copyOf(keys, newCapacity);
+            values = Arrays.copyOf(values, newCapacity);
+        }
+    }
+
+    /**
+     * Sorts the pending keys and merges them from the end into the sorted arrays
+     */
+    private void merge() {
+        if (!hasPending()) {
+            return;
+        }
+        final long[] pendingKeys = pending.keys();
+        Arrays.sort(pendingKeys);
+        ensureCapacity(sorted + pendingKeys.length);
+        int i = sorted - 1;
+        int j = pendingKeys.length - 1;
+        for (int w = sorted + pendingKeys.length - 1; j >= 0; w--) {
+            if (i >= 0 && keys[i] > pendingKeys[j]) {
+                keys[w] = keys[i];
+                values[w] = values[i--];
+            } else {
+                keys[w] = pendingKeys[j];
+                values[w] = pending.get(pendingKeys[j--]);
+            }
+        }
+        sorted += pendingKeys.length;
+        // the table of a large batch is not kept
+        pending = null;
+    }
+
+    /**
+     * Returns the key at a position
+     *
+     * @param index
+     *            position between 0 and {@link #size()} - 1
+     * @return the key
+     */
+    public long keyAt(final int index) {
+        merge();
+        checkIndex(index);
+        return keys[index];
+    }
+
+    /**
+     * Returns the value at a position
+     *
+     * @param index
+     *            position between 0 and {@link #size()} - 1
+     * @return the value
+     */
+    @SuppressWarnings("unchecked")
+    public V valueAt(final int index) {
+        merge();
+        checkIndex(index);
+        return (V) values[index];
+    }
+
+    private void checkIndex(final int index) {
+        if (index < 0 || index >= sorted) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + sorted);
+        }
+    }
+
+    /**
+     * Returns the position of a key
+     *
+     * @param key
+     *            the key
+     * @return position of the key, or (-(insertion point) - 1) if the map does not contain the key
+     */
+    public int indexOf(final long key) {
+        merge();
+        return Arrays.binarySearch(keys, 0, sorted, key);
+    }
+
+    /**
+     * Returns the position of the least key greater than or equal to the given key
+     *
+     * @param key
+     *            the key
+     * @return position of the key or {@link #size()} if there is no such key
+     */
+    public int ceilingIndex(final long key) {
+        final int index = indexOf(key);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    /**
+     * Returns the position of the greatest key less than or equal to the given key
+     *
+     * @param key
+     *            the key
+     * @return position of the key or -1 if there is no such key
+     */
+    public int floorIndex(final long key) {
+        final int index = indexOf(key);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    public long firstKey() {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        return keyAt(0);
+    }
+
+    public long lastKey() {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        return keyAt(size() - 1);
+    }
+
+    /**
+     * Passes all entries in ascending key order to the consumer
+     *
+     * @param consumer
+     *            entry consumer
+     */
+    public void forEach(final LongObjectHashMap.EntryConsumer<? super V> consumer) {
+        merge();
+        forEach(0, sorted, consumer);
+    }
+
+    /**
+     * Passes the entries of a key range in ascending key order to the consumer
+     *
+     * @param fromKey
+     *            lowest key, inclusive
+     * @param toKey
+     *            highest key, exclusive
+     * @param consumer
+     *            entry consumer
+     */
+    public void forEachInRange(final long fromKey, final long toKey,
+            final LongObjectHashMap.EntryConsumer<? super V> consumer) {
+        if (fromKey < toKey) {
+            forEach(ceilingIndex(fromKey), ceilingIndex(toKey), consumer);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void forEach(final int from, final int to, final LongObjectHashMap.EntryConsumer<? super V> consumer) {
+        for (int i = from; i < to; i++) {
+            consumer.accept(keys[i], (V) values[i]);
+        }
+    }
+
+    /**
+     * Removes all entries, the allocated memory is kept
+     */
+    public void clear() {
+        Arrays.fill(values, 0, sorted, null);
+        sorted = 0;
+        pending = null;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder("{");
+        forEach((key, value) -> {
+            if (builder.length() > 1) {
+                builder.append(", ");
+            }
+            builder.append(key).append('=').append(value);
+        });
+        return builder.append('}').toString();
+    }
+}
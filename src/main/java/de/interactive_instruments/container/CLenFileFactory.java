@@ -21,15 +21,23 @@ package de.interactive_instruments.container;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
 import java.util.UUID;
 
 import org.apache.commons.lang3.StringEscapeUtils;
 
 import de.interactive_instruments.Configurable;
 import de.interactive_instruments.IFile;
+import de.interactive_instruments.IoUtils;
 import de.interactive_instruments.MimeTypeUtils;
+import de.interactive_instruments.Releasable;
 import de.interactive_instruments.SUtils;
 import de.interactive_instruments.exceptions.*;
 import de.interactive_instruments.exceptions.config.ConfigurationException;
@@ -39,10 +47,20 @@ import de.interactive_instruments.properties.ConfigPropertyHolder;
 /**
  * A factory which decides which Container object to construct based on the string length.
  *
+ * If {@link #PROPERTY_DEDUPLICATE} is set, the content of file containers is written to a
+ * {@link ContentAddressedStore} in the output directory, so that identical content is only stored once.
+ *
+ * If {@link #PROPERTY_WRITE_BEHIND} is set, file containers are returned immediately and their content is written by
+ * background threads. The content is only guaranteed to be available after {@link #flush()} has been called.
+ *
+ * File containers whose MIME type contains one of the comma separated values of {@link #PROPERTY_COMPRESS_MIME_TYPES}
+ * and whose content is at least {@link #PROPERTY_COMPRESS_MIN_LENGTH} characters long are stored compressed with gzip.
+ * The returned {@link UrlReferenceContainer} decompresses the content when it is loaded.
+ *
  * @author Jon Herrmann ( herrmann aT interactive-instruments doT de )
  *
  */
-public final class CLenFileFactory implements ContainerFactory, Configurable {
+public final class CLenFileFactory implements ContainerFactory, Configurable, Releasable {
 
     public final static String PROPERTY_BASE_URI = "ii.container.factory.clenfile.base.uri";
     public final static String PROPERTY_OUTPUT_DIR = "ii.container.factory.clenfile.output.dir";
@@ -50,6 +68,12 @@ public final class CLenFileFactory implements ContainerFactory, Configurable {
     public final static String PROPERTY_FILENAME_ADD_EXTENSION_TO_URI = "ii.container.factory.clenfile.filename.add.uri";
     public final static String PROPERTY_MAX_INLINE_LENGTH = "ii.container.factory.clenfile.inline.max.length";
     public final static String PROPERTY_ESCAPE_INLINE = "ii.container.factory.clenfile.inline.escape";
+    public final static String PROPERTY_DEDUPLICATE = "ii.container.factory.clenfile.deduplicate";
+    public final static String PROPERTY_WRITE_BEHIND = "ii.container.factory.clenfile.writebehind";
+    public final static String PROPERTY_WRITE_BEHIND_THREADS = "ii.container.factory.clenfile.writebehind.threads";
+    public final static String PROPERTY_COMPRESS_MIME_TYPES = "ii.container.factory.clenfile.compress.mimetypes";
+    public final static String PROPERTY_COMPRESS_MIN_LENGTH = "ii.container.factory.clenfile.compress.min.length";
+    public final static String PROPERTY_WRITE_BEHIND_QUEUE_BYTES = "ii.container.factory.clenfile.writebehind.queue.bytes";
 
     private final ConfigProperties configurationProperties;
 
@@ -59,6 +83,10 @@ public final class CLenFileFactory implements ContainerFactory, Configurable {
     private int maxInlineStrLen = 4000;
     private boolean escape = false;
     private boolean addExtensionToUri = true;
+    private ContentAddressedStore store = null;
+    private WriteBehindWriter writer = null;
+    private String[] compressMimeTypes = new String[0];
+    private long compressMinLength = 16384;
 
     /**
      * Creates a new factory. The output directory is set to the default temporary directory.
@@ -72,6 +100,12 @@ public final class CLenFileFactory implements ContainerFactory, Configurable {
                 String.valueOf(this.addExtensionToUri));
         this.configurationProperties.setProperty(PROPERTY_MAX_INLINE_LENGTH, String.valueOf(maxInlineStrLen));
         this.configurationProperties.setProperty(PROPERTY_ESCAPE_INLINE, String.valueOf(escape));
+        this.configurationProperties.setProperty(PROPERTY_DEDUPLICATE, "false");
+        this.configurationProperties.setProperty(PROPERTY_WRITE_BEHIND, "false");
+        this.configurationProperties.setProperty(PROPERTY_COMPRESS_MIME_TYPES, "");
+        this.configurationProperties.setProperty(PROPERTY_COMPRESS_MIN_LENGTH, String.valueOf(compressMinLength));
+        this.configurationProperties.setProperty(PROPERTY_WRITE_BEHIND_THREADS, "2");
+        this.configurationProperties.setProperty(PROPERTY_WRITE_BEHIND_QUEUE_BYTES, String.valueOf(64 * 1024 * 1024));
     }
 
     private CLenFileFactory(final CLenFileFactory factory) {
@@ -111,18 +145,40 @@ public final class CLenFileFactory implements ContainerFactory, Configurable {
                 } else {
                     fileExtension = MimeTypeUtils.detectFileExtension(str);
                 }
+                final boolean compress = isCompressed(mimeType, fileExtension, str.length());
+                final String encoding = compress ? UrlReferenceContainer.GZIP_ENCODING : null;
+                if (store != null) {
+                    final byte[] content = str.getBytes(StandardCharsets.UTF_8);
+                    final String storedPath = store.store(content, fileExtension, compress);
+                    return new UrlReferenceContainer(name, content.length, storedUrl(storedPath, fileExtension),
+                            mimeType, encoding, false);
+                }
                 // Prefix + name + random uuid
                 final String filename = this.filenamePrefix + UUID.randomUUID().toString();
-                final IFile file = outputDir.expandPath(filename + fileExtension);
-                file.writeContent(new StringBuffer(str));
+                final String storedExtension = compress ? fileExtension + ContentAddressedStore.GZIP_SUFFIX
+                        : fileExtension;
+                final IFile file = outputDir.expandPath(filename + storedExtension);
+                final long size;
+                if (writer != null || compress) {
+                    final byte[] content = str.getBytes(StandardCharsets.UTF_8);
+                    if (writer != null) {
+                        writer.write(file.toPath(), content, compress);
+                    } else {
+                        IoUtils.write(file.toPath(), content, true);
+                    }
+                    size = content.length;
+                } else {
+                    file.writeContent(new StringBuffer(str));
+                    size = file.length();
+                }
                 if (this.addExtensionToUri) {
                     return new UrlReferenceContainer(name,
-                            file.length(), new URI(baseUri + filename + fileExtension).toURL(),
-                            mimeType, false);
+                            size, new URI(baseUri + filename + storedExtension).toURL(),
+                            mimeType, encoding, false);
                 } else {
                     return new UrlReferenceContainer(name,
-                            file.length(), new URI(baseUri + filename).toURL(),
-                            mimeType, false);
+                            size, new URI(baseUri + filename).toURL(),
+                            mimeType, encoding, false);
                 }
             } catch (URISyntaxException | MimeTypeUtilsException | IOException e) {
                 throw new ContainerFactoryException(e);
@@ -149,11 +205,30 @@ public final class CLenFileFactory implements ContainerFactory, Configurable {
             } else {
                 detMimeType = mimeType;
             }
-            final String filename = file.getFilenameWithoutExt() + MimeTypeUtils.getFileExtensionForMimeType(detMimeType);
+            final String fileExtension = MimeTypeUtils.getFileExtensionForMimeType(detMimeType);
             final long size = file.length();
-            file.renameTo(new File(file.getParent() + File.separator + filename));
+            final boolean compress = isCompressed(detMimeType, fileExtension, size);
+            final String encoding = compress ? UrlReferenceContainer.GZIP_ENCODING : null;
+            if (store != null) {
+                final String storedPath = store.storeFile(file.toPath(), fileExtension, compress);
+                return new UrlReferenceContainer(name, size, storedUrl(storedPath, fileExtension), detMimeType,
+                        encoding, false);
+            }
+            final String filename;
+            if (compress) {
+                filename = file.getFilenameWithoutExt() + fileExtension + ContentAddressedStore.GZIP_SUFFIX;
+                try (final OutputStream out = IoUtils.newOutputStream(
+                        new File(file.getParent(), filename).toPath(), true)) {
+                    Files.copy(file.toPath(), out);
+                }
+                file.delete();
+            } else {
+                filename = file.getFilenameWithoutExt() + fileExtension;
+                file.renameTo(new File(file.getParent() + File.separator + filename));
+            }
 
-            return new UrlReferenceContainer(name, size, new URI(baseUri + filename).toURL(), detMimeType, false);
+            return new UrlReferenceContainer(name, size, new URI(baseUri + filename).toURL(), detMimeType, encoding,
+                    false);
         } catch (URISyntaxException | IOException | MimeTypeUtilsException e) {
             ExcUtils.suppress(e);
             throw new ContainerFactoryException(e);
@@ -166,6 +241,69 @@ public final class CLenFileFactory implements ContainerFactory, Configurable {
         return createReferencedContainer(name, null, uri);
     }
 
+    private boolean isCompressed(final String mimeType, final String fileExtension, final long length) {
+        if (compressMimeTypes.length == 0 || length < compressMinLength) {
+            return false;
+        }
+        final String type = !SUtils.isNullOrEmpty(mimeType) ? mimeType
+                : MimeTypeUtils.detectMimeTypeFromFilename("file" + fileExtension);
+        if (type == null) {
+            return false;
+        }
+        for (final String compressMimeType : compressMimeTypes) {
+            if (type.contains(compressMimeType)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private URL storedUrl(final String storedPath, final String fileExtension)
+            throws URISyntaxException, MalformedURLException {
+        if (this.addExtensionToUri || !storedPath.endsWith(fileExtension)) {
+            return new URI(baseUri + storedPath).toURL();
+        }
+        return new URI(baseUri + storedPath.substring(0, storedPath.length() - fileExtension.length())).toURL();
+    }
+
+    /**
+     * Returns the store that is used if deduplication is enabled
+     *
+     * @return ContentAddressedStore or null
+     */
+    public ContentAddressedStore getStore() {
+        return store;
+    }
+
+    /**
+     * Blocks until the content of all file containers, that were created before, has been written.
+     *
+     * Does nothing if the write-behind mode is not enabled.
+     *
+     * @throws ContainerFactoryException
+     *             if writing the content of a container failed
+     */
+    @Override
+    public void flush() throws ContainerFactoryException {
+        if (writer != null) {
+            try {
+                writer.flush();
+            } catch (final IOException e) {
+                throw new ContainerFactoryException(e);
+            }
+        }
+    }
+
+    /**
+     * Writes pending content and stops the write-behind threads
+     */
+    @Override
+    public void release() {
+        if (writer != null) {
+            writer.release();
+        }
+    }
+
     @Override
     public URI getUri() {
         return baseUri;
@@ -201,6 +339,21 @@ public final class CLenFileFactory implements ContainerFactory, Configurable {
             this.baseUri = new URI(nBaseUri);
             this.addExtensionToUri = Boolean.valueOf(this.configurationProperties.getProperty(
                     PROPERTY_FILENAME_ADD_EXTENSION_TO_URI));
+            if (Boolean.valueOf(this.configurationProperties.getProperty(PROPERTY_DEDUPLICATE))) {
+                this.store = new ContentAddressedStore(this.outputDir, 2, false);
+            }
+            final String compressMimeTypesProperty = this.configurationProperties.getProperty(
+                    PROPERTY_COMPRESS_MIME_TYPES);
+            this.compressMimeTypes = SUtils.isNullOrEmpty(compressMimeTypesProperty) ? new String[0]
+                    : Arrays.stream(compressMimeTypesProperty.split(",")).map(String::trim)
+                            .filter(t -> !t.isEmpty()).toArray(String[]::new);
+            this.compressMinLength = Long.parseLong(
+                    this.configurationProperties.getProperty(PROPERTY_COMPRESS_MIN_LENGTH));
+            if (Boolean.valueOf(this.configurationProperties.getProperty(PROPERTY_WRITE_BEHIND))) {
+                this.writer = new WriteBehindWriter(
+                        Integer.parseInt(this.configurationProperties.getProperty(PROPERTY_WRITE_BEHIND_THREADS)),
+                        Integer.parseInt(this.configurationProperties.getProperty(PROPERTY_WRITE_BEHIND_QUEUE_BYTES)));
+            }
         } catch (URISyntaxException | IOException | IllegalArgumentException e) {
             throw new InitializationException(e);
         }
@@ -63,4 +63,14 @@ public interface ContainerFactory {
     LazyLoadContainer createReferencedContainer(String name, URI uri) throws ContainerFactoryException;
 
     LazyLoadContainer createReferencedContainer(String name, String mimeType, URI uri) throws ContainerFactoryException;
+
+    /**
+     * Blocks until the content of all created containers has been persisted.
+     *
+     * Factories that persist the content synchronously do not need to override this method.
+     *
+     * @throws ContainerFactoryException
+     *             if persisting the content of a container failed
+     */
+    default void flush() throws ContainerFactoryException {}
 }
@@ -0,0 +1,261 @@
+/**
+ * Copyright 2017-2019 European Union, interactive instruments GmbH
+ * Licensed under the EUPL, Version 1.2 or - as soon they will be approved by
+ * the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ *
+ * This work was supported by the EU Interoperability Solutions for
+ * European Public Administrations Programme (http://ec.europa.eu/isa)
+ * through Action 1.17: A Reusable INSPIRE Reference Platform (ARE3NA).
+ */
+package de.interactive_instruments.container;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.commons.io.IOUtils;
+
+import de.interactive_instruments.IoUtils;
+import de.interactive_instruments.MdUtils;
+
+/**
+ * Stores content in files that are named by a hash of the content, so that identical content is only stored once.
+ *
+ * The file name consists of the 64 bit FNV-1a hash and the length of the content. Files are distributed over sub
+ * directories named after the first hash digits, so that no single directory grows too large. As the hash is not a
+ * cryptographic one, the content of an existing file is compared before it is reused. Stored files are not reference
+ * counted, as they may be referenced by persisted containers, and are never deleted by the store. The stored content
+ * can optionally be compressed with gzip, which is transparent for {@link #openStream(String)}.
+ *
+ * @author Jon Herrmann ( herrmann aT interactive-instruments doT de )
+ */
+public final class ContentAddressedStore {
+
+    public static final String GZIP_SUFFIX = ".gz";
+
+    private static final int LOCK_STRIPES = 64;
+
+    private final Path baseDir;
+    private final int fanOutLevels;
+    private final boolean compress;
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    /**
+     * Creates a new store
+     *
+     * @param baseDir
+     *            directory of the store
+     * @param fanOutLevels
+     *            number of sub directory levels, each level uses two hex digits of the hash (0 - 4)
+     * @param compress
+     *            compress stored content with gzip
+     */
+    public ContentAddressedStore(final File baseDir, final int fanOutLevels, final boolean compress) {
+        if (fanOutLevels < 0 || fanOutLevels > 4) {
+            throw new IllegalArgumentException("Invalid number of fan out levels: " + fanOutLevels);
+        }
+        this.baseDir = baseDir.toPath();
+        this.fanOutLevels = fanOutLevels;
+        this.compress = compress;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    /**
+     * Returns true if content is compressed by default
+     *
+     * @return true if content is compressed
+     */
+    public boolean isCompressing() {
+        return compress;
+    }
+
+    /**
+     * Stores content, unless the same content is already stored
+     *
+     * @param content
+     *            content to store
+     * @param extension
+     *            file extension including the dot character, or an empty string
+     * @return the path of the stored file relative to the base directory, with '/' as separator
+     * @throws IOException
+     *             if the file can not be written
+     */
+    public String store(final byte[] content, final String extension) throws IOException {
+        return store(content, extension, compress);
+    }
+
+    /**
+     * Stores content, unless the same content is already stored
+     *
+     * @param content
+     *            content to store
+     * @param extension
+     *            file extension including the dot character, or an empty string
+     * @param compress
+     *            compress the content with gzip, overrides the setting of the store
+     * @return the path of the stored file relative to the base directory, with '/' as separator
+     * @throws IOException
+     *             if the file can not be written
+     */
+    public String store(final byte[] content, final String extension, final boolean compress) throws IOException {
+        final MdUtils.FnvChecksum checksum = new MdUtils.FnvChecksum();
+        checksum.update(content);
+        return store(checksum.getHash(), content.length, extension, compress,
+                existing -> contentEquals(existing, new ByteArrayInputStream(content)),
+                target -> {
+                    IoUtils.write(target, content, compress);
+                });
+    }
+
+    /**
+     * Moves a file into the store or deletes it if the same content is already stored
+     *
+     * @param file
+     *            file to move into the store
+     * @param extension
+     *            file extension including the dot character, or an empty string
+     * @return the path of the stored file relative to the base directory, with '/' as separator
+     * @throws IOException
+     *             if the file can not be read or moved
+     */
+    public String storeFile(final Path file, final String extension) throws IOException {
+        return storeFile(file, extension, compress);
+    }
+
+    /**
+     * Moves a file into the store or deletes it if the same content is already stored
+     *
+     * @param file
+     *            file to move into the store
+     * @param extension
+     *            file extension including the dot character, or an empty string
+     * @param compress
+     *            compress the content with gzip, overrides the setting of the store
+     * @return the path of the stored file relative to the base directory, with '/' as separator
+     * @throws IOException
+     *             if the file can not be read or moved
+     */
+    public String storeFile(final Path file, final String extension, final boolean compress) throws IOException {
+        final MdUtils.FnvChecksum checksum = new MdUtils.FnvChecksum();
+        final byte[] buffer = new byte[8192];
+        try (final InputStream in = Files.newInputStream(file)) {
+            for (int read; (read = in.read(buffer)) != -1;) {
+                checksum.update(buffer, 0, read);
+            }
+        }
+        final String relPath = store(checksum.getHash(), Files.size(file), extension, compress,
+                existing -> {
+                    try (final InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+                        return contentEquals(existing, in);
+                    }
+                },
+                target -> {
+                    if (compress) {
+                        try (final OutputStream out = IoUtils.newOutputStream(target, true)) {
+                            Files.copy(file, out);
+                        }
+                    } else {
+                        Files.move(file, target, StandardCopyOption.REPLACE_EXISTING);
+                    }
+                });
+        Files.deleteIfExists(file);
+        return relPath;
+    }
+
+    /**
+     * Opens a stored file, compressed content is decompressed
+     *
+     * @param relativePath
+     *            path returned by a store method
+     * @return stream of the content
+     * @throws IOException
+     *             if the file does not exist
+     */
+    public InputStream openStream(final String relativePath) throws IOException {
+        final Path path = resolve(relativePath);
+        final InputStream in = new BufferedInputStream(Files.newInputStream(path));
+        if (relativePath.endsWith(GZIP_SUFFIX)) {
+            return new GZIPInputStream(in);
+        }
+        return in;
+    }
+
+    /**
+     * Resolves a path returned by a store method against the base directory
+     *
+     * @param relativePath
+     *            path returned by a store method
+     * @return absolute path
+     */
+    public Path resolve(final String relativePath) {
+        return baseDir.resolve(relativePath.replace('/', File.separatorChar));
+    }
+
+    @FunctionalInterface
+    private interface ContentComparator {
+        boolean sameContent(final Path existing) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface ContentWriter {
+        void write(final Path target) throws IOException;
+    }
+
+    private String store(final long hash, final long length, final String extension, final boolean compress,
+            final ContentComparator comparator, final ContentWriter writer) throws IOException {
+        final String hashStr = MdUtils.h64ToString(hash).toLowerCase();
+        final StringBuilder dir = new StringBuilder();
+        for (int i = 0; i < fanOutLevels; i++) {
+            dir.append(hashStr, i * 2, i * 2 + 2).append('/');
+        }
+        final String suffix = (extension != null ? extension : "") + (compress ? GZIP_SUFFIX : "");
+        final String name = hashStr + "-" + Long.toHexString(length);
+        for (int collision = 0;; collision++) {
+            final String relPath = dir + name + (collision > 0 ? "_" + collision : "") + suffix;
+            final Path path = resolve(relPath);
+            synchronized (lock(path)) {
+                if (Files.exists(path)) {
+                    if (comparator.sameContent(path)) {
+                        return relPath;
+                    }
+                    // hash collision, try next name
+                    continue;
+                }
+                Files.createDirectories(path.getParent());
+                final Path tmp = path.resolveSibling(UUID.randomUUID().toString() + ".tmp");
+                try {
+                    writer.write(tmp);
+                    Files.move(tmp, path, StandardCopyOption.ATOMIC_MOVE);
+                } finally {
+                    Files.deleteIfExists(tmp);
+                }
+                return relPath;
+            }
+        }
+    }
+
+    private boolean contentEquals(final Path existing, final InputStream content) throws IOException {
+        try (final InputStream existingStream = existing.getFileName().toString().endsWith(GZIP_SUFFIX)
+                ? new GZIPInputStream(new BufferedInputStream(Files.newInputStream(existing)))
+                : new BufferedInputStream(Files.newInputStream(existing))) {
+            return IOUtils.contentEquals(existingStream, content);
+        }
+    }
+
+    private Object lock(final Path path) {
+        return locks[(path.hashCode() & 0x7fffffff) % LOCK_STRIPES];
+    }
+}
@@ -21,6 +21,13 @@ package de.interactive_instruments.container;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+import org.apache.commons.io.output.CountingOutputStream;
 
 /**
  * Every Container object implements the LazyLoadContainer Interface which allows access of the underlying object.
@@ -72,4 +79,55 @@ public interface LazyLoadContainer {
      * @throws IOException
      */
     void forceLoadAsStream(OutputStream outStream) throws IOException;
+
+    /**
+     * Loads the object asynchronously
+     *
+     * @param executor
+     *            executor that loads the object, should be suitable for blocking I/O
+     * @return future which completes with the loaded object or exceptionally with an IOException
+     */
+    default CompletableFuture<String> forceLoadAsync(final Executor executor) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return forceLoad();
+            } catch (final IOException e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    /**
+     * Writes the loaded object to a channel without materializing it in memory. The channel is not closed.
+     *
+     * @param channel
+     *            target channel
+     * @return number of written bytes
+     * @throws IOException
+     */
+    default long transferTo(final WritableByteChannel channel) throws IOException {
+        final CountingOutputStream outStream = new CountingOutputStream(Channels.newOutputStream(channel));
+        forceLoadAsStream(outStream);
+        outStream.flush();
+        return outStream.getByteCount();
+    }
+
+    /**
+     * Writes the loaded object asynchronously to a channel. The channel is not closed.
+     *
+     * @param channel
+     *            target channel
+     * @param executor
+     *            executor that loads the object, should be suitable for blocking I/O
+     * @return future which completes with the number of written bytes or exceptionally with an IOException
+     */
+    default CompletableFuture<Long> transferToAsync(final WritableByteChannel channel, final Executor executor) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return transferTo(channel);
+            } catch (final IOException e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
 }
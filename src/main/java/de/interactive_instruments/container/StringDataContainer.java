@@ -19,8 +19,11 @@
  */
 package de.interactive_instruments.container;
 
+import java.io.IOException;
 import java.io.OutputStream;
-import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
 
 import javax.xml.bind.annotation.XmlAttribute;
 import javax.xml.bind.annotation.XmlRootElement;
@@ -80,7 +83,16 @@ public class StringDataContainer implements LazyLoadContainer {
     }
 
     @Override
-    public void forceLoadAsStream(OutputStream outStream) {
-        new PrintWriter(outStream).write(this.str);
+    public void forceLoadAsStream(OutputStream outStream) throws IOException {
+        outStream.write(this.str.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public long transferTo(final WritableByteChannel channel) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.wrap(this.str.getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        return buffer.capacity();
     }
 }
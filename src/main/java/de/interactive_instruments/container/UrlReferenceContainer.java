@@ -19,28 +19,47 @@
  */
 package de.interactive_instruments.container;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.GZIPInputStream;
 
 import javax.xml.bind.annotation.XmlAttribute;
 import javax.xml.bind.annotation.XmlRootElement;
 import javax.xml.bind.annotation.XmlTransient;
 
+import de.interactive_instruments.Credentials;
 import de.interactive_instruments.UriUtils;
 import de.interactive_instruments.exceptions.ExcUtils;
 
 /**
  * The container references an object with an URL.
  *
+ * If the content encoding is {@value #GZIP_ENCODING}, the referenced object is decompressed while it is loaded. The
+ * compressed bytes can be obtained with {@link #forceLoadEncodedAsStream(OutputStream)}, for instance to send them
+ * to HTTP clients that accept the encoding.
+ *
  * @author Jon Herrmann ( herrmann aT interactive-instruments doT de )
  *
  */
 @XmlRootElement(name = "UrlReferenceContainer")
 public class UrlReferenceContainer implements LazyLoadContainer {
 
+    public static final String GZIP_ENCODING = "gzip";
+
     @XmlAttribute
     String name;
 
@@ -50,19 +69,32 @@ public class UrlReferenceContainer implements LazyLoadContainer {
     @XmlAttribute
     URL referenceURL;
 
+    @XmlAttribute
+    String contentEncoding;
+
     @XmlAttribute
     boolean loadDataOnDemand;
 
     @XmlTransient
     long contentSize;
 
+    @XmlTransient
+    private Credentials credentials;
+
     UrlReferenceContainer() {}
 
     UrlReferenceContainer(final String name, final long size, final URL referenceURL, final String contentType,
             final boolean loadDataOnDemand) {
+        this(name, size, referenceURL, contentType, null, loadDataOnDemand);
+    }
+
+    UrlReferenceContainer(final String name, final long size, final URL referenceURL, final String contentType,
+            final String contentEncoding, final boolean loadDataOnDemand) {
         this.name = name;
         this.loadDataOnDemand = loadDataOnDemand;
         this.referenceURL = referenceURL;
+        this.contentType = contentType;
+        this.contentEncoding = contentEncoding;
         this.contentSize = size;
     }
 
@@ -71,6 +103,17 @@ public class UrlReferenceContainer implements LazyLoadContainer {
         this.name = name;
         this.loadDataOnDemand = loadDataOnDemand;
         this.referenceURL = referenceURL;
+        this.contentType = contentType;
+    }
+
+    /**
+     * Set the credentials that are used for loading the referenced object
+     *
+     * @param credentials
+     *            credentials or null
+     */
+    public void setCredentials(final Credentials credentials) {
+        this.credentials = credentials;
     }
 
     @Override
@@ -83,6 +126,19 @@ public class UrlReferenceContainer implements LazyLoadContainer {
         return contentType;
     }
 
+    /**
+     * Returns the encoding of the referenced object
+     *
+     * @return {@value #GZIP_ENCODING} or null if the object is not encoded
+     */
+    public String getContentEncoding() {
+        return contentEncoding;
+    }
+
+    private boolean isGzipped() {
+        return GZIP_ENCODING.equals(contentEncoding);
+    }
+
     @Override
     public String getAsString() throws IOException {
         if (loadDataOnDemand) {
@@ -97,7 +153,8 @@ public class UrlReferenceContainer implements LazyLoadContainer {
     }
 
     /**
-     * Returns the size of the referenced URL -2 if an error occurred -1 if the size is unknown
+     * Returns the size of the referenced URL -2 if an error occurred -1 if the size is unknown. The size of encoded
+     * objects is the decoded size, if it is known.
      *
      * @return file size, -2 if an error occurred, -1 if the size is unknown
      */
@@ -115,14 +172,42 @@ public class UrlReferenceContainer implements LazyLoadContainer {
     }
 
     private String loadData() throws IOException {
+        if (isGzipped()) {
+            final ByteArrayOutputStream outStream = new ByteArrayOutputStream(
+                    contentSize > 0 && contentSize < Integer.MAX_VALUE ? (int) contentSize : 65536);
+            forceLoadAsStream(outStream);
+            return new String(outStream.toByteArray(), StandardCharsets.UTF_8);
+        }
         try {
-            return UriUtils.loadAsString(referenceURL.toURI());
+            final Path path = localPath();
+            if (path != null) {
+                return new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+            }
+            if (contentSize > 0 && contentSize < Integer.MAX_VALUE) {
+                // pre-size the buffer
+                final ByteArrayOutputStream outStream = new ByteArrayOutputStream((int) contentSize);
+                UriUtils.stream(referenceURL.toURI(), outStream, credentials);
+                return new String(outStream.toByteArray(), StandardCharsets.UTF_8);
+            }
+            return UriUtils.loadAsString(referenceURL.toURI(), credentials);
         } catch (URISyntaxException e) {
             ExcUtils.suppress(e);
             return "InvalidUrlReferenceContainer";
         }
     }
 
+    /**
+     * Returns the path of a file: reference
+     *
+     * @return path or null if the referenced object is not a local file
+     */
+    private Path localPath() throws URISyntaxException {
+        if ("file".equalsIgnoreCase(referenceURL.getProtocol())) {
+            return Paths.get(referenceURL.toURI());
+        }
+        return null;
+    }
+
     @Override
     public String getName() {
         return this.name;
@@ -130,13 +215,92 @@ public class UrlReferenceContainer implements LazyLoadContainer {
 
     @Override
     public void forceLoadAsStream(OutputStream outStream) throws IOException {
-        final InputStream urlStream = referenceURL.openStream();
-        final byte[] buffer = new byte[1024];
-        int bytesRead;
-        while ((bytesRead = urlStream.read(buffer)) != -1) {
-            outStream.write(buffer, 0, bytesRead);
+        if (isGzipped()) {
+            try (final InputStream inputStream = new GZIPInputStream(openEncodedStream(), 65536)) {
+                final byte[] buffer = new byte[65536];
+                for (int read; (read = inputStream.read(buffer)) != -1;) {
+                    outStream.write(buffer, 0, read);
+                }
+            }
+            return;
+        }
+        forceLoadEncodedAsStream(outStream);
+    }
+
+    /**
+     * Writes the referenced object without decoding it
+     *
+     * @param outStream
+     *            target stream
+     * @throws IOException
+     *             if the object can not be read
+     * @see #getContentEncoding()
+     */
+    public void forceLoadEncodedAsStream(final OutputStream outStream) throws IOException {
+        try {
+            final Path path = localPath();
+            if (path != null) {
+                Files.copy(path, outStream);
+            } else {
+                UriUtils.stream(referenceURL.toURI(), outStream, credentials);
+            }
+        } catch (URISyntaxException e) {
+            throw new IOException("Invalid reference " + referenceURL, e);
+        }
+    }
+
+    private InputStream openEncodedStream() throws IOException {
+        try {
+            final Path path = localPath();
+            if (path != null) {
+                return Files.newInputStream(path);
+            }
+            return UriUtils.openStream(referenceURL.toURI(), credentials);
+        } catch (URISyntaxException e) {
+            throw new IOException("Invalid reference " + referenceURL, e);
+        }
+    }
+
+    /**
+     * Writes the referenced object to a channel. Local files are transferred with {@link FileChannel#transferTo}, which
+     * allows the operating system to copy the file directly to a socket. Encoded objects are decoded.
+     *
+     * @param channel
+     *            target channel
+     * @return number of written bytes
+     * @throws IOException
+     */
+    @Override
+    public long transferTo(final WritableByteChannel channel) throws IOException {
+        try {
+            final Path path = localPath();
+            if (path != null && !isGzipped()) {
+                try (final FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.READ)) {
+                    final long size = fileChannel.size();
+                    long position = 0;
+                    while (position < size) {
+                        position += fileChannel.transferTo(position, size - position, channel);
+                    }
+                    return position;
+                }
+            }
+            try (final InputStream inputStream = isGzipped() ? new GZIPInputStream(openEncodedStream(), 65536)
+                    : UriUtils.openStream(referenceURL.toURI(), credentials);
+                    final ReadableByteChannel source = Channels.newChannel(inputStream)) {
+                final ByteBuffer buffer = ByteBuffer.allocateDirect(65536);
+                long transferred = 0;
+                while (source.read(buffer) != -1) {
+                    buffer.flip();
+                    while (buffer.hasRemaining()) {
+                        transferred += channel.write(buffer);
+                    }
+                    buffer.clear();
+                }
+                return transferred;
+            }
+        } catch (URISyntaxException e) {
+            throw new IOException("Invalid reference " + referenceURL, e);
         }
-        urlStream.close();
     }
 
     @Override
@@ -144,6 +308,7 @@ public class UrlReferenceContainer implements LazyLoadContainer {
         return "UrlReferenceContainer{" + "name='" + name + '\'' +
                 ", contentType='" + contentType + '\'' +
                 ", referenceURL=" + referenceURL +
+                ", contentEncoding='" + contentEncoding + '\'' +
                 ", loadDataOnDemand=" + loadDataOnDemand +
                 '}';
     }
@@ -0,0 +1,246 @@
+/**
+ * Copyright 2017-2019 European Union, interactive instruments GmbH
+ * Licensed under the EUPL, Version 1.2 or - as soon they will be approved by
+ * the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ *
+ * This work was supported by the EU Interoperability Solutions for
+ * European Public Administrations Programme (http://ec.europa.eu/isa)
+ * through Action 1.17: A Reusable INSPIRE Reference Platform (ARE3NA).
+ */
+package de.interactive_instruments.container;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.interactive_instruments.IoUtils;
+import de.interactive_instruments.Releasable;
+
+/**
+ * Writes content to files on a background thread pool.
+ *
+ * Pending writes are queued and written in batches, optionally compressed with gzip. The memory that is occupied
+ * by queued content is bounded: if the limit is reached, {@link #write(Path, byte[], boolean)} blocks until enough
+ * content has been written. {@link #flush()} blocks until all writes that were queued before have been written and
+ * reports the first error that occurred.
+ *
+ * @author Jon Herrmann ( herrmann aT interactive-instruments doT de )
+ */
+final class WriteBehindWriter implements Releasable {
+
+    private static final Logger logger = LoggerFactory.getLogger(WriteBehindWriter.class);
+    private static final int BATCH_SIZE = 64;
+
+    private final ExecutorService executor;
+    private final int threads;
+    private final Semaphore queuedBytes;
+    private final int maxQueuedBytes;
+    private final BlockingQueue<PendingWrite> queue = new LinkedBlockingQueue<>();
+    private final AtomicInteger activeWorkers = new AtomicInteger();
+    private final AtomicReference<IOException> error = new AtomicReference<>();
+    private final Object flushLock = new Object();
+    // queued or currently written
+    private int pending;
+
+    private static final class PendingWrite {
+        private final Path target;
+        private final byte[] content;
+        private final boolean gzip;
+        private final int permits;
+
+        private PendingWrite(final Path target, final byte[] content, final boolean gzip, final int permits) {
+            this.target = target;
+            this.content = content;
+            this.gzip = gzip;
+            this.permits = permits;
+        }
+
+        private void write() throws IOException {
+            IoUtils.write(target, content, gzip);
+        }
+    }
+
+    /**
+     * Creates a new writer
+     *
+     * @param threads
+     *            number of writing threads
+     * @param maxQueuedBytes
+     *            max number of bytes that are queued
+     */
+    WriteBehindWriter(final int threads, final int maxQueuedBytes) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Invalid number of threads: " + threads);
+        }
+        if (maxQueuedBytes < 1) {
+            throw new IllegalArgumentException("Invalid queue size: " + maxQueuedBytes);
+        }
+        this.threads = threads;
+        this.maxQueuedBytes = maxQueuedBytes;
+        this.queuedBytes = new Semaphore(maxQueuedBytes);
+        final AtomicInteger threadCounter = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, r -> {
+            final Thread thread = new Thread(r, "WriteBehindWriter-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Queues the content for writing. Blocks if the max number of queued bytes is reached.
+     *
+     * @param target
+     *            file to write
+     * @param content
+     *            content of the file
+     * @param gzip
+     *            compress the content with gzip
+     * @throws IOException
+     *             if the thread is interrupted while waiting or the writer has been released
+     */
+    void write(final Path target, final byte[] content, final boolean gzip) throws IOException {
+        // content larger than the limit occupies the whole queue
+        final int permits = Math.max(1, Math.min(content.length, maxQueuedBytes));
+        try {
+            queuedBytes.acquire(permits);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for queued writes");
+        }
+        synchronized (flushLock) {
+            pending++;
+        }
+        final PendingWrite write = new PendingWrite(target, content, gzip, permits);
+        queue.add(write);
+        if (!startWorker() && queue.remove(write)) {
+            done(1, permits);
+            throw new IOException("Writer released");
+        }
+    }
+
+    private boolean startWorker() {
+        for (int active = activeWorkers.get(); active < threads; active = activeWorkers.get()) {
+            if (activeWorkers.compareAndSet(active, active + 1)) {
+                try {
+                    executor.execute(this::drain);
+                    return true;
+                } catch (final RejectedExecutionException e) {
+                    activeWorkers.decrementAndGet();
+                    return false;
+                }
+            }
+        }
+        // all workers are busy and will pick up the queued content
+        return !executor.isShutdown();
+    }
+
+    private void drain() {
+        final List<PendingWrite> batch = new ArrayList<>(BATCH_SIZE);
+        try {
+            while (queue.drainTo(batch, BATCH_SIZE) > 0) {
+                int permits = 0;
+                for (final PendingWrite write : batch) {
+                    permits += write.permits;
+                }
+                try {
+                    for (final PendingWrite write : batch) {
+                        try {
+                            write.write();
+                        } catch (final IOException e) {
+                            logger.error("Writing file {} failed: ", write.target, e);
+                            error.compareAndSet(null, e);
+                        } catch (final RuntimeException e) {
+                            logger.error("Writing file {} failed: ", write.target, e);
+                            error.compareAndSet(null, new IOException("Writing file " + write.target + " failed", e));
+                        }
+                    }
+                } finally {
+                    // otherwise flush() and blocked producers would wait forever
+                    done(batch.size(), permits);
+                    batch.clear();
+                }
+            }
+        } finally {
+            activeWorkers.decrementAndGet();
+        }
+        // an item may have been queued after the queue was drained but before the counter was decremented
+        if (!queue.isEmpty()) {
+            startWorker();
+        }
+    }
+
+    private void done(final int writes, final int permits) {
+        queuedBytes.release(permits);
+        synchronized (flushLock) {
+            pending -= writes;
+            if (pending == 0) {
+                flushLock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Blocks until all queued content has been written
+     *
+     * @throws IOException
+     *             if a write failed since the last flush, or the thread is interrupted while waiting
+     */
+    void flush() throws IOException {
+        synchronized (flushLock) {
+            while (pending > 0) {
+                try {
+                    flushLock.wait();
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for queued writes");
+                }
+            }
+        }
+        final IOException e = error.getAndSet(null);
+        if (e != null) {
+            throw new IOException("Writing queued content failed", e);
+        }
+    }
+
+    /**
+     * Number of writes that are queued or currently written
+     *
+     * @return number of pending writes
+     */
+    int getPending() {
+        synchronized (flushLock) {
+            return pending;
+        }
+    }
+
+    /**
+     * Writes the queued content and stops the threads
+     */
+    @Override
+    public void release() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
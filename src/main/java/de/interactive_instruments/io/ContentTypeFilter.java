@@ -20,6 +20,7 @@
 package de.interactive_instruments.io;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Objects;
@@ -27,12 +28,17 @@ import java.util.Set;
 
 import de.interactive_instruments.MimeTypeUtils;
 import de.interactive_instruments.exceptions.MimeTypeUtilsException;
+import de.interactive_instruments.xml.XmlRoot;
 
 /**
  * @author Jon Herrmann ( herrmann aT interactive-instruments doT de )
  */
 public class ContentTypeFilter implements MultiFileFilter {
 
+    // Types that are detected by sniffing the XML root element
+    private static final Set<String> XML_MIME_TYPES = new HashSet<>(
+            Arrays.asList("application/xml", "text/xml", "application/gml+xml"));
+
     private final Set<String> allowedMimeTypes;
 
     public ContentTypeFilter(final Set<String> allowedMimeTypes) {
@@ -51,11 +57,36 @@ public class ContentTypeFilter implements MultiFileFilter {
         return allowedMimeTypes.contains(mimeType);
     }
 
+    private boolean xmlTypesOnly() {
+        if (allowedMimeTypes.isEmpty()) {
+            return false;
+        }
+        for (final String mimeType : allowedMimeTypes) {
+            if (!XML_MIME_TYPES.contains(mimeType)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     @Override
     public boolean accept(final File path) {
         try {
+            if (xmlTypesOnly()) {
+                // a *.gml file is always GML, as with the content and file name based detection
+                final String globMimeType = MimeTypeUtils.detectMimeTypeFromFilename(path.getName());
+                if (XmlRoot.GML_MIME_TYPE.equals(globMimeType)) {
+                    return allowedMimeTypes.contains(globMimeType);
+                }
+                // only read the document up to the root element
+                final XmlRoot root = XmlRoot.sniff(path);
+                if (root == null) {
+                    return allowedMimeTypes.contains(globMimeType);
+                }
+                return allowedMimeTypes.contains(root.getMimeType());
+            }
             return allowedMimeTypes.contains(MimeTypeUtils.detectMimeType(path));
-        } catch (MimeTypeUtilsException e) {
+        } catch (MimeTypeUtilsException | IOException e) {
             return false;
         }
     }
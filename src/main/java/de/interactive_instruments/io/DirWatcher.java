@@ -25,7 +25,7 @@ import java.io.IOException;
 import java.nio.file.*;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.*;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -38,11 +38,20 @@ import de.interactive_instruments.Releasable;
 import de.interactive_instruments.exceptions.ExcUtils;
 
 /**
- * Implements the Observer pattern and notifies clients about file changes. Singleton. Registered listeners can be prioritized (see FileChangeListener).
+ * Implements the Observer pattern and notifies clients about file changes. Registered listeners can be prioritized (see
+ * FileChangeListener).
+ *
+ * Each DirWatcher instance uses its own WatchService, watch thread and dispatch executor, so that slow listeners of
+ * one instance do not delay the notification of listeners registered at another instance. The static register and
+ * unregister methods delegate to a shared default instance.
+ *
+ * Directories on file systems that do not support native change notifications (see
+ * {@link PollingDirWatcher#isPollingRequired(Path)}) or directories that are registered while no WatchService can be
+ * created are observed by a {@link PollingDirWatcher} owned by the DirWatcher instance.
  *
  * @author Jon Herrmann ( herrmann aT interactive-instruments doT de )
  */
-public final class DirWatcher {
+public final class DirWatcher implements Releasable {
 
     private final static Logger logger = LoggerFactory.getLogger(DirWatcher.class);
 
@@ -50,24 +59,25 @@ public final class DirWatcher {
     // private final Collection<FileChangeListener> listeners;
     // private final PathFilter filter;
 
-    private AtomicBoolean serviceRunning = new AtomicBoolean(false);
-    private AtomicBoolean eventFireInProgress = new AtomicBoolean(false);
+    private final String name;
+    private final AtomicBoolean serviceRunning = new AtomicBoolean(false);
 
-    private static WatchService watchService = null;
+    private volatile WatchService watchService = null;
     private Thread watchThread = null;
-    private Timer timer = null;
+    private PollingDirWatcher pollingWatcher = null;
+
+    // Guards the dispatch state, never held while listeners are invoked or while the instance monitor is acquired
+    private final Object fireLock = new Object();
+    private ScheduledExecutorService dispatchExecutor = null;
+    private ScheduledFuture<?> pendingFire = null;
 
     private final static MultiFileFilter defaultFileIgnoreFilter = new DefaultFileIgnoreFilter();
 
     private final ListenerRegistry listenerRegistry = new ListenerRegistry();
 
-    // Events fired for a path
+    // Events collected for the next fire, keyed by path
     private final TreeMap<Path, List<WatchEvent<?>>> watchedEvents = new TreeMap<>();
 
-    // Non-fair locking!
-    private final Lock processEventLock = new ReentrantLock();
-    private final Lock timerLock = new ReentrantLock();
-
     private static class WatchKeyListeners implements Releasable {
         private final TreeSet<FileChangeListener> listeners;
         private final WatchKey watchKey;
@@ -117,7 +127,7 @@ public final class DirWatcher {
         }
     }
 
-    private static class ListenerRegistry {
+    private class ListenerRegistry {
         // Note that the types are important for the map (priority notification)
         // Listeners observing root directories
         private final TreeMap<FileChangeListener, Set<Path>> registeredListenersForRootDirs = new TreeMap<>();
@@ -333,11 +343,51 @@ public final class DirWatcher {
         static final DirWatcher INSTANCE = new DirWatcher();
     }
 
+    /**
+     * Create a new DirWatcher. The WatchService is opened with the first registered listener and closed when the last
+     * listener is unregistered.
+     *
+     * @param name
+     *            name of the watch and dispatch threads
+     */
+    public DirWatcher(final String name) {
+        this.name = Objects.requireNonNull(name, "Name is null");
+    }
+
+    private DirWatcher() {
+        this(DirWatcher.class.getSimpleName());
+    }
+
+    /**
+     * Returns the shared instance used by the static register and unregister methods
+     *
+     * @return shared DirWatcher
+     */
+    public static DirWatcher getInstance() {
+        return InstanceHolder.INSTANCE;
+    }
+
     public static void register(final Path rootDir, final FileChangeListener listener) {
-        register(rootDir, Collections.singletonList(listener));
+        InstanceHolder.INSTANCE.registerListeners(rootDir, Collections.singletonList(listener));
     }
 
     public static void register(final Path rootDir, final Collection<FileChangeListener> listeners) {
+        InstanceHolder.INSTANCE.registerListeners(rootDir, listeners);
+    }
+
+    public static void unregister(final FileChangeListener listener) {
+        InstanceHolder.INSTANCE.unregisterListeners(Collections.singletonList(listener));
+    }
+
+    public static void unregister(final Collection<FileChangeListener> listeners) {
+        InstanceHolder.INSTANCE.unregisterListeners(listeners);
+    }
+
+    public void registerListener(final Path rootDir, final FileChangeListener listener) {
+        registerListeners(rootDir, Collections.singletonList(listener));
+    }
+
+    public synchronized void registerListeners(final Path rootDir, final Collection<FileChangeListener> listeners) {
         if (rootDir == null) {
             throw new IllegalArgumentException("Root directory is null");
         }
@@ -347,31 +397,60 @@ public final class DirWatcher {
         if (listeners == null || listeners.isEmpty() || listeners.iterator().next() == null) {
             throw new IllegalArgumentException("List of Listeners is empty or null");
         }
-        final DirWatcher instance = InstanceHolder.INSTANCE;
-        final boolean start = instance.listenerRegistry.listenerSize() < 1;
+        if (PollingDirWatcher.isPollingRequired(rootDir)) {
+            getPollingWatcher().register(rootDir, listeners);
+            return;
+        }
+        final boolean start = listenerRegistry.listenerSize() < 1;
 
         if (start) {
-            instance.prepareStart();
+            prepareStart();
+            if (watchService == null) {
+                logger.warn("Watch Service not available, falling back to polling");
+                getPollingWatcher().register(rootDir, listeners);
+                return;
+            }
         }
-        instance.listenerRegistry.registerListeners(listeners, rootDir);
-        instance.listenerRegistry.registerDirWatchesRecursively();
+        listenerRegistry.registerListeners(listeners, rootDir);
+        listenerRegistry.registerDirWatchesRecursively();
         if (start) {
-            instance.start();
+            start();
         }
     }
 
-    public static void unregister(final FileChangeListener listener) {
-        unregister(Collections.singletonList(listener));
+    public void unregisterListener(final FileChangeListener listener) {
+        unregisterListeners(Collections.singletonList(listener));
     }
 
-    public static void unregister(final Collection<FileChangeListener> listeners) {
-        final DirWatcher instance = InstanceHolder.INSTANCE;
-        instance.listenerRegistry.unregisterListeners(listeners);
-        if (instance.listenerRegistry.listenerSize() < 1) {
-            instance.stop();
+    public synchronized void unregisterListeners(final Collection<FileChangeListener> listeners) {
+        if (pollingWatcher != null) {
+            pollingWatcher.unregister(listeners);
+        }
+        listenerRegistry.unregisterListeners(listeners);
+        if (listenerRegistry.listenerSize() < 1) {
+            stop();
         }
     }
 
+    /**
+     * Stops watching and dispatching events for all listeners of this instance
+     */
+    @Override
+    public synchronized void release() {
+        if (pollingWatcher != null) {
+            pollingWatcher.release();
+        }
+        listenerRegistry.unregisterListeners(new ArrayList<>(listenerRegistry.registeredListenersForRootDirs.keySet()));
+        stop();
+    }
+
+    private PollingDirWatcher getPollingWatcher() {
+        if (pollingWatcher == null) {
+            pollingWatcher = new PollingDirWatcher(PollingDirWatcher.DEFAULT_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        }
+        return pollingWatcher;
+    }
+
     private List<WatchEvent<?>> pollEvents(final WatchKey watchKey) {
         final List<WatchEvent<?>> events = watchKey.pollEvents();
         if (events.isEmpty()) {
@@ -406,34 +485,47 @@ public final class DirWatcher {
             logger.error("RecursiveDirWatcher already started!");
             return;
         }
+        synchronized (fireLock) {
+            dispatchExecutor = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, name + "Dispatch"));
+        }
+        // The thread only uses its own service, a listener may restart the watcher while the thread terminates
+        final WatchService service = watchService;
+        serviceRunning.set(true);
         watchThread = new Thread(() -> {
-            serviceRunning.set(true);
-            while (serviceRunning.get()) {
+            for (;;) {
                 try {
-                    final WatchKey watchKey = watchService.take();
+                    final WatchKey watchKey = service.take();
                     final List<WatchEvent<?>> events = pollEvents(watchKey);
                     watchKey.reset();
                     if (!events.isEmpty()) {
                         delayedFire(events, (Path) watchKey.watchable());
                     }
                 } catch (InterruptedException | ClosedWatchServiceException e) {
-                    serviceRunning.set(false);
+                    return;
                 }
             }
-        }, this.getClass().getSimpleName());
+        }, name);
         watchThread.start();
     }
 
     private synchronized void stop() {
         if (watchThread != null) {
             try {
-                if (timer != null) {
-                    timer.cancel();
+                synchronized (fireLock) {
+                    if (dispatchExecutor != null) {
+                        dispatchExecutor.shutdownNow();
+                        dispatchExecutor = null;
+                        pendingFire = null;
+                        watchedEvents.clear();
+                    }
+                }
+                if (watchService != null) {
+                    watchService.close();
+                    watchService = null;
                 }
-                watchService.close();
-                watchService = null;
                 serviceRunning.set(false);
                 watchThread.interrupt();
+                watchThread = null;
             } catch (IOException e) {
                 ExcUtils.suppress(e);
             }
@@ -445,58 +537,58 @@ public final class DirWatcher {
         this.stop();
     }
 
-    private synchronized void delayedFire(final List<WatchEvent<?>> events, final Path watchable) throws InterruptedException {
-        if (timer != null) {
-            // Kill scheduled threads but wait for started once
-            if (eventFireInProgress.get()) {
-                // wait for it
-                logger.trace("Waiting for event trigger to complete");
-                synchronized (eventFireInProgress) {
-                    eventFireInProgress.wait();
-                }
-            } else {
-                timer.cancel();
+    /**
+     * Collects the events and (re)schedules the notification of the listeners. The watch thread does not wait for a
+     * running notification: the events are collected for the next one.
+     */
+    private void delayedFire(final List<WatchEvent<?>> events, final Path watchable) throws InterruptedException {
+        synchronized (fireLock) {
+            // Cancel a scheduled task, the events are merged with the new ones
+            if (pendingFire != null && pendingFire.cancel(false)) {
                 logger.trace("Canceled file event trigger preparation");
             }
-        }
+            final List<WatchEvent<?>> entries = watchedEvents.get(watchable);
+            if (entries != null) {
+                entries.addAll(events);
+            } else {
+                watchedEvents.put(watchable, new ArrayList<>(events));
+            }
 
-        // Add events to an existing watchable. Applicable, when a
-        // scheduled task was canceled.
-        final List<WatchEvent<?>> entries = watchedEvents.get(watchable);
-        if (entries != null) {
-            entries.addAll(events);
-        } else {
-            watchedEvents.put(watchable, events);
+            logger.trace("Preparing to trigger changed file events");
+            if (dispatchExecutor == null) {
+                watchedEvents.clear();
+                throw new InterruptedException("Watcher stopped");
+            }
+            try {
+                pendingFire = dispatchExecutor.schedule(this::fire, fireDelay, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                // stopped in the meantime
+                watchedEvents.clear();
+                throw new InterruptedException("Watcher stopped");
+            }
         }
+    }
 
-        timer = new Timer("RecursiveDirWatchDelay");
-        logger.trace("Preparing to trigger changed file events");
-        timer.schedule(new TimerTask() {
-            @Override
-            public void run() {
-                try {
-                    eventFireInProgress.set(true);
-                    // Fire
-                    final TreeSet<FileChangeListener> targetListeners = listenerRegistry.getListeners(watchedEvents.keySet());
-                    for (final FileChangeListener targetListener : targetListeners) {
-                        logger.trace("Triggering changed file events for {}", targetListener.toString());
-                        try {
-                            targetListener.fileChanged(watchedEvents);
-                        } catch (Exception e) {
-                            logger.error("Failed to invoke " + FileChangeListener.class.getSimpleName() + " "
-                                    + targetListener.getClass().getName(), e);
-                        }
-                    }
-                    listenerRegistry.updateDirectories();
-                } finally {
-                    watchedEvents.clear();
-                    eventFireInProgress.set(false);
-                    // notify waiting threads
-                    synchronized (eventFireInProgress) {
-                        eventFireInProgress.notify();
-                    }
-                }
+    private void fire() {
+        // Listeners are invoked without holding a lock, so they may register or unregister listeners
+        final Map<Path, List<WatchEvent<?>>> events;
+        synchronized (fireLock) {
+            if (watchedEvents.isEmpty()) {
+                return;
             }
-        }, fireDelay);
+            events = new TreeMap<>(watchedEvents);
+            watchedEvents.clear();
+        }
+        final TreeSet<FileChangeListener> targetListeners = listenerRegistry.getListeners(events.keySet());
+        for (final FileChangeListener targetListener : targetListeners) {
+            logger.trace("Triggering changed file events for {}", targetListener.toString());
+            try {
+                targetListener.fileChanged(events);
+            } catch (Exception e) {
+                logger.error("Failed to invoke " + FileChangeListener.class.getSimpleName() + " "
+                        + targetListener.getClass().getName(), e);
+            }
+        }
+        listenerRegistry.updateDirectories();
     }
 }
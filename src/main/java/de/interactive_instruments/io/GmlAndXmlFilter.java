@@ -26,6 +26,7 @@ public class GmlAndXmlFilter implements FileContentFilterHolder {
 
     private final static GmlAndXmlFilter instance = new GmlAndXmlFilter();
     private ContentTypeFilter contentFilter = new ContentTypeFilter("application/xml", "application/gml+xml");
+    private ContentTypeFilter gmlContentFilter = new ContentTypeFilter("application/gml+xml");
     private MultiFileFilter filenameFilter = new FilenameExtensionFilter(".xml", ".gml");
 
     private GmlAndXmlFilter() {}
@@ -39,6 +40,16 @@ public class GmlAndXmlFilter implements FileContentFilterHolder {
         return contentFilter;
     }
 
+    /**
+     * Returns a filter that only accepts XML documents whose root element is in a GML namespace or declares a GML
+     * namespace
+     *
+     * @return GML content filter
+     */
+    public ContentTypeFilter gmlContent() {
+        return gmlContentFilter;
+    }
+
     @Override
     public MultiFileFilter filename() {
         return filenameFilter;
@@ -0,0 +1,419 @@
+/**
+ * Copyright 2017-2019 European Union, interactive instruments GmbH
+ * Licensed under the EUPL, Version 1.2 or - as soon they will be approved by
+ * the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ *
+ * This work was supported by the EU Interoperability Solutions for
+ * European Public Administrations Programme (http://ec.europa.eu/isa)
+ * through Action 1.17: A Reusable INSPIRE Reference Platform (ARE3NA).
+ */
+package de.interactive_instruments.io;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.interactive_instruments.Releasable;
+import de.interactive_instruments.exceptions.ExcUtils;
+
+/**
+ * A directory watcher that periodically scans the registered directories instead of relying on a WatchService.
+ *
+ * Native watch services do not deliver events for network file systems like NFS or SMB. This watcher keeps a compact
+ * snapshot of the relative path, size and modification time of every file below a registered root directory and diffs
+ * it against a new snapshot on every poll. The directory trees are scanned in parallel. Listeners are notified with
+ * the same watchable event maps as the {@link DirWatcher} (ENTRY_CREATE, ENTRY_DELETE and ENTRY_MODIFY events keyed by
+ * the parent directory and with the file name as context).
+ *
+ * The default poll interval can be set with the system property {@code ii.dirwatcher.polling.interval} in
+ * milliseconds. Polling for all directories can be enforced in the {@link DirWatcher} by setting the system property
+ * {@code ii.dirwatcher.polling} to true.
+ *
+ * @author Jon Herrmann ( herrmann aT interactive-instruments doT de )
+ */
+public final class PollingDirWatcher implements Releasable {
+
+    private final static Logger logger = LoggerFactory.getLogger(PollingDirWatcher.class);
+
+    final static long DEFAULT_INTERVAL_MS = Long.getLong("ii.dirwatcher.polling.interval", 5000);
+
+    // File system types that do not support native file change notifications
+    private final static Set<String> unsupportedFileStoreTypes = new HashSet<>(Arrays.asList(
+            "nfs", "nfs4", "cifs", "smb", "smb2", "smbfs", "fuse.sshfs", "9p", "vboxsf", "afs"));
+
+    private final static MultiFileFilter defaultFileIgnoreFilter = new DefaultFileIgnoreFilter();
+
+    private final long interval;
+    private final TimeUnit unit;
+    private final ConcurrentMap<Path, WatchedRoot> roots = new ConcurrentHashMap<>();
+    private ScheduledExecutorService scheduler;
+    // read by the polling thread, set to null when the watcher is stopped
+    private volatile ForkJoinPool scanPool;
+
+    private static final class InstanceHolder {
+        static final PollingDirWatcher INSTANCE = new PollingDirWatcher(DEFAULT_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Compact, sorted representation of a directory tree. Directories are marked with a negative size.
+     */
+    static final class Snapshot {
+        private static final long DIRECTORY = -1;
+        static final Snapshot EMPTY = new Snapshot(new String[0], new long[0], new long[0]);
+
+        private final String[] paths;
+        private final long[] sizes;
+        private final long[] modTimes;
+
+        private Snapshot(final String[] paths, final long[] sizes, final long[] modTimes) {
+            this.paths = paths;
+            this.sizes = sizes;
+            this.modTimes = modTimes;
+        }
+
+        private static Snapshot create(final List<SnapshotEntry> entries) {
+            entries.sort(Comparator.comparing(e -> e.path));
+            final int size = entries.size();
+            final String[] paths = new String[size];
+            final long[] sizes = new long[size];
+            final long[] modTimes = new long[size];
+            for (int i = 0; i < size; i++) {
+                final SnapshotEntry e = entries.get(i);
+                paths[i] = e.path;
+                sizes[i] = e.size;
+                modTimes[i] = e.modTime;
+            }
+            return new Snapshot(paths, sizes, modTimes);
+        }
+
+        int size() {
+            return paths.length;
+        }
+
+        /**
+         * Merges the sorted entries of this (older) and the newer snapshot and adds the differences to the event map
+         *
+         * @param newer
+         *            newer snapshot
+         * @param root
+         *            root directory of both snapshots
+         * @param events
+         *            map to which the events are added, keyed by the parent directory
+         */
+        void diff(final Snapshot newer, final Path root, final Map<Path, List<WatchEvent<?>>> events) {
+            int i = 0, j = 0;
+            while (i < paths.length || j < newer.paths.length) {
+                final int cmp;
+                if (i == paths.length) {
+                    cmp = 1;
+                } else if (j == newer.paths.length) {
+                    cmp = -1;
+                } else {
+                    cmp = paths[i].compareTo(newer.paths[j]);
+                }
+                if (cmp < 0) {
+                    addEvent(events, root.resolve(paths[i]), ENTRY_DELETE);
+                    i++;
+                } else if (cmp > 0) {
+                    addEvent(events, root.resolve(newer.paths[j]), ENTRY_CREATE);
+                    j++;
+                } else {
+                    if (sizes[i] != newer.sizes[j] ||
+                            (sizes[i] != DIRECTORY && modTimes[i] != newer.modTimes[j])) {
+                        addEvent(events, root.resolve(paths[i]), ENTRY_MODIFY);
+                    }
+                    i++;
+                    j++;
+                }
+            }
+        }
+
+        private static void addEvent(final Map<Path, List<WatchEvent<?>>> events, final Path path,
+                final WatchEvent.Kind<Path> kind) {
+            events.computeIfAbsent(path.getParent(), k -> new ArrayList<>()).add(
+                    new PollWatchEvent(kind, path.getFileName()));
+        }
+    }
+
+    private static final class SnapshotEntry {
+        private final String path;
+        private final long size;
+        private final long modTime;
+
+        private SnapshotEntry(final String path, final long size, final long modTime) {
+            this.path = path;
+            this.size = size;
+            this.modTime = modTime;
+        }
+    }
+
+    private static final class PollWatchEvent implements WatchEvent<Path> {
+        private final Kind<Path> kind;
+        private final Path context;
+
+        private PollWatchEvent(final Kind<Path> kind, final Path context) {
+            this.kind = kind;
+            this.context = context;
+        }
+
+        @Override
+        public Kind<Path> kind() {
+            return kind;
+        }
+
+        @Override
+        public int count() {
+            return 1;
+        }
+
+        @Override
+        public Path context() {
+            return context;
+        }
+    }
+
+    /**
+     * Scans one directory and forks a new task for each sub directory
+     */
+    private static final class ScanTask extends RecursiveTask<List<SnapshotEntry>> {
+        private static final long serialVersionUID = 3270981652014823710L;
+        private final Path root;
+        private final Path dir;
+
+        private ScanTask(final Path root, final Path dir) {
+            this.root = root;
+            this.dir = dir;
+        }
+
+        @Override
+        protected List<SnapshotEntry> compute() {
+            final List<SnapshotEntry> entries = new ArrayList<>();
+            final List<ScanTask> subTasks = new ArrayList<>();
+            try (final DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+                for (final Path path : stream) {
+                    if (!defaultFileIgnoreFilter.accept(path)) {
+                        continue;
+                    }
+                    final BasicFileAttributes attrs;
+                    try {
+                        attrs = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                    } catch (IOException ign) {
+                        // deleted in the meantime
+                        ExcUtils.suppress(ign);
+                        continue;
+                    }
+                    final String relativePath = root.relativize(path).toString();
+                    final long modTime = attrs.lastModifiedTime().toMillis();
+                    if (attrs.isDirectory()) {
+                        entries.add(new SnapshotEntry(relativePath, Snapshot.DIRECTORY, modTime));
+                        final ScanTask subTask = new ScanTask(root, path);
+                        subTask.fork();
+                        subTasks.add(subTask);
+                    } else {
+                        entries.add(new SnapshotEntry(relativePath, attrs.size(), modTime));
+                    }
+                }
+            } catch (IOException | DirectoryIteratorException ign) {
+                ExcUtils.suppress(ign);
+            }
+            for (final ScanTask subTask : subTasks) {
+                entries.addAll(subTask.join());
+            }
+            return entries;
+        }
+    }
+
+    private static final class WatchedRoot {
+        private final Path dir;
+        private final Set<FileChangeListener> listeners = new ConcurrentSkipListSet<>();
+        private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+        private WatchedRoot(final Path dir) {
+            this.dir = dir;
+        }
+    }
+
+    /**
+     * Create a new polling watcher
+     *
+     * @param interval
+     *            delay between the end of one and the start of the next scan
+     * @param unit
+     *            TimeUnit of the interval
+     */
+    public PollingDirWatcher(final long interval, final TimeUnit unit) {
+        if (interval <= 0) {
+            throw new IllegalArgumentException("Invalid poll interval: " + interval);
+        }
+        this.interval = interval;
+        this.unit = Objects.requireNonNull(unit, "TimeUnit is null");
+    }
+
+    /**
+     * Returns the shared instance that uses the default poll interval
+     *
+     * @return shared PollingDirWatcher
+     */
+    public static PollingDirWatcher getInstance() {
+        return InstanceHolder.INSTANCE;
+    }
+
+    /**
+     * Checks if changes in a directory must be detected by polling, either because the file store of the directory does
+     * not support native file change notifications or because polling is enforced with the system property
+     * {@code ii.dirwatcher.polling}.
+     *
+     * @param dir
+     *            directory to check
+     * @return true if the directory should be watched with a PollingDirWatcher
+     */
+    public static boolean isPollingRequired(final Path dir) {
+        if (Boolean.getBoolean("ii.dirwatcher.polling")) {
+            return true;
+        }
+        try {
+            final String type = Files.getFileStore(dir).type();
+            return type != null && unsupportedFileStoreTypes.contains(type.toLowerCase(Locale.ENGLISH));
+        } catch (IOException ign) {
+            ExcUtils.suppress(ign);
+            return false;
+        }
+    }
+
+    public void register(final Path rootDir, final FileChangeListener listener) {
+        register(rootDir, Collections.singletonList(listener));
+    }
+
+    public synchronized void register(final Path rootDir, final Collection<FileChangeListener> listeners) {
+        if (rootDir == null) {
+            throw new IllegalArgumentException("Root directory is null");
+        }
+        if (!Files.exists(rootDir)) {
+            throw new IllegalArgumentException("Root directory '" + rootDir.toAbsolutePath().toString() + "' does not exists");
+        }
+        if (listeners == null || listeners.isEmpty() || listeners.iterator().next() == null) {
+            throw new IllegalArgumentException("List of Listeners is empty or null");
+        }
+        if (scheduler == null) {
+            start();
+        }
+        final Path dir = rootDir.toAbsolutePath().normalize();
+        final WatchedRoot root = roots.computeIfAbsent(dir, d -> {
+            final WatchedRoot r = new WatchedRoot(d);
+            r.snapshot = scan(scanPool, d);
+            return r;
+        });
+        root.listeners.addAll(listeners);
+    }
+
+    public void unregister(final FileChangeListener listener) {
+        unregister(Collections.singletonList(listener));
+    }
+
+    public synchronized void unregister(final Collection<FileChangeListener> listeners) {
+        for (final WatchedRoot root : roots.values()) {
+            root.listeners.removeAll(listeners);
+        }
+        roots.values().removeIf(r -> r.listeners.isEmpty());
+        if (roots.isEmpty()) {
+            stop();
+        }
+    }
+
+    /**
+     * Stop polling and remove all listeners
+     */
+    @Override
+    public synchronized void release() {
+        roots.clear();
+        stop();
+    }
+
+    private void start() {
+        scanPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            final Thread thread = new Thread(r, this.getClass().getSimpleName());
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::poll, interval, interval, unit);
+    }
+
+    private void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scanPool.shutdownNow();
+            scheduler = null;
+            scanPool = null;
+        }
+    }
+
+    private static Snapshot scan(final ForkJoinPool pool, final Path dir) {
+        if (!Files.isDirectory(dir)) {
+            return Snapshot.EMPTY;
+        }
+        return Snapshot.create(pool.invoke(new ScanTask(dir, dir)));
+    }
+
+    private void poll() {
+        // the watcher may be stopped concurrently
+        final ForkJoinPool pool = scanPool;
+        if (pool == null) {
+            return;
+        }
+        try {
+            final Map<FileChangeListener, Map<Path, List<WatchEvent<?>>>> listenerEvents = new TreeMap<>();
+            for (final WatchedRoot root : roots.values()) {
+                final Snapshot newSnapshot = scan(pool, root.dir);
+                final Map<Path, List<WatchEvent<?>>> events = new TreeMap<>();
+                root.snapshot.diff(newSnapshot, root.dir, events);
+                root.snapshot = newSnapshot;
+                if (events.isEmpty()) {
+                    continue;
+                }
+                for (final FileChangeListener listener : root.listeners) {
+                    final MultiFileFilter filter = listener.fileChangePreFilter();
+                    final Map<Path, List<WatchEvent<?>>> target = listenerEvents.computeIfAbsent(listener,
+                            l -> new TreeMap<>());
+                    for (final Map.Entry<Path, List<WatchEvent<?>>> e : events.entrySet()) {
+                        if (filter == null || filter.accept(e.getKey())) {
+                            target.computeIfAbsent(e.getKey(), k -> new ArrayList<>()).addAll(e.getValue());
+                        }
+                    }
+                }
+            }
+            for (final Map.Entry<FileChangeListener, Map<Path, List<WatchEvent<?>>>> e : listenerEvents.entrySet()) {
+                if (e.getValue().isEmpty()) {
+                    continue;
+                }
+                logger.trace("Triggering changed file events for {}", e.getKey().toString());
+                try {
+                    e.getKey().fileChanged(e.getValue());
+                } catch (Exception ex) {
+                    logger.error("Failed to invoke " + FileChangeListener.class.getSimpleName() + " "
+                            + e.getKey().getClass().getName(), ex);
+                }
+            }
+        } catch (RejectedExecutionException | CancellationException ign) {
+            // watcher stopped during the scan
+            ExcUtils.suppress(ign);
+        }
+    }
+}
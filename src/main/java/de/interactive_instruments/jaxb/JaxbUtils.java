@@ -19,16 +19,30 @@
  */
 package de.interactive_instruments.jaxb;
 
+import java.beans.Introspector;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.ref.SoftReference;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.GenericDeclaration;
+import java.lang.reflect.Member;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.lang.reflect.TypeVariable;
-import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
+import java.lang.reflect.WildcardType;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
 
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
 import javax.xml.bind.annotation.XmlNs;
 import javax.xml.bind.annotation.XmlRootElement;
 import javax.xml.bind.annotation.XmlSchema;
+import javax.xml.namespace.QName;
 
 import org.apache.commons.lang3.ClassUtils;
 
@@ -50,7 +64,72 @@ public class JaxbUtils {
     }
 
     /**
-     * Analyze namespace and return default package namespace
+     * Namespace declarations and root element of a class, derived from the JAXB annotations of the class, its package
+     * and its super classes
+     */
+    private static final class AnnotationMetadata {
+        // namespace URIs and prefixes in the order they are added to a builder, the prefix may be null
+        private final String[][] namespaces;
+        private final String defaultNamespaceUri;
+        private final QName rootElement;
+
+        private AnnotationMetadata(final Class<?> clasz) {
+            final List<String[]> nss = new ArrayList<>();
+            final XmlRootElement[] rootElementAnnotation = clasz.getAnnotationsByType(XmlRootElement.class);
+            String defaultNs = "";
+            String rootNamespace = null;
+            if (rootElementAnnotation.length == 1) {
+                final String namespace = rootElementAnnotation[0].namespace();
+                if (!isEmptyOrDefault(namespace)) {
+                    nss.add(new String[]{namespace, null});
+                    rootNamespace = namespace;
+                }
+            }
+            String packageNamespace = "";
+            if (clasz.getPackage() != null) {
+                // Get additional namespace from XmlSchema package annotation
+                final XmlSchema[] packageNamespaceAnnotation = clasz.getPackage().getAnnotationsByType(XmlSchema.class);
+                if (packageNamespaceAnnotation.length == 1) {
+                    final XmlSchema schemaAnnotation = packageNamespaceAnnotation[0];
+                    if (!isEmptyOrDefault(schemaAnnotation.namespace())) {
+                        defaultNs = schemaAnnotation.namespace();
+                        packageNamespace = schemaAnnotation.namespace();
+                        nss.add(new String[]{schemaAnnotation.namespace(), null});
+                    }
+                    for (final XmlNs xmlNs : schemaAnnotation.xmlns()) {
+                        if (!isEmptyOrDefault(xmlNs.namespaceURI())) {
+                            nss.add(new String[]{xmlNs.namespaceURI(),
+                                    isEmptyOrDefault(xmlNs.prefix()) ? null : xmlNs.prefix()});
+                        }
+                    }
+                }
+                final Class<?> superClass = clasz.getSuperclass();
+                if (superClass != null && !ClassUtils.isPrimitiveOrWrapper(superClass)) {
+                    nss.addAll(Arrays.asList(metadata.get(superClass).namespaces));
+                }
+            }
+            this.namespaces = nss.toArray(new String[nss.size()][]);
+            this.defaultNamespaceUri = defaultNs;
+            if (rootElementAnnotation.length == 1) {
+                final String name = rootElementAnnotation[0].name();
+                this.rootElement = new QName(
+                        rootNamespace != null ? rootNamespace : packageNamespace,
+                        isEmptyOrDefault(name) ? Introspector.decapitalize(clasz.getSimpleName()) : name);
+            } else {
+                this.rootElement = null;
+            }
+        }
+    }
+
+    private static final ClassValue<AnnotationMetadata> metadata = new ClassValue<AnnotationMetadata>() {
+        @Override
+        protected AnnotationMetadata computeValue(final Class<?> type) {
+            return new AnnotationMetadata(type);
+        }
+    };
+
+    /**
+     * Analyze namespace and return default package namespace. The annotations of a class are only analyzed once.
      *
      * @param clasz
      *            class to analyze
@@ -59,51 +138,272 @@ public class JaxbUtils {
      * @return default namespace URI
      */
     public static String analyzeNamespacesFromAnnotations(final Class<?> clasz, final NamespaceBuilder nsB) {
-        final XmlRootElement[] rootElementAnnotation = clasz.getAnnotationsByType(XmlRootElement.class);
-        String defaultNamespaceUri = "";
-        if (rootElementAnnotation.length == 1) {
-            final String namespace = rootElementAnnotation[0].namespace();
-            if (!isEmptyOrDefault(namespace)) {
-                // defaultNamespaceUri=namespace;
-                if (!nsB.hasPrefixForNamespace(namespace)) {
-                    nsB.addNamespaceUri(namespace);
+        final AnnotationMetadata classMetadata = metadata.get(clasz);
+        for (final String[] namespace : classMetadata.namespaces) {
+            if (namespace[1] == null) {
+                if (!nsB.hasPrefixForNamespace(namespace[0])) {
+                    nsB.addNamespaceUri(namespace[0]);
                 }
+            } else if (nsB.getPrefix(namespace[0]) == null) {
+                nsB.addNamespaceUriAndPrefix(namespace[0], namespace[1]);
             }
         }
+        return classMetadata.defaultNamespaceUri;
+    }
 
-        if (clasz.getPackage() != null) {
-            // Get additional namespace from XmlSchema package annotation
-            final XmlSchema[] packageNamespaceAnnotation = clasz.getPackage().getAnnotationsByType(XmlSchema.class);
-            if (packageNamespaceAnnotation.length == 1) {
-                final XmlSchema schemaAnnotation = packageNamespaceAnnotation[0];
-                if (!isEmptyOrDefault(schemaAnnotation.namespace())) {
-                    if (SUtils.isNullOrEmpty(defaultNamespaceUri)) {
-                        defaultNamespaceUri = schemaAnnotation.namespace();
-                    }
-                    if (!nsB.hasPrefixForNamespace(schemaAnnotation.namespace())) {
-                        nsB.addNamespaceUri(schemaAnnotation.namespace());
-                    }
-                }
-                if (schemaAnnotation.xmlns().length > 0) {
-                    for (final XmlNs xmlNs : schemaAnnotation.xmlns()) {
-                        if (!isEmptyOrDefault(xmlNs.namespaceURI()) &&
-                                nsB.getPrefix(xmlNs.namespaceURI()) == null) {
-                            if (isEmptyOrDefault(xmlNs.prefix())) {
-                                nsB.addNamespaceUri(xmlNs.prefix());
-                            } else {
-                                nsB.addNamespaceUriAndPrefix(xmlNs.namespaceURI(), xmlNs.prefix());
-                            }
-                        }
-                    }
+    /**
+     * Returns the name of the XML root element of a class annotated with {@link XmlRootElement}
+     *
+     * @param clasz
+     *            annotated class
+     * @return qualified name or null if the class is not annotated
+     */
+    public static QName getRootElementName(final Class<?> clasz) {
+        return metadata.get(clasz).rootElement;
+    }
+
+    // The contexts are stored with the class values and do not keep the classes and their class loaders reachable
+    private static final ClassValue<JAXBContext> contexts = new ClassValue<JAXBContext>() {
+        @Override
+        protected JAXBContext computeValue(final Class<?> type) {
+            try {
+                return JAXBContext.newInstance(type);
+            } catch (final JAXBException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    };
+
+    // Contexts for multiple classes, stored with the class whose class loader can see all other classes
+    private static final ClassValue<Map<List<Class<?>>, JAXBContext>> multiClassContexts = new ClassValue<
+            Map<List<Class<?>>, JAXBContext>>() {
+        @Override
+        protected Map<List<Class<?>>, JAXBContext> computeValue(final Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    // Marshallers and Unmarshallers are not thread-safe. They reference their context, so they are softly referenced
+    // to not prevent the weakly referenced contexts from being released.
+    private static final ThreadLocal<Map<JAXBContext, SoftReference<Marshaller>>> marshallers = ThreadLocal
+            .withInitial(WeakHashMap::new);
+    private static final ThreadLocal<Map<JAXBContext, SoftReference<Unmarshaller>>> unmarshallers = ThreadLocal
+            .withInitial(WeakHashMap::new);
+
+    private static boolean isAncestorOrSelf(final ClassLoader ancestor, final ClassLoader classLoader) {
+        for (ClassLoader cl = classLoader; cl != null; cl = cl.getParent()) {
+            if (cl == ancestor) {
+                return true;
+            }
+        }
+        return ancestor == null;
+    }
+
+    /**
+     * Returns the class whose class loader is a descendant of the class loaders of all classes or null if the classes
+     * are loaded by unrelated class loaders
+     */
+    private static Class<?> getOwnerClass(final Class<?>[] classes) {
+        Class<?> owner = classes[0];
+        for (final Class<?> clasz : classes) {
+            if (isAncestorOrSelf(owner.getClassLoader(), clasz.getClassLoader())) {
+                owner = clasz;
+            } else if (!isAncestorOrSelf(clasz.getClassLoader(), owner.getClassLoader())) {
+                return null;
+            }
+        }
+        return owner;
+    }
+
+    /**
+     * Returns a shared JAXBContext for the classes. JAXBContexts are thread-safe and expensive to create.
+     *
+     * The shared contexts do not prevent the classes from being unloaded. A new context is created on each call, if the
+     * classes are loaded by unrelated class loaders.
+     *
+     * @param classes
+     *            classes to be recognized by the context
+     * @return shared JAXBContext
+     * @throws JAXBException
+     *             if the context can not be created
+     */
+    public static JAXBContext getContext(final Class<?>... classes) throws JAXBException {
+        try {
+            if (classes.length == 1) {
+                return contexts.get(classes[0]);
+            }
+            final Class<?> owner = getOwnerClass(classes);
+            if (owner == null) {
+                return JAXBContext.newInstance(classes);
+            }
+            return multiClassContexts.get(owner).computeIfAbsent(Arrays.asList(classes.clone()), c -> {
+                try {
+                    return JAXBContext.newInstance(classes);
+                } catch (final JAXBException e) {
+                    throw new IllegalStateException(e);
                 }
+            });
+        } catch (final IllegalStateException e) {
+            if (e.getCause() instanceof JAXBException) {
+                throw (JAXBException) e.getCause();
             }
+            throw e;
+        }
+    }
+
+    /**
+     * Returns a Marshaller of the context that is reused by the current thread. Properties that are changed on the
+     * Marshaller are kept for subsequent calls in the same thread.
+     *
+     * @param context
+     *            JAXBContext
+     * @return thread local Marshaller
+     * @throws JAXBException
+     *             if the Marshaller can not be created
+     */
+    public static Marshaller getMarshaller(final JAXBContext context) throws JAXBException {
+        final Map<JAXBContext, SoftReference<Marshaller>> threadMarshallers = marshallers.get();
+        final SoftReference<Marshaller> ref = threadMarshallers.get(context);
+        Marshaller marshaller = ref != null ? ref.get() : null;
+        if (marshaller == null) {
+            marshaller = context.createMarshaller();
+            threadMarshallers.put(context, new SoftReference<>(marshaller));
+        }
+        return marshaller;
+    }
+
+    /**
+     * Returns an Unmarshaller of the context that is reused by the current thread.
+     *
+     * @param context
+     *            JAXBContext
+     * @return thread local Unmarshaller
+     * @throws JAXBException
+     *             if the Unmarshaller can not be created
+     */
+    public static Unmarshaller getUnmarshaller(final JAXBContext context) throws JAXBException {
+        final Map<JAXBContext, SoftReference<Unmarshaller>> threadUnmarshallers = unmarshallers.get();
+        final SoftReference<Unmarshaller> ref = threadUnmarshallers.get(context);
+        Unmarshaller unmarshaller = ref != null ? ref.get() : null;
+        if (unmarshaller == null) {
+            unmarshaller = context.createUnmarshaller();
+            threadUnmarshallers.put(context, new SoftReference<>(unmarshaller));
+        }
+        return unmarshaller;
+    }
 
-            final Class<?> superClass = clasz.getSuperclass();
-            if (superClass != null && !ClassUtils.isPrimitiveOrWrapper(superClass)) {
-                analyzeNamespacesFromAnnotations(superClass, nsB);
+    /**
+     * Marshals an object with the shared context of its class and a thread local Marshaller
+     *
+     * @param object
+     *            object to marshal
+     * @param outputStream
+     *            target stream
+     * @throws JAXBException
+     *             if the object can not be marshalled
+     */
+    public static void marshal(final Object object, final OutputStream outputStream) throws JAXBException {
+        getMarshaller(getContext(object.getClass())).marshal(object, outputStream);
+    }
+
+    /**
+     * Unmarshals an object with the shared context of a class and a thread local Unmarshaller
+     *
+     * @param type
+     *            type of the object
+     * @param inputStream
+     *            source stream
+     * @return unmarshalled object
+     * @throws JAXBException
+     *             if the stream can not be unmarshalled
+     */
+    public static <T> T unmarshal(final Class<T> type, final InputStream inputStream) throws JAXBException {
+        return type.cast(getUnmarshaller(getContext(type)).unmarshal(inputStream));
+    }
+
+    private static final class GenericTypesKey {
+        private final Type concreteType;
+        private final Object genericType;
+
+        private GenericTypesKey(final Type concreteType, final Object genericType) {
+            this.concreteType = concreteType;
+            this.genericType = genericType;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (!(o instanceof GenericTypesKey)) {
+                return false;
             }
+            final GenericTypesKey key = (GenericTypesKey) o;
+            return concreteType.equals(key.concreteType) && (genericType instanceof Object[]
+                    ? key.genericType instanceof Object[]
+                            && Arrays.equals((Object[]) genericType, (Object[]) key.genericType)
+                    : genericType.equals(key.genericType));
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * concreteType.hashCode() + (genericType instanceof Object[]
+                    ? Arrays.hashCode((Object[]) genericType)
+                    : genericType.hashCode());
         }
-        return defaultNamespaceUri;
+    }
+
+    // resolved generic type mappings, an empty map marks types without mappings
+    private static final int MAX_RESOLVED_GENERIC_TYPES = 4096;
+    private static final ConcurrentMap<GenericTypesKey, Map<String, FieldType>> resolvedTypes = new ConcurrentHashMap<>();
+
+    /**
+     * Checks if all classes of a type are visible to the class loader of this class. Only these types are cached, so
+     * that the cache does not keep classes of other class loaders reachable.
+     */
+    private static boolean isSharedType(final Type type) {
+        if (type instanceof Class) {
+            return isAncestorOrSelf(((Class<?>) type).getClassLoader(), JaxbUtils.class.getClassLoader());
+        } else if (type instanceof ParameterizedType) {
+            return isSharedType(((ParameterizedType) type).getRawType())
+                    && isSharedTypes(((ParameterizedType) type).getActualTypeArguments());
+        } else if (type instanceof TypeVariable) {
+            final GenericDeclaration declaration = ((TypeVariable<?>) type).getGenericDeclaration();
+            return isSharedType(declaration instanceof Class ? (Class<?>) declaration
+                    : ((Member) declaration).getDeclaringClass());
+        } else if (type instanceof WildcardType) {
+            return isSharedTypes(((WildcardType) type).getUpperBounds())
+                    && isSharedTypes(((WildcardType) type).getLowerBounds());
+        } else if (type instanceof GenericArrayType) {
+            return isSharedType(((GenericArrayType) type).getGenericComponentType());
+        }
+        return false;
+    }
+
+    private static boolean isSharedTypes(final Type[] types) {
+        for (final Type type : types) {
+            if (!isSharedType(type)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Map<String, FieldType> cachedGenericTypes(final GenericTypesKey key,
+            final Consumer<Map<String, FieldType>> resolver) {
+        Map<String, FieldType> mapping = resolvedTypes.get(key);
+        if (mapping == null) {
+            final Map<String, FieldType> resolved = new HashMap<>();
+            resolver.accept(resolved);
+            mapping = Collections.unmodifiableMap(resolved);
+            if (resolvedTypes.size() < MAX_RESOLVED_GENERIC_TYPES && isSharedType(key.concreteType)
+                    && (key.genericType instanceof Type ? isSharedType((Type) key.genericType)
+                            : isSharedTypes((Type[]) key.genericType))) {
+                final Map<String, FieldType> existing = resolvedTypes.putIfAbsent(key, mapping);
+                if (existing != null) {
+                    mapping = existing;
+                }
+            }
+        }
+        // the cached mapping is shared, callers receive a mutable copy
+        return mapping.isEmpty() ? null : new HashMap<>(mapping);
     }
 
     /**
@@ -122,13 +422,9 @@ public class JaxbUtils {
             throw new IllegalArgumentException("Types are not generics");
         }
 
-        final Map<String, FieldType> mapping = new HashMap<>();
-        resolveGenericType((ParameterizedType) concreteParameterizedType, (ParameterizedType) genericDefinedType, mapping);
-
-        if (!mapping.isEmpty()) {
-            return mapping;
-        }
-        return null;
+        return cachedGenericTypes(new GenericTypesKey(concreteParameterizedType, genericDefinedType),
+                mapping -> resolveGenericType((ParameterizedType) concreteParameterizedType,
+                        (ParameterizedType) genericDefinedType, mapping));
     }
 
     /**
@@ -146,13 +442,9 @@ public class JaxbUtils {
             throw new IllegalArgumentException(concreteParameterizedType.getTypeName() + " is not generic");
         }
 
-        final Map<String, FieldType> mapping = new HashMap<>();
-        resolveGenericType((ParameterizedType) concreteParameterizedType, genericDefinedTypeVariables, mapping);
-
-        if (!mapping.isEmpty()) {
-            return mapping;
-        }
-        return null;
+        return cachedGenericTypes(new GenericTypesKey(concreteParameterizedType, genericDefinedTypeVariables),
+                mapping -> resolveGenericType((ParameterizedType) concreteParameterizedType,
+                        genericDefinedTypeVariables, mapping));
     }
 
     private static void resolveGenericType(final ParameterizedType concreteParameterizedType,
@@ -172,7 +464,7 @@ public class JaxbUtils {
                     throw new IllegalArgumentException("Incompatible types");
                 }
             }
-            mapping.put(genericDefinedTypes[i].getTypeName(), new FieldType(params[i]));
+            mapping.put(genericDefinedTypes[i].getTypeName(), FieldType.of(params[i]));
         }
     }
 
@@ -200,7 +492,7 @@ public class JaxbUtils {
                         throw new IllegalArgumentException("Incompatible types");
                     }
                 }
-                mapping.put(t.getTypeName(), new FieldType(params[i]));
+                mapping.put(t.getTypeName(), FieldType.of(params[i]));
             }
         }
     }
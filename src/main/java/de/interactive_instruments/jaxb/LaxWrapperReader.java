@@ -0,0 +1,285 @@
+/**
+ * Copyright 2017-2019 European Union, interactive instruments GmbH
+ * Licensed under the EUPL, Version 1.2 or - as soon they will be approved by
+ * the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ *
+ * This work was supported by the EU Interoperability Solutions for
+ * European Public Administrations Programme (http://ec.europa.eu/isa)
+ * through Action 1.17: A Reusable INSPIRE Reference Platform (ARE3NA).
+ */
+package de.interactive_instruments.jaxb;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import javax.xml.XMLConstants;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.namespace.QName;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import de.interactive_instruments.exceptions.ExcUtils;
+
+/**
+ * Reads the items of a marshalled {@link LaxWrapper} one at a time, without loading the whole list into memory.
+ *
+ * The items are read with StAX. Like the {@code lax} {@link javax.xml.bind.annotation.XmlAnyElement} of the LaxWrapper,
+ * items with the root element name of one of the item classes are unmarshalled, all other items are returned as DOM
+ * {@link Element}s. Only a single item is held in memory at a time.
+ *
+ * Example:
+ *
+ * <pre>
+ * try (final LaxWrapperReader&lt;Object&gt; reader = LaxWrapperReader.open(inputStream, Item.class)) {
+ *     reader.stream().forEach(item -&gt; process(item));
+ * }
+ * </pre>
+ *
+ * @param <T>
+ *            type of the items
+ *
+ * @author Jon Herrmann ( herrmann aT interactive-instruments doT de )
+ */
+public final class LaxWrapperReader<T> implements Iterator<T>, Closeable {
+
+    private static final XMLInputFactory inputFactory = createInputFactory();
+    private static final DocumentBuilderFactory documentBuilderFactory = DocumentBuilderFactory.newInstance();
+
+    static {
+        documentBuilderFactory.setNamespaceAware(true);
+    }
+
+    private final InputStream inputStream;
+    private final XMLStreamReader reader;
+    private final Unmarshaller unmarshaller;
+    private final Set<QName> knownElements;
+    private Document document;
+
+    private static XMLInputFactory createInputFactory() {
+        final XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+
+    private LaxWrapperReader(final InputStream inputStream, final Class<?>... itemClasses)
+            throws IOException, JAXBException {
+        this.inputStream = inputStream;
+        this.knownElements = new HashSet<>();
+        for (final Class<?> itemClass : itemClasses) {
+            final QName name = JaxbUtils.getRootElementName(itemClass);
+            if (name != null) {
+                knownElements.add(name);
+            }
+        }
+        // Unmarshallers are not thread-safe and the reader may be passed to another thread
+        this.unmarshaller = itemClasses.length > 0 ? JaxbUtils.getContext(itemClasses).createUnmarshaller() : null;
+        try {
+            this.reader = inputFactory.createXMLStreamReader(inputStream);
+            // wrapper element
+            reader.nextTag();
+            reader.next();
+            skipToItem();
+        } catch (final XMLStreamException e) {
+            throw new IOException("Invalid LaxWrapper document", e);
+        }
+    }
+
+    /**
+     * Opens a reader. The stream is closed when the reader is closed.
+     *
+     * @param inputStream
+     *            stream of a marshalled LaxWrapper
+     * @param itemClasses
+     *            classes of the items that are unmarshalled
+     * @return LaxWrapperReader
+     * @throws IOException
+     *             if the stream does not start with an XML element
+     * @throws JAXBException
+     *             if no JAXBContext can be created for the item classes
+     */
+    public static <T> LaxWrapperReader<T> open(final InputStream inputStream, final Class<?>... itemClasses)
+            throws IOException, JAXBException {
+        try {
+            return new LaxWrapperReader<>(inputStream, itemClasses);
+        } catch (IOException | JAXBException | RuntimeException e) {
+            inputStream.close();
+            throw e;
+        }
+    }
+
+    private void skipToItem() throws XMLStreamException {
+        for (int event = reader.getEventType(); event != XMLStreamConstants.START_ELEMENT
+                && event != XMLStreamConstants.END_ELEMENT
+                && event != XMLStreamConstants.END_DOCUMENT; event = reader.next()) {}
+    }
+
+    @Override
+    public boolean hasNext() {
+        return reader.getEventType() == XMLStreamConstants.START_ELEMENT;
+    }
+
+    /**
+     * Reads the next item
+     *
+     * @return unmarshalled object or DOM Element
+     * @throws IllegalStateException
+     *             if the item can not be read
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        try {
+            final Object item;
+            if (unmarshaller != null && knownElements.contains(reader.getName())) {
+                // the reader is positioned after the end of the item
+                item = unmarshaller.unmarshal(reader);
+            } else {
+                item = readElement();
+                reader.next();
+            }
+            skipToItem();
+            return (T) item;
+        } catch (final JAXBException | XMLStreamException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Element readElement() throws XMLStreamException {
+        if (document == null) {
+            try {
+                document = documentBuilderFactory.newDocumentBuilder().newDocument();
+            } catch (final ParserConfigurationException e) {
+                throw new XMLStreamException(e);
+            }
+        }
+        final Element root = createElement();
+        // declarations of the wrapper element that are in scope
+        declareNamespace(root, reader.getPrefix(), reader.getNamespaceURI());
+        Node current = root;
+        for (int depth = 1; depth > 0;) {
+            switch (reader.next()) {
+            case XMLStreamConstants.START_ELEMENT:
+                final Element element = createElement();
+                current.appendChild(element);
+                current = element;
+                depth++;
+                break;
+            case XMLStreamConstants.END_ELEMENT:
+                current = current.getParentNode();
+                depth--;
+                break;
+            case XMLStreamConstants.CHARACTERS:
+            case XMLStreamConstants.SPACE:
+                current.appendChild(document.createTextNode(reader.getText()));
+                break;
+            case XMLStreamConstants.CDATA:
+                current.appendChild(document.createCDATASection(reader.getText()));
+                break;
+            case XMLStreamConstants.COMMENT:
+                current.appendChild(document.createComment(reader.getText()));
+                break;
+            case XMLStreamConstants.PROCESSING_INSTRUCTION:
+                current.appendChild(document.createProcessingInstruction(reader.getPITarget(), reader.getPIData()));
+                break;
+            default:
+                break;
+            }
+        }
+        return root;
+    }
+
+    private Element createElement() {
+        final String prefix = reader.getPrefix();
+        final String namespaceUri = reader.getNamespaceURI();
+        final Element element = document.createElementNS(emptyToNull(namespaceUri),
+                prefix == null || prefix.isEmpty() ? reader.getLocalName() : prefix + ":" + reader.getLocalName());
+        for (int i = 0; i < reader.getNamespaceCount(); i++) {
+            declareNamespace(element, reader.getNamespacePrefix(i), reader.getNamespaceURI(i));
+        }
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            final String attributePrefix = reader.getAttributePrefix(i);
+            final String attributeNamespaceUri = reader.getAttributeNamespace(i);
+            final String localName = reader.getAttributeLocalName(i);
+            if (attributePrefix != null && !attributePrefix.isEmpty()) {
+                declareNamespace(element, attributePrefix, attributeNamespaceUri);
+                element.setAttributeNS(attributeNamespaceUri, attributePrefix + ":" + localName,
+                        reader.getAttributeValue(i));
+            } else {
+                element.setAttributeNS(emptyToNull(attributeNamespaceUri), localName, reader.getAttributeValue(i));
+            }
+        }
+        return element;
+    }
+
+    private static void declareNamespace(final Element element, final String prefix, final String namespaceUri) {
+        if (namespaceUri == null || namespaceUri.isEmpty()) {
+            return;
+        }
+        final String qualifiedName = prefix == null || prefix.isEmpty() ? XMLConstants.XMLNS_ATTRIBUTE
+                : XMLConstants.XMLNS_ATTRIBUTE + ":" + prefix;
+        if (!element.hasAttributeNS(XMLConstants.XMLNS_ATTRIBUTE_NS_URI, qualifiedName.substring(
+                qualifiedName.indexOf(':') + 1))) {
+            element.setAttributeNS(XMLConstants.XMLNS_ATTRIBUTE_NS_URI, qualifiedName, namespaceUri);
+        }
+    }
+
+    private static String emptyToNull(final String namespaceUri) {
+        return namespaceUri == null || namespaceUri.isEmpty() ? null : namespaceUri;
+    }
+
+    /**
+     * Returns a sequential stream of the remaining items. Closing the stream closes the reader.
+     *
+     * @return stream of items
+     */
+    public Stream<T> stream() {
+        return StreamSupport.stream(
+                Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(() -> {
+                    try {
+                        close();
+                    } catch (final IOException e) {
+                        ExcUtils.suppress(e);
+                    }
+                });
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            reader.close();
+        } catch (final XMLStreamException e) {
+            ExcUtils.suppress(e);
+        } finally {
+            inputStream.close();
+        }
+    }
+}
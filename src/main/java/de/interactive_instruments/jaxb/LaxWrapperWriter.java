@@ -0,0 +1,235 @@
+/**
+ * Copyright 2017-2019 European Union, interactive instruments GmbH
+ * Licensed under the EUPL, Version 1.2 or - as soon they will be approved by
+ * the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ *
+ * This work was supported by the EU Interoperability Solutions for
+ * European Public Administrations Programme (http://ec.europa.eu/isa)
+ * through Action 1.17: A Reusable INSPIRE Reference Platform (ARE3NA).
+ */
+package de.interactive_instruments.jaxb;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.xml.XMLConstants;
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.w3c.dom.Attr;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+import de.interactive_instruments.xml.NamespaceHolder;
+import de.interactive_instruments.xml.StreamingXmlWriter;
+
+/**
+ * Writes items in the format of a marshalled {@link LaxWrapper} one at a time, without collecting them in a list.
+ *
+ * Items are marshalled with a shared {@link JAXBContext} of their class, DOM {@link Element}s are copied. The result
+ * can be unmarshalled as LaxWrapper or read with a {@link LaxWrapperReader}.
+ *
+ * @param <T>
+ *            type of the items
+ *
+ * @author Jon Herrmann ( herrmann aT interactive-instruments doT de )
+ */
+public final class LaxWrapperWriter<T> implements Closeable {
+
+    private final StreamingXmlWriter writer;
+    private final XMLStreamWriter streamWriter;
+    private Class<?> lastItemClass;
+    private Marshaller marshaller;
+
+    private LaxWrapperWriter(final StreamingXmlWriter writer) throws XMLStreamException {
+        this.writer = writer;
+        this.streamWriter = writer.getXMLStreamWriter();
+        final QName wrapperName = JaxbUtils.getRootElementName(LaxWrapper.class);
+        writer.startDocument();
+        writer.startElement(wrapperName.getNamespaceURI(), wrapperName.getLocalPart());
+    }
+
+    /**
+     * Opens a writer and writes the start of the wrapper element. The stream is closed when the writer is closed.
+     *
+     * @param outputStream
+     *            target stream
+     * @param namespaces
+     *            namespaces that are declared on the wrapper element or null
+     * @return LaxWrapperWriter
+     * @throws IOException
+     *             if writing failed
+     */
+    public static <T> LaxWrapperWriter<T> open(final OutputStream outputStream, final NamespaceHolder namespaces)
+            throws IOException {
+        final StreamingXmlWriter writer = StreamingXmlWriter.create(outputStream, namespaces, false);
+        try {
+            return new LaxWrapperWriter<>(writer);
+        } catch (final XMLStreamException e) {
+            writer.close();
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Writes an item
+     *
+     * @param item
+     *            JAXB annotated object or DOM Element
+     * @throws IOException
+     *             if the item can not be marshalled or written
+     */
+    public void write(final T item) throws IOException {
+        try {
+            if (item instanceof Element) {
+                writeElement((Element) item);
+            } else {
+                marshaller(item.getClass()).marshal(item, streamWriter);
+            }
+        } catch (final JAXBException | XMLStreamException e) {
+            throw new IOException("Writing item " + item + " failed", e);
+        }
+    }
+
+    /**
+     * Writes all items
+     *
+     * @param items
+     *            JAXB annotated objects or DOM Elements
+     * @throws IOException
+     *             if an item can not be marshalled or written
+     */
+    public void writeAll(final Iterator<? extends T> items) throws IOException {
+        while (items.hasNext()) {
+            write(items.next());
+        }
+    }
+
+    private Marshaller marshaller(final Class<?> itemClass) throws JAXBException {
+        // items of a list usually have the same class
+        if (itemClass != lastItemClass) {
+            marshaller = JaxbUtils.getContext(itemClass).createMarshaller();
+            marshaller.setProperty(Marshaller.JAXB_FRAGMENT, true);
+            lastItemClass = itemClass;
+        }
+        return marshaller;
+    }
+
+    private void writeElement(final Element element) throws XMLStreamException {
+        final String prefix = element.getPrefix() != null ? element.getPrefix() : XMLConstants.DEFAULT_NS_PREFIX;
+        final String namespaceUri = element.getNamespaceURI() != null ? element.getNamespaceURI() : "";
+        final NamedNodeMap attributes = element.getAttributes();
+        // the declarations must be determined in the scope of the parent element
+        final Map<String, String> declarations = new LinkedHashMap<>();
+        for (int i = 0; i < attributes.getLength(); i++) {
+            final Attr attribute = (Attr) attributes.item(i);
+            if (XMLConstants.XMLNS_ATTRIBUTE_NS_URI.equals(attribute.getNamespaceURI())) {
+                declarations.put(attribute.getPrefix() == null ? XMLConstants.DEFAULT_NS_PREFIX
+                        : attribute.getLocalName(), attribute.getValue());
+            }
+        }
+        declareIfUnbound(declarations, prefix, namespaceUri);
+        for (int i = 0; i < attributes.getLength(); i++) {
+            final Attr attribute = (Attr) attributes.item(i);
+            if (attribute.getPrefix() != null && !XMLConstants.XMLNS_ATTRIBUTE_NS_URI.equals(
+                    attribute.getNamespaceURI())) {
+                declareIfUnbound(declarations, attribute.getPrefix(), attribute.getNamespaceURI());
+            }
+        }
+
+        streamWriter.writeStartElement(prefix, localName(element), namespaceUri);
+        for (final Map.Entry<String, String> declaration : declarations.entrySet()) {
+            if (declaration.getKey().isEmpty()) {
+                streamWriter.writeDefaultNamespace(declaration.getValue());
+            } else {
+                streamWriter.writeNamespace(declaration.getKey(), declaration.getValue());
+            }
+        }
+        for (int i = 0; i < attributes.getLength(); i++) {
+            final Attr attribute = (Attr) attributes.item(i);
+            final String attributeNamespaceUri = attribute.getNamespaceURI();
+            if (attributeNamespaceUri == null || attributeNamespaceUri.isEmpty()) {
+                streamWriter.writeAttribute(localName(attribute), attribute.getValue());
+            } else if (!XMLConstants.XMLNS_ATTRIBUTE_NS_URI.equals(attributeNamespaceUri)) {
+                streamWriter.writeAttribute(attribute.getPrefix(), attributeNamespaceUri, localName(attribute),
+                        attribute.getValue());
+            }
+        }
+        for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
+            switch (child.getNodeType()) {
+            case Node.ELEMENT_NODE:
+                writeElement((Element) child);
+                break;
+            case Node.TEXT_NODE:
+                streamWriter.writeCharacters(child.getNodeValue());
+                break;
+            case Node.CDATA_SECTION_NODE:
+                streamWriter.writeCData(child.getNodeValue());
+                break;
+            case Node.COMMENT_NODE:
+                streamWriter.writeComment(child.getNodeValue());
+                break;
+            case Node.PROCESSING_INSTRUCTION_NODE:
+                streamWriter.writeProcessingInstruction(child.getNodeName(), child.getNodeValue());
+                break;
+            default:
+                break;
+            }
+        }
+        streamWriter.writeEndElement();
+    }
+
+    private void declareIfUnbound(final Map<String, String> declarations, final String prefix,
+            final String namespaceUri) {
+        if (!declarations.containsKey(prefix)) {
+            final String boundUri = streamWriter.getNamespaceContext().getNamespaceURI(prefix);
+            if (!namespaceUri.equals(boundUri != null ? boundUri : "")) {
+                declarations.put(prefix, namespaceUri);
+            }
+        }
+    }
+
+    private static String localName(final Node node) {
+        return node.getLocalName() != null ? node.getLocalName() : node.getNodeName();
+    }
+
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    /**
+     * Writes the end of the wrapper element and closes the underlying stream
+     *
+     * @throws IOException
+     *             if writing failed
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            writer.endDocument();
+        } catch (final XMLStreamException e) {
+            throw new IOException(e);
+        } finally {
+            writer.close();
+        }
+    }
+}
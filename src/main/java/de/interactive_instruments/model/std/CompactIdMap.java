@@ -0,0 +1,463 @@
+/**
+ * Copyright 2017-2019 European Union, interactive instruments GmbH
+ * Licensed under the EUPL, Version 1.2 or - as soon they will be approved by
+ * the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ *
+ * This work was supported by the EU Interoperability Solutions for
+ * European Public Administrations Programme (http://ec.europa.eu/isa)
+ * through Action 1.17: A Reusable INSPIRE Reference Platform (ARE3NA).
+ */
+package de.interactive_instruments.model.std;
+
+import java.util.*;
+
+/**
+ * An insertion-ordered IdMap that stores the keys in their UUID representation as two primitive long values.
+ *
+ * The keys are kept in parallel arrays in insertion order and are indexed by an open addressing hash table with linear
+ * probing, which avoids the entry and key objects of a LinkedHashMap. Lookups with a String, an UUID or a DefaultId
+ * in the canonical UUID representation do not allocate objects. Other strings are mapped to their UUID hash (see
+ * {@link DefaultId#toUuid()}).
+ *
+ * As only the UUID representation is stored, the Ids returned by {@link #keySet()} and {@link #entrySet()} are
+ * created from the UUID and non-UUID string identifiers are not preserved.
+ *
+ * @author Jon Herrmann ( herrmann aT interactive-instruments doT de )
+ */
+public class CompactIdMap<V> extends AbstractMap<Id, V> implements IdMap<V> {
+
+    // Marks a removed entry
+    private static final Object REMOVED = new Object();
+
+    private long[] msbs;
+    private long[] lsbs;
+    private Object[] vals;
+    // index of the entry + 1, 0 if the slot is free
+    private int[] table;
+    // next free entry index
+    private int end;
+    private int size;
+    private int modCount;
+
+    /**
+     * Constructs an empty insertion-ordered <tt>CompactIdMap</tt> instance.
+     */
+    public CompactIdMap() {
+        this(16);
+    }
+
+    /**
+     * Constructs an empty insertion-ordered <tt>CompactIdMap</tt> instance with the specified initial capacity.
+     *
+     * @param initialCapacity
+     *            the initial capacity
+     */
+    public CompactIdMap(final int initialCapacity) {
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("Illegal initial capacity: " + initialCapacity);
+        }
+        allocate(Math.max(initialCapacity, 4));
+    }
+
+    private void allocate(final int capacity) {
+        msbs = new long[capacity];
+        lsbs = new long[capacity];
+        vals = new Object[capacity];
+        int tableSize = 1;
+        while (tableSize < capacity * 2) {
+            tableSize <<= 1;
+        }
+        table = new int[tableSize];
+    }
+
+    private static int hash(final long msb, final long lsb) {
+        final long h = (msb ^ lsb) * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private int find(final long msb, final long lsb) {
+        final int mask = table.length - 1;
+        for (int slot = hash(msb, lsb) & mask;; slot = (slot + 1) & mask) {
+            final int e = table[slot];
+            if (e == 0) {
+                return -1;
+            }
+            if (msbs[e - 1] == msb && lsbs[e - 1] == lsb) {
+                return e - 1;
+            }
+        }
+    }
+
+    private int find(final UUID uuid) {
+        return find(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+    }
+
+    private int find(final String id) {
+        if (IdUtils.isCanonicalUuid(id)) {
+            return find(IdUtils.mostSigBits(id), IdUtils.leastSigBits(id));
+        }
+        return find(IdUtils.toUuid(id));
+    }
+
+    private int indexOf(final Object key) {
+        if (key instanceof String) {
+            return find((String) key);
+        } else if (key instanceof DefaultId && IdUtils.isCanonicalUuid(((DefaultId) key).getId())) {
+            final String id = ((DefaultId) key).getId();
+            return find(IdUtils.mostSigBits(id), IdUtils.leastSigBits(id));
+        } else if (key instanceof Id) {
+            return find(((Id) key).toUuid());
+        } else if (key instanceof UUID) {
+            return find((UUID) key);
+        }
+        return -1;
+    }
+
+    private void insertIntoTable(final int index) {
+        final int mask = table.length - 1;
+        int slot = hash(msbs[index], lsbs[index]) & mask;
+        while (table[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = index + 1;
+    }
+
+    private void rebuild(final int capacity) {
+        final long[] oldMsbs = msbs;
+        final long[] oldLsbs = lsbs;
+        final Object[] oldVals = vals;
+        final int oldEnd = end;
+        allocate(capacity);
+        end = 0;
+        for (int i = 0; i < oldEnd; i++) {
+            if (oldVals[i] != REMOVED) {
+                msbs[end] = oldMsbs[i];
+                lsbs[end] = oldLsbs[i];
+                vals[end] = oldVals[i];
+                insertIntoTable(end++);
+            }
+        }
+    }
+
+    private V put(final long msb, final long lsb, final V value) {
+        final int index = find(msb, lsb);
+        if (index != -1) {
+            final V old = value(index);
+            vals[index] = value;
+            return old;
+        }
+        if (end == msbs.length) {
+            // compact if enough entries were removed, otherwise grow
+            rebuild(size < msbs.length / 2 ? msbs.length : msbs.length * 2);
+        }
+        msbs[end] = msb;
+        lsbs[end] = lsb;
+        vals[end] = value;
+        insertIntoTable(end++);
+        size++;
+        modCount++;
+        return null;
+    }
+
+    private void removeAt(final int index) {
+        final int mask = table.length - 1;
+        int hole = hash(msbs[index], lsbs[index]) & mask;
+        while (table[hole] != index + 1) {
+            hole = (hole + 1) & mask;
+        }
+        // Backward shift deletion
+        for (int slot = (hole + 1) & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+            final int e = table[slot] - 1;
+            final int home = hash(msbs[e], lsbs[e]) & mask;
+            if (slot > hole ? (home <= hole || home > slot) : (home <= hole && home > slot)) {
+                table[hole] = table[slot];
+                hole = slot;
+            }
+        }
+        table[hole] = 0;
+        vals[index] = REMOVED;
+        size--;
+        modCount++;
+    }
+
+    @SuppressWarnings("unchecked")
+    private V value(final int index) {
+        return (V) vals[index];
+    }
+
+    private Id key(final int index) {
+        return new DefaultId(new UUID(msbs[index], lsbs[index]));
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public V get(final Object key) {
+        final int index = indexOf(key);
+        return index != -1 ? value(index) : null;
+    }
+
+    @Override
+    public V internalGet(final Object key) {
+        return get(key);
+    }
+
+    /**
+     * Returns the value to which the specified UUID is mapped, or {@code null} if this map contains no mapping for
+     * the UUID.
+     *
+     * @param uuid
+     *            the UUID whose associated value is to be returned
+     * @return the value or {@code null}
+     */
+    public V get(final UUID uuid) {
+        final int index = find(uuid);
+        return index != -1 ? value(index) : null;
+    }
+
+    @Override
+    public boolean containsKey(final Object key) {
+        return indexOf(key) != -1;
+    }
+
+    @Override
+    public boolean internalContainsKey(final Object key) {
+        return containsKey(key);
+    }
+
+    @Override
+    public boolean containsValue(final Object value) {
+        for (int i = 0; i < end; i++) {
+            if (vals[i] != REMOVED && Objects.equals(vals[i], value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public V put(final Id key, final V value) {
+        Objects.requireNonNull(key, "Id is null");
+        if (key instanceof DefaultId && IdUtils.isCanonicalUuid(key.getId())) {
+            return put(IdUtils.mostSigBits(key.getId()), IdUtils.leastSigBits(key.getId()), value);
+        }
+        final UUID uuid = key.toUuid();
+        return put(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits(), value);
+    }
+
+    /**
+     * Associates the specified value with the specified UUID in this map
+     *
+     * @param uuid
+     *            key
+     * @param value
+     *            value
+     * @return the previous value associated with <tt>uuid</tt>, or <tt>null</tt> if there was no mapping
+     */
+    public V put(final UUID uuid, final V value) {
+        return put(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits(), value);
+    }
+
+    @Override
+    public V remove(final Object key) {
+        final int index = indexOf(key);
+        if (index == -1) {
+            return null;
+        }
+        final V old = value(index);
+        removeAt(index);
+        return old;
+    }
+
+    @Override
+    public V internalRemove(final Object key) {
+        return remove(key);
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(table, 0);
+        Arrays.fill(vals, 0, end, null);
+        end = 0;
+        size = 0;
+        modCount++;
+    }
+
+    private abstract class EntryIterator<E> implements Iterator<E> {
+        private int next;
+        private int last = -1;
+        private int expectedModCount = modCount;
+
+        EntryIterator() {
+            next = advance(0);
+        }
+
+        private int advance(int i) {
+            while (i < end && vals[i] == REMOVED) {
+                i++;
+            }
+            return i;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < end;
+        }
+
+        int nextIndex() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (next >= end) {
+                throw new NoSuchElementException();
+            }
+            last = next;
+            next = advance(next + 1);
+            return last;
+        }
+
+        @Override
+        public void remove() {
+            if (last == -1) {
+                throw new IllegalStateException();
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            removeAt(last);
+            last = -1;
+            expectedModCount = modCount;
+        }
+    }
+
+    private final class MapEntry extends AbstractMap.SimpleEntry<Id, V> {
+        private static final long serialVersionUID = -4830217609251847730L;
+        private final int index;
+
+        MapEntry(final int index) {
+            super(key(index), value(index));
+            this.index = index;
+        }
+
+        @Override
+        public V setValue(final V value) {
+            if (vals[index] != REMOVED) {
+                vals[index] = value;
+            }
+            return super.setValue(value);
+        }
+    }
+
+    @Override
+    public Set<Id> keySet() {
+        return new AbstractSet<Id>() {
+            @Override
+            public Iterator<Id> iterator() {
+                return new EntryIterator<Id>() {
+                    @Override
+                    public Id next() {
+                        return key(nextIndex());
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            public boolean contains(final Object o) {
+                return containsKey(o);
+            }
+
+            @Override
+            public boolean remove(final Object o) {
+                final int index = indexOf(o);
+                if (index == -1) {
+                    return false;
+                }
+                removeAt(index);
+                return true;
+            }
+
+            @Override
+            public void clear() {
+                CompactIdMap.this.clear();
+            }
+        };
+    }
+
+    @Override
+    public Collection<V> values() {
+        return new AbstractCollection<V>() {
+            @Override
+            public Iterator<V> iterator() {
+                return new EntryIterator<V>() {
+                    @Override
+                    public V next() {
+                        return value(nextIndex());
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            public boolean contains(final Object o) {
+                return containsValue(o);
+            }
+
+            @Override
+            public void clear() {
+                CompactIdMap.this.clear();
+            }
+        };
+    }
+
+    @Override
+    public Set<Map.Entry<Id, V>> entrySet() {
+        return new AbstractSet<Map.Entry<Id, V>>() {
+            @Override
+            public Iterator<Map.Entry<Id, V>> iterator() {
+                return new EntryIterator<Map.Entry<Id, V>>() {
+                    @Override
+                    public Map.Entry<Id, V> next() {
+                        return new MapEntry(nextIndex());
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            public void clear() {
+                CompactIdMap.this.clear();
+            }
+        };
+    }
+}
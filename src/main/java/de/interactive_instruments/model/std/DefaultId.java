@@ -27,11 +27,12 @@ import javax.xml.bind.annotation.XmlRootElement;
 import javax.xml.bind.annotation.XmlValue;
 
 import de.interactive_instruments.II_Constants;
-import de.interactive_instruments.exceptions.ExcUtils;
 
 /**
  * The default identifier implementation for domain model items.
  *
+ * The UUID representation is computed only once and cached.
+ *
  * Serializable.
  *
  * @author Jon Herrmann ( herrmann aT interactive-instruments doT de )
@@ -43,6 +44,9 @@ public class DefaultId implements Id {
     @XmlValue
     private String id;
 
+    // cached UUID representation, not bound by JAXB
+    private transient volatile UUID uuid;
+
     /**
      * Private C'tor
      */
@@ -66,6 +70,7 @@ public class DefaultId implements Id {
      */
     DefaultId(final UUID uuid) {
         this.id = uuid.toString();
+        this.uuid = uuid;
     }
 
     @Override
@@ -81,6 +86,7 @@ public class DefaultId implements Id {
      */
     public void setId(String id) {
         this.id = id;
+        this.uuid = null;
     }
 
     /**
@@ -99,14 +105,12 @@ public class DefaultId implements Id {
      * @return UUID from string or UUID hash from string
      */
     public UUID toUuid() {
-        try {
-            if (id.length() == 36) {
-                return UUID.fromString(id);
-            }
-        } catch (IllegalArgumentException e) {
-            ExcUtils.suppress(e);
+        UUID u = uuid;
+        if (u == null) {
+            u = IdUtils.toUuid(id);
+            uuid = u;
         }
-        return UUID.nameUUIDFromBytes(id.getBytes());
+        return u;
     }
 
     @Override
@@ -19,46 +19,79 @@
  */
 package de.interactive_instruments.model.std;
 
+import java.lang.ref.WeakReference;
+import java.util.Map;
 import java.util.UUID;
-
-import de.interactive_instruments.exceptions.ExcUtils;
+import java.util.WeakHashMap;
 
 /**
  * The default Id factory implementation for constructing DefaultId objects.
  *
+ * An interning factory (see {@link IdFactory#getInterning()}) keeps weak references to all created Ids and returns the
+ * same instance for equal identifiers, as long as the instance is referenced somewhere else. Interned Ids must not be
+ * modified with {@link DefaultId#setId(String)}.
+ *
  * @author Jon Herrmann ( herrmann aT interactive-instruments doT de )
  */
 public class DefaultIdFactory implements IdFactory {
 
+    private final Map<DefaultId, WeakReference<DefaultId>> pool;
+
+    static final class InterningInstanceHolder {
+        static final IdFactory INSTANCE = new DefaultIdFactory(true);
+    }
+
     /**
      * Default C'tor
      */
-    DefaultIdFactory() {}
+    DefaultIdFactory() {
+        this(false);
+    }
+
+    /**
+     * C'tor for an optionally interning factory
+     *
+     * @param intern
+     *            true if equal Ids shall share one instance
+     */
+    DefaultIdFactory(final boolean intern) {
+        this.pool = intern ? new WeakHashMap<>() : null;
+    }
+
+    private DefaultId intern(final DefaultId id) {
+        if (pool == null) {
+            return id;
+        }
+        synchronized (pool) {
+            final WeakReference<DefaultId> ref = pool.get(id);
+            if (ref != null) {
+                final DefaultId interned = ref.get();
+                if (interned != null) {
+                    return interned;
+                }
+            }
+            pool.put(id, new WeakReference<>(id));
+            return id;
+        }
+    }
 
     @Override
     public Id createRandomUuid() {
-        return new DefaultId(UUID.randomUUID().toString());
+        return intern(new DefaultId(UUID.randomUUID()));
     }
 
     @Override
     public Id createFromStrAndPreserve(String s) {
-        return new DefaultId(s);
+        return intern(new DefaultId(s));
     }
 
     @Override
     public Id createFromStrAsUuid(final String s) {
-        try {
-            if (s.length() == 36) {
-                return new DefaultId(UUID.fromString(s));
-            }
-        } catch (IllegalArgumentException e) {
-            ExcUtils.suppress(e);
-        }
-        return new DefaultId(UUID.nameUUIDFromBytes(s.getBytes()));
+        return intern(new DefaultId(IdUtils.toUuid(s)));
     }
 
     @Override
     public Id createFromUuid(UUID uuid) {
-        return new DefaultId(uuid);
+        return intern(new DefaultId(uuid));
     }
 }
@@ -64,4 +64,14 @@ public interface IdFactory {
     static IdFactory getDefault() {
         return new DefaultIdFactory();
     }
+
+    /**
+     * Returns a shared factory that interns the created Id objects, so that equal identifiers share one instance as
+     * long as it is referenced.
+     *
+     * @return interning IdFactory
+     */
+    static IdFactory getInterning() {
+        return DefaultIdFactory.InterningInstanceHolder.INSTANCE;
+    }
 }
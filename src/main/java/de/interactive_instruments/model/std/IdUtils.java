@@ -0,0 +1,110 @@
+/**
+ * Copyright 2017-2019 European Union, interactive instruments GmbH
+ * Licensed under the EUPL, Version 1.2 or - as soon they will be approved by
+ * the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ *
+ * This work was supported by the EU Interoperability Solutions for
+ * European Public Administrations Programme (http://ec.europa.eu/isa)
+ * through Action 1.17: A Reusable INSPIRE Reference Platform (ARE3NA).
+ */
+package de.interactive_instruments.model.std;
+
+import java.util.UUID;
+
+import de.interactive_instruments.exceptions.ExcUtils;
+
+/**
+ * Allocation free conversion of identifier strings to the two long values of their UUID representation.
+ *
+ * @author Jon Herrmann ( herrmann aT interactive-instruments doT de )
+ */
+final class IdUtils {
+
+    private IdUtils() {}
+
+    /**
+     * Checks if the string is an UUID in the canonical 8-4-4-4-12 hex digit representation
+     *
+     * @param s
+     *            string to check
+     * @return true if the string can be parsed with {@link #mostSigBits(String)} and {@link #leastSigBits(String)}
+     */
+    static boolean isCanonicalUuid(final String s) {
+        if (s == null || s.length() != 36) {
+            return false;
+        }
+        for (int i = 0; i < 36; i++) {
+            final char c = s.charAt(i);
+            if (i == 8 || i == 13 || i == 18 || i == 23) {
+                if (c != '-') {
+                    return false;
+                }
+            } else if (Character.digit(c, 16) == -1) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the most significant 64 bits of a canonical UUID string
+     *
+     * @param s
+     *            canonical UUID string
+     * @return most significant bits
+     */
+    static long mostSigBits(final String s) {
+        return (parseHex(s, 0, 8) << 32) | (parseHex(s, 9, 13) << 16) | parseHex(s, 14, 18);
+    }
+
+    /**
+     * Returns the least significant 64 bits of a canonical UUID string
+     *
+     * @param s
+     *            canonical UUID string
+     * @return least significant bits
+     */
+    static long leastSigBits(final String s) {
+        return (parseHex(s, 19, 23) << 48) | parseHex(s, 24, 36);
+    }
+
+    /**
+     * Returns the UUID representation of an identifier string, which is either the parsed UUID or the UUID hash of
+     * the string (see {@link DefaultId#toUuid()}).
+     *
+     * @param s
+     *            identifier string
+     * @return UUID from string or UUID hash from string
+     */
+    static UUID toUuid(final String s) {
+        if (isCanonicalUuid(s)) {
+            return new UUID(mostSigBits(s), leastSigBits(s));
+        }
+        try {
+            if (s.length() == 36) {
+                return UUID.fromString(s);
+            }
+        } catch (IllegalArgumentException e) {
+            ExcUtils.suppress(e);
+        }
+        return UUID.nameUUIDFromBytes(s.getBytes());
+    }
+
+    private static long parseHex(final String s, final int begin, final int end) {
+        long value = 0;
+        for (int i = begin; i < end; i++) {
+            value = (value << 4) | Character.digit(s.charAt(i), 16);
+        }
+        return value;
+    }
+}
@@ -19,25 +19,151 @@
  */
 package de.interactive_instruments.model.std;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.interactive_instruments.ExpirationItemHolder;
+import de.interactive_instruments.ExpirationScheduler;
 import de.interactive_instruments.Releasable;
 
 /**
  * An abstract class for managing objects that implement the RetrievableItem and the Releasable interface.
  *
+ * The registry is thread-safe. Lookups with {@link #getById(Id)} do not lock, modifications of items with different
+ * Ids lock different stripes.
+ *
+ * Optionally, items that have not been looked up for a time or the least recently looked up items that exceed a
+ * maximum number of items are evicted. Evicted items are released on a thread of the shared
+ * {@link ExpirationScheduler}, not on the threads that register or look up items. Note that an evicted item may still be
+ * in use by a thread that looked it up before.
+ *
+ * The registry must be released with {@link #release()}, which releases all items and stops the eviction.
+ *
  * @author Jon Herrmann ( herrmann aT interactive-instruments doT de )
  */
 public abstract class ManagedItemRegistry<T extends RetrievableItem & Releasable> implements Releasable {
 
-    private final DefaultRetrievableItemMap<T> managedObjects = new DefaultRetrievableItemMap<T>();
+    private static final Logger logger = LoggerFactory.getLogger(ManagedItemRegistry.class);
+
+    private static final int STRIPES = 32;
+    private static final long SIZE_EVICTION_PERIOD_MILLIS = 1000;
+    private static final long MIN_EVICTION_PERIOD_MILLIS = 10;
+    private static final long MAX_EVICTION_PERIOD_MILLIS = 60000;
+
+    private final ConcurrentMap<Id, Item<T>> managedObjects = new ConcurrentHashMap<>();
+    private final Object[] stripes = new Object[STRIPES];
+    private final int maxItems;
+    private final long maxIdleNanos;
+    private final ExpirationScheduler.Registration evictionRegistration;
+    private volatile boolean released;
+
+    private static final class Item<T> {
+        private final T item;
+        private volatile long lastAccess;
+
+        private Item(final T item, final long now) {
+            this.item = item;
+            this.lastAccess = now;
+        }
+    }
+
+    private static final class EvictionCandidate<T> {
+        private final Id id;
+        private final Item<T> item;
+        private final long lastAccess;
+
+        private EvictionCandidate(final Id id, final Item<T> item) {
+            this.id = id;
+            this.item = item;
+            this.lastAccess = item.lastAccess;
+        }
+    }
+
+    private final class Eviction implements ExpirationItemHolder {
+        @Override
+        public void removeExpiredItems(final long maxLifeTime, final TimeUnit unit) {
+            removeAndCountExpiredItems(maxLifeTime, unit);
+        }
+
+        @Override
+        public long removeAndCountExpiredItems(final long maxLifeTime, final TimeUnit unit) {
+            return evict();
+        }
+    }
+
+    /**
+     * Creates a registry without eviction
+     */
+    protected ManagedItemRegistry() {
+        this(0, 0, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Creates a registry that evicts items
+     *
+     * @param maxItems
+     *            maximum number of items, the least recently looked up items are evicted if the number is exceeded. The
+     *            number may be exceeded until the next eviction run. 0 for no limit
+     * @param maxIdleTime
+     *            time after that an item is evicted if it has not been looked up, 0 for no limit
+     * @param unit
+     *            TimeUnit of the idle time
+     */
+    protected ManagedItemRegistry(final int maxItems, final long maxIdleTime, final TimeUnit unit) {
+        if (maxItems < 0 || maxIdleTime < 0) {
+            throw new IllegalArgumentException("Invalid eviction limits: " + maxItems + " items, " + maxIdleTime + " " + unit);
+        }
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Object();
+        }
+        this.maxItems = maxItems;
+        this.maxIdleNanos = unit.toNanos(maxIdleTime);
+        if (maxItems > 0 || maxIdleTime > 0) {
+            final long period = maxIdleTime > 0 ? Math.min(MAX_EVICTION_PERIOD_MILLIS,
+                    Math.max(MIN_EVICTION_PERIOD_MILLIS, unit.toMillis(maxIdleTime) / 2))
+                    : SIZE_EVICTION_PERIOD_MILLIS;
+            this.evictionRegistration = ExpirationScheduler.getShared().register(new Eviction(), maxIdleTime, unit,
+                    period, TimeUnit.MILLISECONDS);
+        } else {
+            this.evictionRegistration = null;
+        }
+    }
+
+    private boolean evictionEnabled() {
+        return evictionRegistration != null;
+    }
+
+    private Object stripe(final Id id) {
+        final int h = id.hashCode();
+        return stripes[(h ^ (h >>> 16)) & (STRIPES - 1)];
+    }
 
     /**
-     * Registers a managed item
+     * Registers a managed item. An item with the same Id is replaced, but not released.
      *
      * @param managedItem
      *            item to register
+     * @throws IllegalStateException
+     *             if the registry has been released
      */
-    public void register(T managedItem) {
-        managedObjects.put(managedItem);
+    public void register(final T managedItem) {
+        final Id id = managedItem.getId();
+        synchronized (stripe(id)) {
+            if (released) {
+                throw new IllegalStateException("Registry has been released");
+            }
+            managedObjects.put(id, new Item<>(managedItem, evictionEnabled() ? System.nanoTime() : 0));
+        }
     }
 
     /**
@@ -48,8 +174,11 @@ public abstract class ManagedItemRegistry<T extends RetrievableItem & Releasable
      * @param managedItem
      *            item to unregister
      */
-    public void unregister(T managedItem) {
-        this.managedObjects.remove(managedItem.getId());
+    public void unregister(final T managedItem) {
+        final Id id = managedItem.getId();
+        synchronized (stripe(id)) {
+            managedObjects.remove(id);
+        }
     }
 
     /**
@@ -57,23 +186,101 @@ public abstract class ManagedItemRegistry<T extends RetrievableItem & Releasable
      *
      * @param id
      *            managed item Id
-     * @return managed item
+     * @return managed item or null if the item is not registered
      */
     public T getById(final Id id) {
-        return managedObjects.get(id);
+        final Item<T> entry = managedObjects.get(id);
+        if (entry == null) {
+            return null;
+        }
+        if (evictionEnabled()) {
+            entry.lastAccess = System.nanoTime();
+        }
+        return entry.item;
     }
 
     /**
-     * Releases all managed items
+     * Returns the number of registered items
+     *
+     * @return number of items
      */
-    @Override
-    public void release() {
-        managedObjects.values().forEach(m -> m.release());
-        managedObjects.clear();
+    public int size() {
+        return managedObjects.size();
     }
 
+    /**
+     * Returns a snapshot of the registered items
+     *
+     * @return unmodifiable collection
+     */
+    public Collection<T> getItems() {
+        final List<T> items = new ArrayList<>(managedObjects.size());
+        managedObjects.values().forEach(e -> items.add(e.item));
+        return Collections.unmodifiableList(items);
+    }
+
+    private boolean remove(final Id id, final Item<T> entry) {
+        synchronized (stripe(id)) {
+            return managedObjects.remove(id, entry);
+        }
+    }
+
+    private static void release(final Releasable releasable) {
+        try {
+            releasable.release();
+        } catch (final RuntimeException e) {
+            logger.error("Failed to release managed item: ", e);
+        }
+    }
+
+    private long evict() {
+        long evicted = 0;
+        if (maxIdleNanos > 0) {
+            final long now = System.nanoTime();
+            for (final Map.Entry<Id, Item<T>> e : managedObjects.entrySet()) {
+                if (now - e.getValue().lastAccess > maxIdleNanos && remove(e.getKey(), e.getValue())) {
+                    release(e.getValue().item);
+                    evicted++;
+                }
+            }
+        }
+        final int exceeding = managedObjects.size() - maxItems;
+        if (maxItems > 0 && exceeding > 0) {
+            // the access times are updated concurrently, sort a snapshot of them
+            final List<EvictionCandidate<T>> candidates = new ArrayList<>(managedObjects.size());
+            for (final Map.Entry<Id, Item<T>> e : managedObjects.entrySet()) {
+                candidates.add(new EvictionCandidate<>(e.getKey(), e.getValue()));
+            }
+            candidates.sort(Comparator.comparingLong(c -> c.lastAccess));
+            for (int i = 0; i < exceeding && i < candidates.size(); i++) {
+                final EvictionCandidate<T> candidate = candidates.get(i);
+                if (remove(candidate.id, candidate.item)) {
+                    release(candidate.item.item);
+                    evicted++;
+                }
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * Stops the eviction and releases all managed items. Items can not be registered afterwards.
+     */
     @Override
-    public void finalize() {
-        release();
+    public void release() {
+        released = true;
+        if (evictionRegistration != null) {
+            evictionRegistration.release();
+        }
+        // wait for registrations that are in progress
+        for (final Object stripe : stripes) {
+            synchronized (stripe) {}
+        }
+        for (final Id id : new ArrayList<>(managedObjects.keySet())) {
+            final Item<T> entry = managedObjects.get(id);
+            if (entry != null && remove(id, entry)) {
+                release(entry.item);
+            }
+        }
     }
 }
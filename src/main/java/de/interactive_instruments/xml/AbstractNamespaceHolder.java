@@ -53,6 +53,12 @@ abstract class AbstractNamespaceHolder implements NamespaceHolder {
         }
     }
 
+    static List<String> newPrefixList(final String prefix) {
+        final List<String> prefixes = new ArrayList<>(2);
+        prefixes.add(prefix);
+        return prefixes;
+    }
+
     @Override
     public Map<String, Iterable<String>> getNamespacesAsMap() {
         return Collections.unmodifiableMap(namespacesUriMappings);
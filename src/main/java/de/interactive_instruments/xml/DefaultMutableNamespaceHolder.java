@@ -56,11 +56,7 @@ public final class DefaultMutableNamespaceHolder extends AbstractNamespaceHolder
             if (prefixes != null) {
                 prefixes.add(prefix);
             } else {
-                this.namespacesUriMappings.put(namespaceUri, new ArrayList<String>() {
-                    {
-                        add(prefix);
-                    }
-                });
+                this.namespacesUriMappings.put(namespaceUri, newPrefixList(prefix));
             }
         } else if (!nsUri.equals(namespaceUri)) {
             throw new IllegalArgumentException("The prefix '" + prefix + "' is already mapped to namespace '" + nsUri + "'");
@@ -0,0 +1,177 @@
+/**
+ * Copyright 2017-2019 European Union, interactive instruments GmbH
+ * Licensed under the EUPL, Version 1.2 or - as soon they will be approved by
+ * the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ *
+ * This work was supported by the EU Interoperability Solutions for
+ * European Public Administrations Programme (http://ec.europa.eu/isa)
+ * through Action 1.17: A Reusable INSPIRE Reference Platform (ARE3NA).
+ */
+package de.interactive_instruments.xml;
+
+import java.util.*;
+
+/**
+ * An immutable NamespaceHolder that is created by {@link NamespaceBuilder#build()}.
+ *
+ * The namespace URIs and prefixes are interned and kept in arrays, which are indexed by small open addressing hash
+ * tables, so {@link #getPrefix(String)} and {@link #getNamespaceURI(String)} do not allocate objects. The holder can
+ * be shared between threads.
+ *
+ * @author Jon Herrmann ( herrmann aT interactive-instruments doT de )
+ */
+final class FrozenNamespaceHolder implements NamespaceHolder {
+
+    private final String defaultNamespaceUri;
+
+    // namespace URIs in insertion order and their prefixes
+    private final String[] namespaceUris;
+    private final String[][] uriPrefixes;
+    private final int[] uriTable;
+
+    // prefixes in insertion order and their namespace URIs
+    private final String[] prefixes;
+    private final String[] prefixUris;
+    private final int[] prefixTable;
+
+    private final Map<String, Iterable<String>> namespacesAsMap;
+    private final List<Map.Entry<String, String>> entries;
+
+    FrozenNamespaceHolder(final String defaultNamespaceUri, final Map<String, Collection<String>> namespacesUriMappings,
+            final Map<String, String> prefixMappings) {
+        this.defaultNamespaceUri = defaultNamespaceUri != null ? defaultNamespaceUri.intern() : null;
+
+        this.namespaceUris = new String[namespacesUriMappings.size()];
+        this.uriPrefixes = new String[namespaceUris.length][];
+        final Map<String, Iterable<String>> map = new LinkedHashMap<>();
+        final List<Map.Entry<String, String>> entryList = new ArrayList<>();
+        int i = 0;
+        for (final Map.Entry<String, Collection<String>> mapping : namespacesUriMappings.entrySet()) {
+            final String namespaceUri = mapping.getKey().intern();
+            final String[] ps = new String[mapping.getValue().size()];
+            int p = 0;
+            for (final String prefix : mapping.getValue()) {
+                ps[p++] = prefix.intern();
+                entryList.add(new AbstractMap.SimpleImmutableEntry<>(namespaceUri, ps[p - 1]));
+            }
+            namespaceUris[i] = namespaceUri;
+            uriPrefixes[i] = ps;
+            map.put(namespaceUri, Collections.unmodifiableList(Arrays.asList(ps)));
+            i++;
+        }
+        this.uriTable = createTable(namespaceUris);
+
+        this.prefixes = new String[prefixMappings.size()];
+        this.prefixUris = new String[prefixes.length];
+        i = 0;
+        for (final Map.Entry<String, String> mapping : prefixMappings.entrySet()) {
+            prefixes[i] = mapping.getKey().intern();
+            prefixUris[i] = mapping.getValue().intern();
+            i++;
+        }
+        this.prefixTable = createTable(prefixes);
+
+        this.namespacesAsMap = Collections.unmodifiableMap(map);
+        this.entries = Collections.unmodifiableList(entryList);
+    }
+
+    /**
+     * Creates a hash table with the indexes + 1 of the keys, 0 marks free slots
+     */
+    private static int[] createTable(final String[] keys) {
+        int capacity = 4;
+        while (capacity < keys.length * 2) {
+            capacity <<= 1;
+        }
+        final int[] table = new int[capacity];
+        final int mask = capacity - 1;
+        for (int i = 0; i < keys.length; i++) {
+            int slot = spread(keys[i].hashCode()) & mask;
+            while (table[slot] != 0) {
+                if (keys[table[slot] - 1].equals(keys[i])) {
+                    // duplicate key, the first one wins
+                    break;
+                }
+                slot = (slot + 1) & mask;
+            }
+            if (table[slot] == 0) {
+                table[slot] = i + 1;
+            }
+        }
+        return table;
+    }
+
+    private static int spread(final int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private static int indexOf(final String[] keys, final int[] table, final String key) {
+        if (key == null) {
+            return -1;
+        }
+        final int mask = table.length - 1;
+        for (int slot = spread(key.hashCode()) & mask;; slot = (slot + 1) & mask) {
+            final int index = table[slot] - 1;
+            if (index == -1) {
+                return -1;
+            }
+            final String candidate = keys[index];
+            if (candidate == key || candidate.equals(key)) {
+                return index;
+            }
+        }
+    }
+
+    @Override
+    public String getDefaultNamespaceUri() {
+        return defaultNamespaceUri;
+    }
+
+    @Override
+    public Map<String, Iterable<String>> getNamespacesAsMap() {
+        return namespacesAsMap;
+    }
+
+    @Override
+    public boolean hasPrefixForNamespace(final String namespaceUri) {
+        return indexOf(namespaceUris, uriTable, namespaceUri) != -1;
+    }
+
+    @Override
+    public String getNamespaceURI(final String prefix) {
+        final int index = indexOf(prefixes, prefixTable, prefix);
+        return index != -1 ? prefixUris[index] : null;
+    }
+
+    @Override
+    public String getPrefix(final String namespaceUri) {
+        final int index = indexOf(namespaceUris, uriTable, namespaceUri);
+        return index != -1 && uriPrefixes[index].length > 0 ? uriPrefixes[index][0] : null;
+    }
+
+    @Override
+    public Iterator<String> getPrefixes(final String namespaceUri) {
+        final int index = indexOf(namespaceUris, uriTable, namespaceUri);
+        return index != -1 ? namespacesAsMap.get(namespaceUris[index]).iterator() : null;
+    }
+
+    @Override
+    public int prefixesSize() {
+        return prefixes.length;
+    }
+
+    @Override
+    public Iterator<Map.Entry<String, String>> iterator() {
+        return entries.iterator();
+    }
+}
@@ -42,6 +42,18 @@ public interface NamespaceHolder extends NamespaceContext, Iterable<Map.Entry<St
     Pattern FRAGMENT_TO_QNAME = Pattern
             .compile("((\\{([\\w:\\/.#]*)\\})(@?[\\w-]*$))|(@?[\\w:\\/.#]*:)([\\w-]*$)|(@?[\\w-]*$)");
 
+    /**
+     * Returns true if the NamespaceContext is an immutable NamespaceHolder that was created with
+     * {@link NamespaceBuilder#build()}
+     *
+     * @param namespaceContext
+     *            NamespaceContext or null
+     * @return true if the NamespaceContext can not change, false otherwise
+     */
+    static boolean isImmutable(final NamespaceContext namespaceContext) {
+        return namespaceContext instanceof FrozenNamespaceHolder;
+    }
+
     /**
      * Returns the default namespace URI
      *
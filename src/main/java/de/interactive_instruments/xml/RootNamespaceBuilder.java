@@ -73,11 +73,7 @@ class RootNamespaceBuilder extends AbstractNamespaceHolder implements NamespaceB
             if (prefixes != null) {
                 prefixes.add(prefix);
             } else {
-                this.namespacesUriMappings.put(namespaceUri, new ArrayList<String>() {
-                    {
-                        add(prefix);
-                    }
-                });
+                this.namespacesUriMappings.put(namespaceUri, newPrefixList(prefix));
             }
             return this;
         } else if (nsUri.equals(namespaceUri)) {
@@ -99,11 +95,7 @@ class RootNamespaceBuilder extends AbstractNamespaceHolder implements NamespaceB
             if (prefixes != null) {
                 prefixes.add(prefix);
             } else {
-                this.namespacesUriMappings.put(namespaceUri, new ArrayList<String>() {
-                    {
-                        add(prefix);
-                    }
-                });
+                this.namespacesUriMappings.put(namespaceUri, newPrefixList(prefix));
             }
             return this;
         } else if (nsUri.equals(namespaceUri)) {
@@ -141,11 +133,7 @@ class RootNamespaceBuilder extends AbstractNamespaceHolder implements NamespaceB
                     if (prefixes != null) {
                         prefixes.add(prefixNsUriEntry.getKey());
                     } else {
-                        this.namespacesUriMappings.put(prefixNsUriEntry.getValue(), new ArrayList<String>() {
-                            {
-                                add(prefixNsUriEntry.getKey());
-                            }
-                        });
+                        this.namespacesUriMappings.put(prefixNsUriEntry.getValue(), newPrefixList(prefixNsUriEntry.getKey()));
                     }
                 }
             }
@@ -178,13 +166,9 @@ class RootNamespaceBuilder extends AbstractNamespaceHolder implements NamespaceB
                     prefix = generatedPrefix;
                 }
                 prefixMappingsCopy.put(prefix, unknownNamespaceUri);
-                namespacesUriMappingsCopy.put(unknownNamespaceUri, new ArrayList<String>() {
-                    {
-                        add(prefix);
-                    }
-                });
+                namespacesUriMappingsCopy.put(unknownNamespaceUri, newPrefixList(prefix));
             }
         }
-        return new DefaultNamespaceHolder(this.defaultNamespaceUri, namespacesUriMappingsCopy, prefixMappingsCopy);
+        return new FrozenNamespaceHolder(this.defaultNamespaceUri, namespacesUriMappingsCopy, prefixMappingsCopy);
     }
 }
@@ -0,0 +1,397 @@
+/**
+ * Copyright 2017-2019 European Union, interactive instruments GmbH
+ * Licensed under the EUPL, Version 1.2 or - as soon they will be approved by
+ * the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ *
+ * This work was supported by the EU Interoperability Solutions for
+ * European Public Administrations Programme (http://ec.europa.eu/isa)
+ * through Action 1.17: A Reusable INSPIRE Reference Platform (ARE3NA).
+ */
+package de.interactive_instruments.xml;
+
+import java.io.*;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import javax.xml.XMLConstants;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * Writes XML documents with an {@link XMLStreamWriter}, without building a DOM.
+ *
+ * The prefixes of the namespaces are taken from a {@link NamespaceHolder}, the namespaces of the holder are declared
+ * on the root element. Elements without a namespace that are written in the scope of a default namespace reset it
+ * with an empty {@code xmlns} declaration. Attributes in the default namespace get a prefix of the holder or a
+ * generated one, as unprefixed attributes are never in a namespace. The output is buffered in a byte buffer that is reused by each thread and can optionally be
+ * compressed with gzip.
+ *
+ * Example:
+ *
+ * <pre>
+ * try (final StreamingXmlWriter writer = StreamingXmlWriter.create(file, namespaces, false)) {
+ *     writer.startDocument();
+ *     writer.startElement(NS, "Report");
+ *     writer.element(NS, "name", name);
+ *     writer.endElement();
+ *     writer.endDocument();
+ * }
+ * </pre>
+ *
+ * @author Jon Herrmann ( herrmann aT interactive-instruments doT de )
+ */
+public final class StreamingXmlWriter implements Closeable {
+
+    private static final int BUFFER_SIZE = 65536;
+    private static final XMLOutputFactory outputFactory = XMLOutputFactory.newFactory();
+    private static final ThreadLocal<byte[]> buffers = new ThreadLocal<>();
+
+    private final XMLStreamWriter writer;
+    private final BufferedSink sink;
+    private final NamespaceHolder namespaces;
+    private boolean rootWritten;
+    // default namespace in the scope of each open element, an empty string if there is none
+    private final Deque<String> defaultNamespaceScopes = new ArrayDeque<>();
+    private int generatedPrefixes;
+
+    /**
+     * Buffers output in a byte array that is borrowed from the thread local pool and returned when the stream is
+     * closed
+     */
+    private static final class BufferedSink extends OutputStream {
+        private final OutputStream out;
+        private byte[] buffer;
+        private int count;
+
+        private BufferedSink(final OutputStream out) {
+            this.out = out;
+            final byte[] pooled = buffers.get();
+            if (pooled != null) {
+                buffers.remove();
+                this.buffer = pooled;
+            } else {
+                this.buffer = new byte[BUFFER_SIZE];
+            }
+        }
+
+        private void flushBuffer() throws IOException {
+            if (count > 0) {
+                out.write(buffer, 0, count);
+                count = 0;
+            }
+        }
+
+        @Override
+        public void write(final int b) throws IOException {
+            if (count == buffer.length) {
+                flushBuffer();
+            }
+            buffer[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) throws IOException {
+            if (len >= buffer.length) {
+                flushBuffer();
+                out.write(b, off, len);
+                return;
+            }
+            if (len > buffer.length - count) {
+                flushBuffer();
+            }
+            System.arraycopy(b, off, buffer, count, len);
+            count += len;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            flushBuffer();
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (buffer == null) {
+                return;
+            }
+            try {
+                flushBuffer();
+                out.close();
+            } finally {
+                buffers.set(buffer);
+                buffer = null;
+            }
+        }
+    }
+
+    private StreamingXmlWriter(final OutputStream outputStream, final NamespaceHolder namespaces, final boolean gzip)
+            throws IOException {
+        this.namespaces = namespaces;
+        this.sink = new BufferedSink(gzip ? new GZIPOutputStream(outputStream, 8192) : outputStream);
+        try {
+            this.writer = outputFactory.createXMLStreamWriter(sink, "UTF-8");
+        } catch (final XMLStreamException e) {
+            sink.close();
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Creates a new writer. The stream is closed when the writer is closed.
+     *
+     * @param outputStream
+     *            target stream
+     * @param namespaces
+     *            namespaces that are declared on the root element or null
+     * @param gzip
+     *            compress the output with gzip
+     * @return StreamingXmlWriter
+     * @throws IOException
+     *             if the writer can not be created
+     */
+    public static StreamingXmlWriter create(final OutputStream outputStream, final NamespaceHolder namespaces,
+            final boolean gzip) throws IOException {
+        return new StreamingXmlWriter(outputStream, namespaces, gzip);
+    }
+
+    /**
+     * Creates a new writer for a file
+     *
+     * @param file
+     *            target file
+     * @param namespaces
+     *            namespaces that are declared on the root element or null
+     * @param gzip
+     *            compress the output with gzip
+     * @return StreamingXmlWriter
+     * @throws IOException
+     *             if the file can not be opened
+     */
+    public static StreamingXmlWriter create(final File file, final NamespaceHolder namespaces, final boolean gzip)
+            throws IOException {
+        return new StreamingXmlWriter(new FileOutputStream(file), namespaces, gzip);
+    }
+
+    public StreamingXmlWriter startDocument() throws XMLStreamException {
+        writer.writeStartDocument("UTF-8", "1.0");
+        return this;
+    }
+
+    /**
+     * Starts an element. The prefix is taken from the NamespaceHolder.
+     *
+     * @param namespaceUri
+     *            namespace URI, null or an empty string for elements without a namespace
+     * @param localName
+     *            local name
+     * @return this writer
+     * @throws XMLStreamException
+     *             if the namespace is unknown or writing failed
+     */
+    public StreamingXmlWriter startElement(final String namespaceUri, final String localName)
+            throws XMLStreamException {
+        final String ns = namespaceUri != null ? namespaceUri : "";
+        final String prefix = prefix(ns);
+        writer.writeStartElement(prefix, localName, ns);
+        String defaultNamespaceUri = defaultNamespaceScopes.isEmpty() ? "" : defaultNamespaceScopes.peek();
+        if (!rootWritten) {
+            rootWritten = true;
+            defaultNamespaceUri = declareNamespaces(prefix.isEmpty() ? ns : null);
+        }
+        if (prefix.isEmpty() && !ns.equals(defaultNamespaceUri)) {
+            // also resets the default namespace for elements without a namespace
+            writer.writeDefaultNamespace(ns);
+            defaultNamespaceUri = ns;
+        }
+        defaultNamespaceScopes.push(defaultNamespaceUri);
+        return this;
+    }
+
+    /**
+     * Declares the namespaces of the holder on the root element
+     *
+     * @param rootNamespaceUri
+     *            namespace of an unprefixed root element or null if the root element has a prefix
+     * @return the declared default namespace or an empty string
+     */
+    private String declareNamespaces(final String rootNamespaceUri) throws XMLStreamException {
+        if (namespaces == null) {
+            return "";
+        }
+        for (final Map.Entry<String, String> namespaceUriPrefix : namespaces) {
+            writer.writeNamespace(namespaceUriPrefix.getValue(), namespaceUriPrefix.getKey());
+        }
+        final String defaultNamespaceUri = namespaces.getDefaultNamespaceUri();
+        // an unprefixed root element that is not in the default namespace must not be placed into it
+        if (defaultNamespaceUri != null && !defaultNamespaceUri.isEmpty()
+                && (rootNamespaceUri == null || rootNamespaceUri.equals(defaultNamespaceUri))) {
+            writer.writeDefaultNamespace(defaultNamespaceUri);
+            return defaultNamespaceUri;
+        }
+        return "";
+    }
+
+    /**
+     * Returns the prefix of an attribute namespace, which must not be empty. Generated prefixes are declared on the
+     * current element.
+     */
+    private String attributePrefix(final String namespaceUri) throws XMLStreamException {
+        if (namespaces != null) {
+            final String prefix = namespaces.getPrefix(namespaceUri);
+            if (prefix != null && !prefix.isEmpty()) {
+                return prefix;
+            }
+        }
+        final String bound = writer.getPrefix(namespaceUri);
+        if (bound != null && !bound.isEmpty()) {
+            return bound;
+        }
+        if (namespaces == null || !namespaceUri.equals(namespaces.getDefaultNamespaceUri())) {
+            throw new XMLStreamException("No prefix defined for namespace '" + namespaceUri + "'");
+        }
+        String prefix;
+        do {
+            prefix = "ns" + ++generatedPrefixes;
+        } while (namespaces.getNamespaceURI(prefix) != null
+                && !XMLConstants.NULL_NS_URI.equals(namespaces.getNamespaceURI(prefix)));
+        writer.writeNamespace(prefix, namespaceUri);
+        return prefix;
+    }
+
+    private String prefix(final String namespaceUri) throws XMLStreamException {
+        if (namespaceUri == null || namespaceUri.isEmpty()) {
+            return XMLConstants.DEFAULT_NS_PREFIX;
+        }
+        if (namespaces != null) {
+            if (namespaceUri.equals(namespaces.getDefaultNamespaceUri())) {
+                return XMLConstants.DEFAULT_NS_PREFIX;
+            }
+            final String prefix = namespaces.getPrefix(namespaceUri);
+            if (prefix != null) {
+                return prefix;
+            }
+        }
+        throw new XMLStreamException("No prefix defined for namespace '" + namespaceUri + "'");
+    }
+
+    public StreamingXmlWriter startElement(final String localName) throws XMLStreamException {
+        return startElement(null, localName);
+    }
+
+    public StreamingXmlWriter attribute(final String localName, final String value) throws XMLStreamException {
+        writer.writeAttribute(localName, value);
+        return this;
+    }
+
+    public StreamingXmlWriter attribute(final String namespaceUri, final String localName, final String value)
+            throws XMLStreamException {
+        if (namespaceUri == null || namespaceUri.isEmpty()) {
+            writer.writeAttribute(localName, value);
+        } else {
+            writer.writeAttribute(attributePrefix(namespaceUri), namespaceUri, localName, value);
+        }
+        return this;
+    }
+
+    public StreamingXmlWriter text(final String text) throws XMLStreamException {
+        if (text != null) {
+            writer.writeCharacters(text);
+        }
+        return this;
+    }
+
+    public StreamingXmlWriter cdata(final String text) throws XMLStreamException {
+        writer.writeCData(text);
+        return this;
+    }
+
+    public StreamingXmlWriter comment(final String comment) throws XMLStreamException {
+        writer.writeComment(comment);
+        return this;
+    }
+
+    /**
+     * Writes an element with a text node
+     *
+     * @param namespaceUri
+     *            namespace URI, null or an empty string for elements without a namespace
+     * @param localName
+     *            local name
+     * @param text
+     *            text content or null for an empty element
+     * @return this writer
+     * @throws XMLStreamException
+     *             if the namespace is unknown or writing failed
+     */
+    public StreamingXmlWriter element(final String namespaceUri, final String localName, final String text)
+            throws XMLStreamException {
+        return startElement(namespaceUri, localName).text(text).endElement();
+    }
+
+    public StreamingXmlWriter endElement() throws XMLStreamException {
+        writer.writeEndElement();
+        defaultNamespaceScopes.poll();
+        return this;
+    }
+
+    /**
+     * Closes all open elements
+     *
+     * @return this writer
+     * @throws XMLStreamException
+     *             if writing failed
+     */
+    public StreamingXmlWriter endDocument() throws XMLStreamException {
+        writer.writeEndDocument();
+        defaultNamespaceScopes.clear();
+        return this;
+    }
+
+    /**
+     * Returns the underlying writer, for instance to pass it to a JAXB Marshaller
+     *
+     * @return XMLStreamWriter
+     */
+    public XMLStreamWriter getXMLStreamWriter() {
+        return writer;
+    }
+
+    public void flush() throws IOException {
+        try {
+            writer.flush();
+        } catch (final XMLStreamException e) {
+            throw new IOException(e);
+        }
+        sink.flush();
+    }
+
+    /**
+     * Flushes the output, finishes the gzip stream if compression is used and closes the underlying stream
+     *
+     * @throws IOException
+     *             if writing failed
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            writer.close();
+        } catch (final XMLStreamException e) {
+            throw new IOException(e);
+        } finally {
+            sink.close();
+        }
+    }
+}
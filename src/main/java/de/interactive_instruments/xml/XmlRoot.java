@@ -0,0 +1,256 @@
+/**
+ * Copyright 2017-2019 European Union, interactive instruments GmbH
+ * Licensed under the EUPL, Version 1.2 or - as soon they will be approved by
+ * the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ *
+ * This work was supported by the EU Interoperability Solutions for
+ * European Public Administrations Programme (http://ec.europa.eu/isa)
+ * through Action 1.17: A Reusable INSPIRE Reference Platform (ARE3NA).
+ */
+package de.interactive_instruments.xml;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.xml.XMLConstants;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import de.interactive_instruments.collections.ExpiringCache;
+import de.interactive_instruments.exceptions.ExcUtils;
+
+/**
+ * Information about the root element of an XML document, which is obtained by reading the document only up to the
+ * first start element.
+ *
+ * The results for files are cached, a cached result is used as long as the size and the modification time of the file
+ * do not change. The max number of cached files can be set with the system property {@code ii.xml.root.cache.size}.
+ *
+ * @author Jon Herrmann ( herrmann aT interactive-instruments doT de )
+ */
+public final class XmlRoot {
+
+    public static final String GML_MIME_TYPE = "application/gml+xml";
+    public static final String XML_MIME_TYPE = "application/xml";
+
+    private static final String GML_NAMESPACE_PREFIX = "http://www.opengis.net/gml";
+
+    private static final XMLInputFactory inputFactory = createInputFactory();
+
+    private static final ExpiringCache<String, CachedRoot> cache = ExpiringCache.<String, CachedRoot> builder()
+            .maximumSize(Long.getLong("ii.xml.root.cache.size", 4096)).build();
+
+    private final String encoding;
+    private final QName rootElement;
+    private final NamespaceHolder namespaces;
+    private final Map<String, String> schemaLocations;
+    private final String noNamespaceSchemaLocation;
+
+    private static final class CachedRoot {
+        private final long size;
+        private final long lastModified;
+        // null if the file is not an XML document
+        private final XmlRoot root;
+
+        private CachedRoot(final long size, final long lastModified, final XmlRoot root) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.root = root;
+        }
+    }
+
+    private static XMLInputFactory createInputFactory() {
+        final XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        // do not load external DTDs or entities
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+
+    private XmlRoot(final XMLStreamReader reader) {
+        this.encoding = reader.getCharacterEncodingScheme() != null ? reader.getCharacterEncodingScheme()
+                : reader.getEncoding();
+        this.rootElement = reader.getName();
+        final NamespaceBuilder builder = NamespaceBuilder.newInstance();
+        for (int i = 0; i < reader.getNamespaceCount(); i++) {
+            final String prefix = reader.getNamespacePrefix(i);
+            if (prefix == null || prefix.isEmpty()) {
+                builder.setDefaultNamespaceUri(reader.getNamespaceURI(i));
+            } else {
+                builder.addNamespaceUriAndPrefix(reader.getNamespaceURI(i), prefix);
+            }
+        }
+        this.namespaces = builder.build();
+        final String schemaLocation = reader.getAttributeValue(XMLConstants.W3C_XML_SCHEMA_INSTANCE_NS_URI,
+                "schemaLocation");
+        if (schemaLocation != null) {
+            final String[] tokens = schemaLocation.trim().split("\\s+");
+            final Map<String, String> locations = new LinkedHashMap<>();
+            for (int i = 0; i + 1 < tokens.length; i += 2) {
+                locations.put(tokens[i], tokens[i + 1]);
+            }
+            this.schemaLocations = Collections.unmodifiableMap(locations);
+        } else {
+            this.schemaLocations = Collections.emptyMap();
+        }
+        this.noNamespaceSchemaLocation = reader.getAttributeValue(XMLConstants.W3C_XML_SCHEMA_INSTANCE_NS_URI,
+                "noNamespaceSchemaLocation");
+    }
+
+    /**
+     * Reads a stream up to the first start element. The stream is not closed.
+     *
+     * @param inputStream
+     *            stream of the document
+     * @return information about the root element or null if the stream is not an XML document
+     * @throws IOException
+     *             if the stream can not be read
+     */
+    public static XmlRoot sniff(final InputStream inputStream) throws IOException {
+        XMLStreamReader reader = null;
+        try {
+            reader = inputFactory.createXMLStreamReader(inputStream);
+            while (reader.hasNext()) {
+                if (reader.next() == XMLStreamConstants.START_ELEMENT) {
+                    return new XmlRoot(reader);
+                }
+            }
+            return null;
+        } catch (final XMLStreamException e) {
+            if (e.getNestedException() instanceof IOException) {
+                throw (IOException) e.getNestedException();
+            }
+            ExcUtils.suppress(e);
+            return null;
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (final XMLStreamException e) {
+                    ExcUtils.suppress(e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads a file up to the first start element. The result is cached.
+     *
+     * @param file
+     *            XML file
+     * @return information about the root element or null if the file is not an XML document
+     * @throws IOException
+     *             if the file can not be read
+     */
+    public static XmlRoot sniff(final File file) throws IOException {
+        final BasicFileAttributes attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+        final String key = file.getAbsolutePath();
+        final long lastModified = attributes.lastModifiedTime().toMillis();
+        final CachedRoot cached = cache.getIfPresent(key);
+        if (cached != null && cached.size == attributes.size() && cached.lastModified == lastModified) {
+            return cached.root;
+        }
+        final XmlRoot root;
+        try (final InputStream inputStream = new BufferedInputStream(Files.newInputStream(file.toPath()), 8192)) {
+            root = sniff(inputStream);
+        }
+        cache.put(key, new CachedRoot(attributes.size(), lastModified, root));
+        return root;
+    }
+
+    /**
+     * Returns the declared encoding or the detected encoding if the document does not declare one
+     *
+     * @return encoding name
+     */
+    public String getEncoding() {
+        return encoding;
+    }
+
+    public QName getRootElement() {
+        return rootElement;
+    }
+
+    /**
+     * Returns the namespaces that are declared on the root element
+     *
+     * @return immutable NamespaceHolder
+     */
+    public NamespaceHolder getNamespaces() {
+        return namespaces;
+    }
+
+    /**
+     * Returns the namespace URIs mapped to the locations of the xsi:schemaLocation attribute
+     *
+     * @return namespace URI to schema location map, empty if the attribute is not set
+     */
+    public Map<String, String> getSchemaLocations() {
+        return schemaLocations;
+    }
+
+    /**
+     * Returns the xsi:noNamespaceSchemaLocation attribute
+     *
+     * @return schema location or null if not set
+     */
+    public String getNoNamespaceSchemaLocation() {
+        return noNamespaceSchemaLocation;
+    }
+
+    /**
+     * Checks if the root element is in a GML namespace or declares a GML namespace, like GML feature collections or
+     * WFS responses do
+     *
+     * @return true if the document is a GML document
+     */
+    public boolean isGml() {
+        if (rootElement.getNamespaceURI().startsWith(GML_NAMESPACE_PREFIX)) {
+            return true;
+        }
+        for (final String namespaceUri : namespaces.getNamespacesAsMap().keySet()) {
+            if (namespaceUri.startsWith(GML_NAMESPACE_PREFIX)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns {@value #GML_MIME_TYPE} for GML documents and {@value #XML_MIME_TYPE} for all other XML documents
+     *
+     * @return MIME type
+     */
+    public String getMimeType() {
+        return isGml() ? GML_MIME_TYPE : XML_MIME_TYPE;
+    }
+
+    @Override
+    public String toString() {
+        return "XmlRoot{" + "rootElement=" + rootElement +
+                ", encoding='" + encoding + '\'' +
+                ", schemaLocations=" + schemaLocations +
+                '}';
+    }
+}
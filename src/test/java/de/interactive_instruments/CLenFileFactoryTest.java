@@ -0,0 +1,132 @@
+/**
+ * Copyright 2017-2019 European Union, interactive instruments GmbH
+ * Licensed under the EUPL, Version 1.2 or - as soon they will be approved by
+ * the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ *
+ * This work was supported by the EU Interoperability Solutions for
+ * European Public Administrations Programme (http://ec.europa.eu/isa)
+ * through Action 1.17: A Reusable INSPIRE Reference Platform (ARE3NA).
+ */
+package de.interactive_instruments;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+import de.interactive_instruments.container.CLenFileFactory;
+import de.interactive_instruments.container.LazyLoadContainer;
+import de.interactive_instruments.container.UrlReferenceContainer;
+
+/**
+ * @author Jon Herrmann ( herrmann aT interactive-instruments doT de )
+ */
+public class CLenFileFactoryTest {
+
+    @Test
+    public void testWriteBehind() throws Exception {
+        final Path dir = Files.createTempDirectory("clen");
+        final CLenFileFactory factory = new CLenFileFactory();
+        try {
+            factory.getConfigurationProperties().setProperty(CLenFileFactory.PROPERTY_OUTPUT_DIR, dir.toString());
+            factory.getConfigurationProperties().setProperty(CLenFileFactory.PROPERTY_BASE_URI, dir.toUri().toString());
+            factory.getConfigurationProperties().setProperty(CLenFileFactory.PROPERTY_MAX_INLINE_LENGTH, "10");
+            factory.getConfigurationProperties().setProperty(CLenFileFactory.PROPERTY_WRITE_BEHIND, "true");
+            factory.getConfigurationProperties().setProperty(CLenFileFactory.PROPERTY_WRITE_BEHIND_QUEUE_BYTES, "100");
+            factory.init();
+
+            final List<LazyLoadContainer> containers = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                containers.add(factory.create("c" + i, "text/plain", "container content " + i));
+            }
+            factory.flush();
+            for (int i = 0; i < 100; i++) {
+                assertTrue(containers.get(i) instanceof UrlReferenceContainer);
+                assertEquals("container content " + i, containers.get(i).forceLoad());
+            }
+        } finally {
+            factory.release();
+            FileUtils.deleteDirectory(dir.toFile());
+        }
+    }
+
+    @Test
+    public void testCompression() throws Exception {
+        final Path dir = Files.createTempDirectory("clen");
+        final CLenFileFactory factory = new CLenFileFactory();
+        try {
+            factory.getConfigurationProperties().setProperty(CLenFileFactory.PROPERTY_OUTPUT_DIR, dir.toString());
+            factory.getConfigurationProperties().setProperty(CLenFileFactory.PROPERTY_BASE_URI, dir.toUri().toString());
+            factory.getConfigurationProperties().setProperty(CLenFileFactory.PROPERTY_MAX_INLINE_LENGTH, "10");
+            factory.getConfigurationProperties().setProperty(CLenFileFactory.PROPERTY_COMPRESS_MIME_TYPES, "xml, gml");
+            factory.getConfigurationProperties().setProperty(CLenFileFactory.PROPERTY_COMPRESS_MIN_LENGTH, "100");
+            factory.init();
+
+            final StringBuilder xml = new StringBuilder("<root>");
+            for (int i = 0; i < 1000; i++) {
+                xml.append("<item>").append(i).append("</item>");
+            }
+            xml.append("</root>");
+            final UrlReferenceContainer compressed = (UrlReferenceContainer) factory.create("xml", "text/xml",
+                    xml.toString());
+            assertEquals(UrlReferenceContainer.GZIP_ENCODING, compressed.getContentEncoding());
+            assertEquals(xml.toString(), compressed.forceLoad());
+            final ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+            compressed.forceLoadEncodedAsStream(encoded);
+            assertTrue(encoded.size() < xml.length() / 5);
+
+            final UrlReferenceContainer plain = (UrlReferenceContainer) factory.create("txt", "text/plain",
+                    xml.toString());
+            assertNull(plain.getContentEncoding());
+            assertEquals(xml.toString(), plain.forceLoad());
+        } finally {
+            factory.release();
+            FileUtils.deleteDirectory(dir.toFile());
+        }
+    }
+
+    @Test
+    public void testDeduplication() throws Exception {
+        final Path dir = Files.createTempDirectory("clen");
+        final CLenFileFactory factory = new CLenFileFactory();
+        try {
+            factory.getConfigurationProperties().setProperty(CLenFileFactory.PROPERTY_OUTPUT_DIR, dir.toString());
+            factory.getConfigurationProperties().setProperty(CLenFileFactory.PROPERTY_BASE_URI, dir.toUri().toString());
+            factory.getConfigurationProperties().setProperty(CLenFileFactory.PROPERTY_MAX_INLINE_LENGTH, "10");
+            factory.getConfigurationProperties().setProperty(CLenFileFactory.PROPERTY_DEDUPLICATE, "true");
+            factory.init();
+
+            final String content = "Gr\u00fc\u00dfe aus K\u00f6ln";
+            final UrlReferenceContainer first = (UrlReferenceContainer) factory.create("first", "text/plain", content);
+            final UrlReferenceContainer second = (UrlReferenceContainer) factory.create("second", "text/plain", content);
+            // stored once
+            try (final Stream<Path> files = Files.walk(dir)) {
+                assertEquals(1, files.filter(Files::isRegularFile).count());
+            }
+            // the size is the number of bytes, not characters
+            assertEquals(content.getBytes(StandardCharsets.UTF_8).length, first.getSizeOrErrorCode());
+            assertEquals(content, second.forceLoad());
+        } finally {
+            factory.release();
+            FileUtils.deleteDirectory(dir.toFile());
+        }
+    }
+}
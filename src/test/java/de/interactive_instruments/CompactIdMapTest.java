@@ -0,0 +1,102 @@
+/**
+ * Copyright 2017-2019 European Union, interactive instruments GmbH
+ * Licensed under the EUPL, Version 1.2 or - as soon they will be approved by
+ * the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ *
+ * This work was supported by the EU Interoperability Solutions for
+ * European Public Administrations Programme (http://ec.europa.eu/isa)
+ * through Action 1.17: A Reusable INSPIRE Reference Platform (ARE3NA).
+ */
+package de.interactive_instruments;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import org.junit.Test;
+
+import de.interactive_instruments.model.std.CompactIdMap;
+import de.interactive_instruments.model.std.Id;
+import de.interactive_instruments.model.std.IdFactory;
+
+/**
+ * @author Jon Herrmann ( herrmann aT interactive-instruments doT de )
+ */
+public class CompactIdMapTest {
+
+    private final IdFactory idFactory = IdFactory.getDefault();
+
+    @Test
+    public void testLookup() {
+        final CompactIdMap<String> map = new CompactIdMap<>();
+        final Id id = idFactory.createRandomUuid();
+        map.put(id, "value");
+        assertEquals(1, map.size());
+        assertEquals("value", map.get(id));
+        assertEquals("value", map.get(id.getId()));
+        assertEquals("value", map.get(id.toUuid()));
+        assertEquals("value", map.get(idFactory.createFromStrAndPreserve(id.getId())));
+        assertTrue(map.containsKey(id.getId()));
+        assertNull(map.get(idFactory.createRandomUuid()));
+        assertEquals(id, map.keySet().iterator().next());
+    }
+
+    @Test
+    public void testNonUuidString() {
+        final CompactIdMap<String> map = new CompactIdMap<>();
+        map.put(idFactory.createFromStrAndPreserve("TEST-ID"), "value");
+        assertEquals("value", map.get("TEST-ID"));
+        assertEquals("value", map.get(idFactory.createFromStrAsUuid("TEST-ID")));
+        assertEquals("value", map.remove("TEST-ID"));
+        assertTrue(map.isEmpty());
+    }
+
+    @Test
+    public void testInsertionOrderAndRemoval() {
+        final CompactIdMap<Integer> map = new CompactIdMap<>(2);
+        final List<Id> ids = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            final Id id = idFactory.createRandomUuid();
+            ids.add(id);
+            assertNull(map.put(id, i));
+        }
+        assertEquals(10000, map.size());
+        for (int i = 0; i < 10000; i += 2) {
+            assertEquals(Integer.valueOf(i), map.remove(ids.get(i)));
+        }
+        assertEquals(5000, map.size());
+        for (int i = 0; i < 10000; i++) {
+            assertEquals(i % 2 == 0 ? null : Integer.valueOf(i), map.get(ids.get(i).getId()));
+        }
+        int expected = 1;
+        for (final Integer value : map.values()) {
+            assertEquals(expected, value.intValue());
+            expected += 2;
+        }
+        final Iterator<Map.Entry<Id, Integer>> it = map.entrySet().iterator();
+        while (it.hasNext()) {
+            final Map.Entry<Id, Integer> e = it.next();
+            if (e.getValue() % 3 == 0) {
+                it.remove();
+            } else {
+                e.setValue(-e.getValue());
+            }
+        }
+        for (int i = 1; i < 10000; i += 2) {
+            assertEquals(i % 3 == 0 ? null : Integer.valueOf(-i), map.get(ids.get(i)));
+        }
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertNull(map.get(ids.get(1)));
+    }
+}
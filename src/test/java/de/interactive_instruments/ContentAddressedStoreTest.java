@@ -0,0 +1,85 @@
+/**
+ * Copyright 2017-2019 European Union, interactive instruments GmbH
+ * Licensed under the EUPL, Version 1.2 or - as soon they will be approved by
+ * the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ *
+ * This work was supported by the EU Interoperability Solutions for
+ * European Public Administrations Programme (http://ec.europa.eu/isa)
+ * through Action 1.17: A Reusable INSPIRE Reference Platform (ARE3NA).
+ */
+package de.interactive_instruments;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+import de.interactive_instruments.container.ContentAddressedStore;
+
+/**
+ * @author Jon Herrmann ( herrmann aT interactive-instruments doT de )
+ */
+public class ContentAddressedStoreTest {
+
+    @Test
+    public void testDeduplication() throws IOException {
+        final Path dir = Files.createTempDirectory("cas");
+        try {
+            final ContentAddressedStore store = new ContentAddressedStore(dir.toFile(), 2, false);
+            final byte[] content = "<a>content</a>".getBytes(StandardCharsets.UTF_8);
+            final String path1 = store.store(content, ".xml");
+            final Path file = Files.createTempFile(dir, "in", ".tmp");
+            Files.write(file, content);
+            final String path2 = store.storeFile(file, ".xml");
+            assertEquals(path1, path2);
+            assertFalse(Files.exists(file));
+            assertTrue(path1.endsWith(".xml"));
+            final String other = store.store("<b/>".getBytes(StandardCharsets.UTF_8), ".xml");
+            assertNotEquals(path1, other);
+            try (final InputStream in = store.openStream(path1)) {
+                assertArrayEquals(content, IOUtils.toByteArray(in));
+            }
+            // named by the FNV hash of the content
+            final MdUtils.FnvChecksum checksum = new MdUtils.FnvChecksum();
+            checksum.update(content);
+            assertTrue(path1.startsWith(MdUtils.h64ToString(checksum.getHash()).toLowerCase().substring(0, 2) + "/"));
+            assertTrue(path1.contains(MdUtils.h64ToString(checksum.getHash()).toLowerCase() + "-"));
+        } finally {
+            FileUtils.deleteDirectory(dir.toFile());
+        }
+    }
+
+    @Test
+    public void testCompression() throws IOException {
+        final Path dir = Files.createTempDirectory("cas");
+        try {
+            final ContentAddressedStore store = new ContentAddressedStore(dir.toFile(), 0, true);
+            final byte[] content = "compressed content".getBytes(StandardCharsets.UTF_8);
+            final String path = store.store(content, ".txt");
+            assertTrue(path.endsWith(".txt" + ContentAddressedStore.GZIP_SUFFIX));
+            assertEquals(path, store.store(content, ".txt"));
+            try (final InputStream in = store.openStream(path)) {
+                assertArrayEquals(content, IOUtils.toByteArray(in));
+            }
+        } finally {
+            FileUtils.deleteDirectory(dir.toFile());
+        }
+    }
+}
@@ -0,0 +1,65 @@
+/**
+ * Copyright 2017-2019 European Union, interactive instruments GmbH
+ * Licensed under the EUPL, Version 1.2 or - as soon they will be approved by
+ * the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ *
+ * This work was supported by the EU Interoperability Solutions for
+ * European Public Administrations Programme (http://ec.europa.eu/isa)
+ * through Action 1.17: A Reusable INSPIRE Reference Platform (ARE3NA).
+ */
+package de.interactive_instruments;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.Test;
+
+import de.interactive_instruments.io.ContentTypeFilter;
+
+/**
+ * @author Jon Herrmann ( herrmann aT interactive-instruments doT de )
+ */
+public class ContentTypeFilterTest {
+
+    private static final String GML_DOCUMENT = "<?xml version=\"1.0\"?><a xmlns:gml=\"http://www.opengis.net/gml/3.2\"/>";
+    private static final String XML_DOCUMENT = "<?xml version=\"1.0\"?><a/>";
+
+    private static File createFile(final String suffix, final String content) throws IOException {
+        final File file = File.createTempFile("filter", suffix);
+        file.deleteOnExit();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    @Test
+    public void testXmlFilter() throws IOException {
+        final ContentTypeFilter filter = new ContentTypeFilter("application/xml");
+        assertTrue(filter.accept(createFile(".xml", XML_DOCUMENT)));
+        assertFalse(filter.accept(createFile(".xml", GML_DOCUMENT)));
+        assertFalse(filter.accept(createFile(".gml", XML_DOCUMENT)));
+        assertFalse(filter.accept(createFile(".gml", GML_DOCUMENT)));
+    }
+
+    @Test
+    public void testGmlFilter() throws IOException {
+        final ContentTypeFilter filter = new ContentTypeFilter("application/gml+xml");
+        assertTrue(filter.accept(createFile(".gml", GML_DOCUMENT)));
+        assertTrue(filter.accept(createFile(".gml", XML_DOCUMENT)));
+        assertTrue(filter.accept(createFile(".xml", GML_DOCUMENT)));
+        assertFalse(filter.accept(createFile(".xml", XML_DOCUMENT)));
+    }
+}
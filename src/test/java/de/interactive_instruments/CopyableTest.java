@@ -254,4 +254,51 @@ public class CopyableTest {
             assertEquals("prop2", it.next().getProperty());
         }
     }
+
+    @Test
+    public void testCopyLargeCollections() {
+        final List<CopyableObj> list = new ArrayList<>();
+        final Map<CopyableObj, CopyableObj> map = new LinkedHashMap<>();
+        for (int i = 0; i < CopyEngine.PARALLEL_THRESHOLD + 10; i++) {
+            final CopyableObj obj = new CopyableObj("prop" + i);
+            list.add(obj);
+            map.put(obj, obj);
+        }
+        final List<CopyableObj> copiedList = (List<CopyableObj>) Copyable.createCopy(list);
+        assertEquals(ArrayList.class, copiedList.getClass());
+        assertEquals(list.size(), copiedList.size());
+        for (int i = 0; i < list.size(); i++) {
+            assertNotSame(list.get(i), copiedList.get(i));
+            assertEquals(list.get(i).getProperty(), copiedList.get(i).getProperty());
+        }
+
+        final Map<CopyableObj, CopyableObj> copiedMap = Copyable.createCopy(map);
+        assertEquals(LinkedHashMap.class, copiedMap.getClass());
+        final Iterator<CopyableObj> it = map.keySet().iterator();
+        for (final Map.Entry<CopyableObj, CopyableObj> entry : copiedMap.entrySet()) {
+            final CopyableObj original = it.next();
+            assertNotSame(original, entry.getKey());
+            assertSame(entry.getKey(), entry.getValue());
+            assertEquals(original.getProperty(), entry.getKey().getProperty());
+        }
+
+        assertTrue(Copyable.createCopy(new ArrayList<CopyableObj>()).isEmpty());
+    }
+
+    @Test
+    public void testCopyBoundedCollections() {
+        final List<CopyableObj> items = Arrays.asList(new CopyableObj("a"), new CopyableObj("b"));
+        // the int constructors of these classes are bounds and not initial capacities
+        final Collection<CopyableObj> queue = Copyable.createCopy(
+                new java.util.concurrent.LinkedBlockingQueue<>(items));
+        assertEquals(java.util.concurrent.LinkedBlockingQueue.class, queue.getClass());
+        assertEquals(2, queue.size());
+        assertTrue(((java.util.concurrent.BlockingQueue<CopyableObj>) queue).remainingCapacity() > 0);
+        assertTrue(queue.add(new CopyableObj("c")));
+
+        final Collection<CopyableObj> deque = Copyable.createCopy(
+                new java.util.concurrent.LinkedBlockingDeque<>(items));
+        assertTrue(deque.add(new CopyableObj("c")));
+        assertEquals(3, deque.size());
+    }
 }
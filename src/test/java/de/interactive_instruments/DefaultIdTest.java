@@ -0,0 +1,62 @@
+/**
+ * Copyright 2017-2019 European Union, interactive instruments GmbH
+ * Licensed under the EUPL, Version 1.2 or - as soon they will be approved by
+ * the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ *
+ * This work was supported by the EU Interoperability Solutions for
+ * European Public Administrations Programme (http://ec.europa.eu/isa)
+ * through Action 1.17: A Reusable INSPIRE Reference Platform (ARE3NA).
+ */
+package de.interactive_instruments;
+
+import static org.junit.Assert.*;
+
+import java.util.UUID;
+
+import org.junit.Test;
+
+import de.interactive_instruments.model.std.Id;
+import de.interactive_instruments.model.std.IdFactory;
+
+/**
+ * @author Jon Herrmann ( herrmann aT interactive-instruments doT de )
+ */
+public class DefaultIdTest {
+
+    @Test
+    public void testUuidRepresentation() {
+        final UUID uuid = UUID.randomUUID();
+        final Id id = IdFactory.getDefault().createFromStrAndPreserve(uuid.toString());
+        assertEquals(uuid, id.toUuid());
+        assertSame(id.toUuid(), id.toUuid());
+        assertTrue(id.equals(uuid));
+
+        final Id upperCaseId = IdFactory.getDefault().createFromStrAsUuid(uuid.toString().toUpperCase());
+        assertEquals(uuid.toString(), upperCaseId.getId());
+
+        final Id hashId = IdFactory.getDefault().createFromStrAndPreserve("TEST-ID");
+        assertEquals(UUID.nameUUIDFromBytes("TEST-ID".getBytes()), hashId.toUuid());
+        assertEquals(hashId.toUuid().toString(), IdFactory.getDefault().createFromStrAsUuid("TEST-ID").getId());
+    }
+
+    @Test
+    public void testInterning() {
+        final IdFactory factory = IdFactory.getInterning();
+        final String str = UUID.randomUUID().toString();
+        final Id id = factory.createFromStrAndPreserve(str);
+        assertSame(id, factory.createFromStrAndPreserve(new String(str)));
+        assertSame(id, factory.createFromUuid(UUID.fromString(str)));
+        assertSame(id, factory.createFromStrAsUuid(str));
+        assertNotSame(id, IdFactory.getDefault().createFromStrAndPreserve(str));
+    }
+}
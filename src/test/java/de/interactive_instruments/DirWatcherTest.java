@@ -0,0 +1,152 @@
+/**
+ * Copyright 2017-2019 European Union, interactive instruments GmbH
+ * Licensed under the EUPL, Version 1.2 or - as soon they will be approved by
+ * the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ *
+ * This work was supported by the EU Interoperability Solutions for
+ * European Public Administrations Programme (http://ec.europa.eu/isa)
+ * through Action 1.17: A Reusable INSPIRE Reference Platform (ARE3NA).
+ */
+package de.interactive_instruments;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import de.interactive_instruments.io.DirWatcher;
+import de.interactive_instruments.io.FileChangeListener;
+
+/**
+ * @author Jon Herrmann ( herrmann aT interactive-instruments doT de )
+ */
+public class DirWatcherTest {
+
+    private static class QueueListener implements FileChangeListener {
+        private final String name;
+        private final BlockingQueue<Path> changed = new LinkedBlockingQueue<>();
+
+        private QueueListener(final String name) {
+            this.name = name;
+        }
+
+        @Override
+        public void filesChanged(final Map<Path, WatchEvent.Kind> eventMap, final Set<Path> dirs) {
+            changed.addAll(eventMap.keySet());
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    private static void delete(final Path dir) throws IOException {
+        try (final java.util.stream.Stream<Path> files = Files.list(dir)) {
+            for (final Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(dir);
+    }
+
+    @Test(timeout = 60000)
+    public void testIndependentWatchers() throws Exception {
+        final Path dir1 = Files.createTempDirectory("watch1");
+        final Path dir2 = Files.createTempDirectory("watch2");
+        final DirWatcher watcher1 = new DirWatcher("watcher1");
+        final DirWatcher watcher2 = new DirWatcher("watcher2");
+        try {
+            final QueueListener listener1 = new QueueListener("listener1");
+            final QueueListener listener2 = new QueueListener("listener2");
+            watcher1.registerListener(dir1, listener1);
+            watcher2.registerListener(dir2, listener2);
+
+            final Path file1 = Files.write(dir1.resolve("file1"), new byte[]{1});
+            final Path file2 = Files.write(dir2.resolve("file2"), new byte[]{2});
+            assertEquals(file1, listener1.changed.poll(20, TimeUnit.SECONDS));
+            assertEquals(file2, listener2.changed.poll(20, TimeUnit.SECONDS));
+            assertFalse(listener1.changed.contains(file2));
+            assertFalse(listener2.changed.contains(file1));
+
+            // releasing one watcher does not affect the other one
+            watcher1.release();
+            final Path file3 = Files.write(dir2.resolve("file3"), new byte[]{3});
+            Path changed;
+            do {
+                changed = listener2.changed.poll(20, TimeUnit.SECONDS);
+                assertNotNull(changed);
+            } while (!file3.equals(changed));
+        } finally {
+            watcher1.release();
+            watcher2.release();
+            delete(dir1);
+            delete(dir2);
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testRegisterFromCallback() throws Exception {
+        final Path dir = Files.createTempDirectory("watch");
+        final DirWatcher watcher = new DirWatcher("callbackWatcher");
+        try {
+            final QueueListener second = new QueueListener("second");
+            final CountDownLatch registered = new CountDownLatch(1);
+            final FileChangeListener first = new FileChangeListener() {
+                @Override
+                public void filesChanged(final Map<Path, WatchEvent.Kind> eventMap, final Set<Path> dirs) {
+                    if (registered.getCount() > 0) {
+                        try {
+                            // a change while the listeners are notified
+                            Files.write(dir.resolve("during"), new byte[]{0});
+                            Thread.sleep(500);
+                        } catch (final IOException | InterruptedException e) {
+                            throw new IllegalStateException(e);
+                        }
+                        watcher.registerListener(dir, second);
+                        watcher.unregisterListener(this);
+                        registered.countDown();
+                    }
+                }
+
+                @Override
+                public String toString() {
+                    return "first";
+                }
+            };
+            watcher.registerListener(dir, first);
+            Files.write(dir.resolve("file1"), new byte[]{1});
+            assertTrue(registered.await(20, TimeUnit.SECONDS));
+
+            final Path file2 = Files.write(dir.resolve("file2"), new byte[]{2});
+            Path changed;
+            do {
+                changed = second.changed.poll(20, TimeUnit.SECONDS);
+                assertNotNull(changed);
+            } while (!file2.equals(changed));
+        } finally {
+            watcher.release();
+            delete(dir);
+        }
+    }
+}
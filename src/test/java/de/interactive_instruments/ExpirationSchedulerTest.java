@@ -0,0 +1,93 @@
+/**
+ * Copyright 2017-2019 European Union, interactive instruments GmbH
+ * Licensed under the EUPL, Version 1.2 or - as soon they will be approved by
+ * the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ *
+ * This work was supported by the EU Interoperability Solutions for
+ * European Public Administrations Programme (http://ec.europa.eu/isa)
+ * through Action 1.17: A Reusable INSPIRE Reference Platform (ARE3NA).
+ */
+package de.interactive_instruments;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+import org.junit.Test;
+
+/**
+ * @author Jon Herrmann ( herrmann aT interactive-instruments doT de )
+ */
+public class ExpirationSchedulerTest {
+
+    private static void await(final String description, final BooleanSupplier condition) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("Timed out waiting until " + description);
+            }
+            Thread.sleep(5);
+        }
+    }
+
+    @Test(timeout = 20000)
+    public void testIsolatedHolders() throws InterruptedException {
+        final ExpirationScheduler scheduler = new ExpirationScheduler(2);
+        try {
+            final ExpirationScheduler.Registration failing = scheduler.register((maxLifeTime, unit) -> {
+                throw new IllegalStateException("Expected exception");
+            }, 1, TimeUnit.MINUTES, 5, TimeUnit.MILLISECONDS);
+
+            final AtomicLong invocations = new AtomicLong();
+            final ExpirationScheduler.Registration counting = scheduler.register(new ExpirationItemHolder() {
+                @Override
+                public void removeExpiredItems(final long maxLifeTime, final TimeUnit unit) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public long removeAndCountExpiredItems(final long maxLifeTime, final TimeUnit unit) {
+                    invocations.incrementAndGet();
+                    return 2;
+                }
+            }, 1, TimeUnit.MINUTES, 5, TimeUnit.MILLISECONDS);
+
+            await("the holder ran 3 times", () -> counting.getRuns() >= 3);
+            counting.release();
+            // the metrics are updated after the holder returned, an invocation may still be in progress
+            await("all invocations are counted", () -> counting.getRuns() == invocations.get());
+            final long runs = counting.getRuns();
+            assertEquals(2 * runs, counting.getExpiredItems());
+            assertEquals(0, counting.getFailures());
+            assertEquals(1, scheduler.getRegistrations().size());
+
+            await("the failing holder ran 2 times", () -> failing.getFailures() >= 2);
+            assertTrue(scheduler.unregister(failing.getHolder()));
+            assertFalse(scheduler.unregister(failing.getHolder()));
+            // a failure is counted before the run
+            await("all failures are counted as runs", () -> failing.getRuns() == failing.getFailures());
+            final long failures = failing.getFailures();
+
+            // neither holder is invoked again
+            Thread.sleep(50);
+            assertEquals(runs, counting.getRuns());
+            assertEquals(runs, invocations.get());
+            assertEquals(failures, failing.getFailures());
+            assertEquals(failures, failing.getRuns());
+        } finally {
+            scheduler.release();
+        }
+    }
+}
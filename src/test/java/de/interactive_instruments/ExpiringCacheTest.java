@@ -0,0 +1,146 @@
+/**
+ * Copyright 2017-2019 European Union, interactive instruments GmbH
+ * Licensed under the EUPL, Version 1.2 or - as soon they will be approved by
+ * the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ *
+ * This work was supported by the EU Interoperability Solutions for
+ * European Public Administrations Programme (http://ec.europa.eu/isa)
+ * through Action 1.17: A Reusable INSPIRE Reference Platform (ARE3NA).
+ */
+package de.interactive_instruments;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import de.interactive_instruments.collections.ExpiringCache;
+
+/**
+ * @author Jon Herrmann ( herrmann aT interactive-instruments doT de )
+ */
+public class ExpiringCacheTest {
+
+    @Test
+    public void testLruEviction() {
+        final List<String> evicted = new ArrayList<>();
+        final ExpiringCache<String, Integer> cache = ExpiringCache.<String, Integer> builder()
+                .maximumSize(2).evictionListener((k, v) -> evicted.add(k)).build();
+        cache.put("a", 1);
+        cache.put("b", 2);
+        assertEquals(Integer.valueOf(1), cache.getIfPresent("a"));
+        cache.put("c", 3);
+        assertEquals(2, cache.size());
+        assertNull(cache.getIfPresent("b"));
+        assertEquals(Integer.valueOf(1), cache.getIfPresent("a"));
+        assertEquals(Integer.valueOf(3), cache.getIfPresent("c"));
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(3, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals("[b]", evicted.toString());
+        assertEquals(Integer.valueOf(3), cache.invalidate("c"));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testExpiration() throws InterruptedException {
+        final ExpiringCache<String, Integer> cache = ExpiringCache.<String, Integer> builder()
+                .expireAfterWrite(1, TimeUnit.HOURS).build();
+        cache.put("a", 1);
+        cache.put("b", 2);
+        Thread.sleep(5);
+        cache.getIfPresent("a");
+        assertEquals(1, cache.removeAndCountExpiredItems(2, TimeUnit.MILLISECONDS));
+        assertEquals(Integer.valueOf(1), cache.getIfPresent("a"));
+        assertNull(cache.getIfPresent("b"));
+        assertEquals(0, cache.cleanUp());
+
+        final ExpiringCache<String, Integer> shortLived = ExpiringCache.<String, Integer> builder()
+                .expireAfterAccess(1, TimeUnit.MILLISECONDS).build();
+        shortLived.put("a", 1);
+        Thread.sleep(5);
+        assertNull(shortLived.getIfPresent("a"));
+        assertEquals(0, shortLived.size());
+    }
+
+    @Test(timeout = 10000)
+    public void testSingleFlightLoading() throws Exception {
+        final ExpiringCache<String, Integer> cache = ExpiringCache.<String, Integer> builder().maximumSize(10).build();
+        final AtomicInteger loaderCalls = new AtomicInteger();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                results.add(executor.submit(() -> cache.get("key", k -> {
+                    loaderCalls.incrementAndGet();
+                    started.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        throw new IllegalStateException(e);
+                    }
+                    return 42;
+                })));
+            }
+            started.await();
+            Thread.sleep(50);
+            release.countDown();
+            for (final Future<Integer> result : results) {
+                assertEquals(Integer.valueOf(42), result.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, loaderCalls.get());
+        assertEquals(1, cache.getLoadCount());
+        assertEquals(Integer.valueOf(42), cache.getIfPresent("key"));
+    }
+
+    @Test(timeout = 30000)
+    public void testSingleFlightLoadingOfCompletedLoads() throws Exception {
+        final int keys = 20000;
+        final ExpiringCache<Integer, Integer> cache = ExpiringCache.<Integer, Integer> builder().maximumSize(keys).build();
+        final AtomicInteger loaderCalls = new AtomicInteger();
+        final int threads = 8;
+        final CyclicBarrier barrier = new CyclicBarrier(threads);
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<?>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(() -> {
+                    barrier.await();
+                    for (int k = 0; k < keys; k++) {
+                        assertEquals(Integer.valueOf(k), cache.get(k, key -> {
+                            loaderCalls.incrementAndGet();
+                            return key;
+                        }));
+                    }
+                    return null;
+                }));
+            }
+            for (final Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(keys, loaderCalls.get());
+        assertEquals(keys, cache.getLoadCount());
+    }
+}
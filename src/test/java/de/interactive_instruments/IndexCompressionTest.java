@@ -19,8 +19,10 @@
  */
 package de.interactive_instruments;
 
-import static org.junit.Assert.assertEquals;
-import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Random;
 
 import org.junit.Test;
 
@@ -154,4 +156,81 @@ public class IndexCompressionTest {
         }
     }
 
+    @Test
+    public void testUncompressIntoArray() {
+        final int[] dest = new int[Long.SIZE];
+        assertEquals(8, IndexCompression.uncompress(488185314410522L, dest));
+        assertArrayEquals(new int[]{13, 128, 4, 1, 1, 1, 1, 3}, Arrays.copyOf(dest, 8));
+        assertEquals(1, IndexCompression.uncompress(4L, dest));
+        assertEquals(2, dest[0]);
+        assertEquals(0, IndexCompression.uncompress(0L, dest));
+    }
+
+    @Test
+    public void testPathCompression() {
+        final int[] boundaries = {0, 1, 127, 128, 16511, 16512, 2113663, 2113664, Integer.MAX_VALUE};
+        final byte[] compressed = IndexPathCompression.compress(boundaries);
+        assertEquals(1 + 1 + 1 + 2 + 2 + 3 + 3 + 5 + 5, compressed.length);
+        assertArrayEquals(boundaries, IndexPathCompression.uncompress(compressed));
+        // the encoding of each boundary is ordered
+        for (int i = 1; i < boundaries.length; i++) {
+            assertTrue(IndexPathCompression.compare(
+                    IndexPathCompression.compress(new int[]{boundaries[i - 1]}),
+                    IndexPathCompression.compress(new int[]{boundaries[i]})) < 0);
+        }
+        assertEquals(0, IndexPathCompression.uncompress(new byte[0]).length);
+        try {
+            IndexPathCompression.compress(new int[]{1, -1});
+            fail("Exception expected");
+        } catch (final IllegalArgumentException e) {
+            assertNotNull(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testPathOrder() {
+        final Random random = new Random(42);
+        final int count = 2000;
+        final int[][] paths = new int[count][];
+        final IndexPathCompression.PathArray array = new IndexPathCompression.PathArray(4, 4);
+        int total = 0;
+        for (int i = 0; i < count; i++) {
+            paths[i] = new int[random.nextInt(12)];
+            for (int j = 0; j < paths[i].length; j++) {
+                final int bits = random.nextInt(31);
+                paths[i][j] = bits < 8 ? random.nextInt(3) : random.nextInt(1 << bits);
+            }
+            assertEquals(i, array.add(paths[i]));
+            total += paths[i].length;
+        }
+        assertEquals(count, array.size());
+
+        final int[] buffer = new int[16];
+        for (int i = 0; i < count; i++) {
+            assertEquals(paths[i].length, array.length(i));
+            assertEquals(paths[i].length, array.get(i, buffer, 0));
+            assertArrayEquals(paths[i], Arrays.copyOf(buffer, paths[i].length));
+            final int j = random.nextInt(count);
+            assertEquals(Integer.signum(compare(paths[i], paths[j])), Integer.signum(array.compare(i, j)));
+            assertEquals(0, array.compare(i, IndexPathCompression.compress(paths[i])));
+        }
+
+        final int[] all = new int[total];
+        final int[] ends = new int[count];
+        assertEquals(total, array.getAll(all, ends));
+        assertArrayEquals(paths[count - 1], Arrays.copyOfRange(all, ends[count - 2], ends[count - 1]));
+
+        array.clear();
+        assertEquals(0, array.size());
+    }
+
+    private static int compare(final int[] a, final int[] b) {
+        for (int i = 0; i < Math.min(a.length, b.length); i++) {
+            if (a[i] != b[i]) {
+                return Integer.compare(a[i], b[i]);
+            }
+        }
+        return a.length - b.length;
+    }
+
 }
@@ -0,0 +1,173 @@
+/**
+ * Copyright 2017-2019 European Union, interactive instruments GmbH
+ * Licensed under the EUPL, Version 1.2 or - as soon they will be approved by
+ * the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ *
+ * This work was supported by the EU Interoperability Solutions for
+ * European Public Administrations Programme (http://ec.europa.eu/isa)
+ * through Action 1.17: A Reusable INSPIRE Reference Platform (ARE3NA).
+ */
+package de.interactive_instruments;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.ParameterizedType;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.annotation.XmlAttribute;
+import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.namespace.QName;
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.junit.Test;
+import org.w3c.dom.Element;
+
+import de.interactive_instruments.jaxb.JaxbUtils;
+import de.interactive_instruments.jaxb.LaxWrapper;
+import de.interactive_instruments.jaxb.LaxWrapperReader;
+import de.interactive_instruments.jaxb.LaxWrapperWriter;
+import de.interactive_instruments.xml.NamespaceBuilder;
+import de.interactive_instruments.xml.NamespaceHolder;
+
+/**
+ * @author Jon Herrmann ( herrmann aT interactive-instruments doT de )
+ */
+public class JaxbUtilsTest {
+
+    @XmlRootElement(namespace = "http://example.com/test")
+    public static class TestElement {
+        @XmlAttribute
+        String name;
+    }
+
+    public static class SubElement extends TestElement {}
+
+    static class GenericHolder<K, V> {
+        Map<String, List<Integer>> concrete;
+        Map<K, List<V>> generic;
+    }
+
+    @Test
+    public void testRootElementName() {
+        assertEquals(new QName("http://example.com/test", "testElement"),
+                JaxbUtils.getRootElementName(TestElement.class));
+        assertNull(JaxbUtils.getRootElementName(SubElement.class));
+    }
+
+    @Test
+    public void testAnalyzeNamespaces() {
+        final NamespaceBuilder nsB = NamespaceBuilder.newInstance();
+        assertEquals("", JaxbUtils.analyzeNamespacesFromAnnotations(TestElement.class, nsB));
+        // analyzed twice, but only added once
+        JaxbUtils.analyzeNamespacesFromAnnotations(TestElement.class, nsB);
+        final NamespaceHolder namespaces = nsB.build();
+        assertEquals(true, namespaces.hasPrefixForNamespace("http://example.com/test"));
+        assertEquals(1, namespaces.getNamespacesAsMap().size());
+    }
+
+    @Test
+    public void testContextAndMarshalling() throws Exception {
+        final JAXBContext context = JaxbUtils.getContext(TestElement.class);
+        assertSame(context, JaxbUtils.getContext(TestElement.class));
+        assertSame(JaxbUtils.getContext(TestElement.class, SubElement.class),
+                JaxbUtils.getContext(TestElement.class, SubElement.class));
+        assertSame(JaxbUtils.getMarshaller(context), JaxbUtils.getMarshaller(context));
+        assertSame(JaxbUtils.getUnmarshaller(context), JaxbUtils.getUnmarshaller(context));
+        // context of classes loaded by the same class loader
+        assertSame(JaxbUtils.getContext(SubElement.class, TestElement.class, String.class),
+                JaxbUtils.getContext(SubElement.class, TestElement.class, String.class));
+
+        final TestElement element = new TestElement();
+        element.name = "test";
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JaxbUtils.marshal(element, out);
+        final TestElement unmarshalled = JaxbUtils.unmarshal(TestElement.class,
+                new ByteArrayInputStream(out.toByteArray()));
+        assertEquals("test", unmarshalled.name);
+    }
+
+    @Test
+    public void testLaxWrapperStreaming() throws Exception {
+        final Element unknown = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument()
+                .createElementNS("http://example.com/other", "o:Other");
+        unknown.setAttribute("id", "1");
+        unknown.appendChild(unknown.getOwnerDocument().createTextNode("text"));
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (final LaxWrapperWriter<Object> writer = LaxWrapperWriter.open(out, null)) {
+            for (int i = 0; i < 100; i++) {
+                final TestElement element = new TestElement();
+                element.name = "item" + i;
+                writer.write(element);
+            }
+            writer.write(unknown);
+        }
+
+        try (final LaxWrapperReader<Object> reader = LaxWrapperReader.open(
+                new ByteArrayInputStream(out.toByteArray()), TestElement.class)) {
+            final List<Object> items = reader.stream().collect(Collectors.toList());
+            assertEquals(101, items.size());
+            assertEquals("item99", ((TestElement) items.get(99)).name);
+            final Element element = (Element) items.get(100);
+            assertEquals("http://example.com/other", element.getNamespaceURI());
+            assertEquals("Other", element.getLocalName());
+            assertEquals("1", element.getAttribute("id"));
+            assertEquals("text", element.getTextContent());
+        }
+
+        // compatible with the LaxWrapper
+        final LaxWrapper<?> wrapper = JaxbUtils.unmarshal(LaxWrapper.class, new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(101, wrapper.getItems().size());
+    }
+
+    @Test
+    public void testResolveGenericTypes() throws NoSuchFieldException {
+        final Field concrete = GenericHolder.class.getDeclaredField("concrete");
+        final Field generic = GenericHolder.class.getDeclaredField("generic");
+        final Map<String, FieldType> first = JaxbUtils.resolveGenericTypes(concrete.getGenericType(),
+                generic.getGenericType());
+        final Map<String, FieldType> second = JaxbUtils.resolveGenericTypes(concrete.getGenericType(),
+                generic.getGenericType());
+        assertEquals(2, first.size());
+        assertSame(FieldType.of(String.class), first.get("K"));
+        assertSame(FieldType.of(Integer.class), first.get("V"));
+        // cached results are copied
+        assertNotSame(first, second);
+        first.clear();
+        assertEquals(2, second.size());
+        assertEquals(2, JaxbUtils.resolveGenericTypes(concrete.getGenericType(), generic.getGenericType()).size());
+
+        // resolved with the type variables of the class
+        final Map<String, FieldType> variables = JaxbUtils.resolveGenericTypes(
+                ((ParameterizedType) concrete.getGenericType()).getActualTypeArguments()[1],
+                List.class.getTypeParameters());
+        assertEquals(1, variables.size());
+        assertSame(FieldType.of(Integer.class), variables.get("E"));
+
+        final FieldType fieldType = FieldType.of(concrete);
+        assertSame(fieldType, FieldType.of(concrete.getGenericType()));
+        assertSame(fieldType.getArgumentsAsFieldTypes(), fieldType.getArgumentsAsFieldTypes());
+        assertEquals(Arrays.asList(String.class, List.class), fieldType.getArguments());
+        assertSame(FieldType.of(String.class), fieldType.getFirstArgument());
+    }
+}
@@ -0,0 +1,109 @@
+/**
+ * Copyright 2017-2019 European Union, interactive instruments GmbH
+ * Licensed under the EUPL, Version 1.2 or - as soon they will be approved by
+ * the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ *
+ * This work was supported by the EU Interoperability Solutions for
+ * European Public Administrations Programme (http://ec.europa.eu/isa)
+ * through Action 1.17: A Reusable INSPIRE Reference Platform (ARE3NA).
+ */
+package de.interactive_instruments;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+
+import de.interactive_instruments.container.LazyLoadContainer;
+import de.interactive_instruments.container.StringDataContainer;
+import de.interactive_instruments.container.UrlReferenceContainer;
+
+/**
+ * @author Jon Herrmann ( herrmann aT interactive-instruments doT de )
+ */
+public class LazyLoadContainerTest {
+
+    private static final String CONTENT = "<r>Gr\u00fc\u00dfe</r>";
+
+    private static byte[] transfer(final LazyLoadContainer container) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (final WritableByteChannel channel = Channels.newChannel(out)) {
+            assertEquals(CONTENT.getBytes(StandardCharsets.UTF_8).length, container.transferTo(channel));
+        }
+        return out.toByteArray();
+    }
+
+    @Test
+    public void testStringDataContainerChannel() throws IOException {
+        final StringDataContainer container = new StringDataContainer("string", CONTENT);
+        assertArrayEquals(CONTENT.getBytes(StandardCharsets.UTF_8), transfer(container));
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        container.forceLoadAsStream(out);
+        assertArrayEquals(CONTENT.getBytes(StandardCharsets.UTF_8), out.toByteArray());
+    }
+
+    @Test
+    public void testUrlReferenceContainerChannel() throws IOException {
+        final Path file = Files.createTempFile("container", ".xml");
+        try {
+            Files.write(file, CONTENT.getBytes(StandardCharsets.UTF_8));
+            final UrlReferenceContainer container = new UrlReferenceContainer("file", file.toUri().toURL(),
+                    "text/xml", false);
+            assertArrayEquals(CONTENT.getBytes(StandardCharsets.UTF_8), transfer(container));
+            assertEquals(CONTENT, container.forceLoad());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testAsyncLoad() throws Exception {
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        final Path file = Files.createTempFile("container", ".xml");
+        try {
+            Files.write(file, CONTENT.getBytes(StandardCharsets.UTF_8));
+            final UrlReferenceContainer container = new UrlReferenceContainer("file", file.toUri().toURL(),
+                    "text/xml", false);
+            assertEquals(CONTENT, container.forceLoadAsync(executor).get());
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            assertEquals(Long.valueOf(CONTENT.getBytes(StandardCharsets.UTF_8).length),
+                    container.transferToAsync(Channels.newChannel(out), executor).get());
+            assertArrayEquals(CONTENT.getBytes(StandardCharsets.UTF_8), out.toByteArray());
+
+            // the IOException of a missing file completes the future exceptionally
+            Files.delete(file);
+            final CompletableFuture<String> failed = container.forceLoadAsync(executor);
+            try {
+                failed.get();
+                fail("Exception expected");
+            } catch (final ExecutionException e) {
+                assertTrue(failed.isCompletedExceptionally());
+                assertTrue(e.getCause() instanceof IOException);
+            }
+        } finally {
+            executor.shutdownNow();
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+/**
+ * Copyright 2017-2019 European Union, interactive instruments GmbH
+ * Licensed under the EUPL, Version 1.2 or - as soon they will be approved by
+ * the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ *
+ * This work was supported by the EU Interoperability Solutions for
+ * European Public Administrations Programme (http://ec.europa.eu/isa)
+ * through Action 1.17: A Reusable INSPIRE Reference Platform (ARE3NA).
+ */
+package de.interactive_instruments;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import org.junit.Test;
+
+import de.interactive_instruments.collections.LongHashSet;
+import de.interactive_instruments.collections.LongObjectHashMap;
+import de.interactive_instruments.collections.SortedLongObjectMap;
+
+/**
+ * @author Jon Herrmann ( herrmann aT interactive-instruments doT de )
+ */
+public class LongObjectHashMapTest {
+
+    private static long randomKey(final Random random) {
+        // few distinct keys to force collisions, replacements and removals
+        switch (random.nextInt(3)) {
+        case 0:
+            return random.nextInt(64);
+        case 1:
+            return IndexCompression.compress(new int[]{1 + random.nextInt(20), 1 + random.nextInt(20)});
+        default:
+            return random.nextLong() | Long.MIN_VALUE;
+        }
+    }
+
+    @Test
+    public void testHashMap() {
+        final Random random = new Random(7);
+        final LongObjectHashMap<String> map = new LongObjectHashMap<>(2);
+        final Map<Long, String> expected = new HashMap<>();
+        for (int i = 0; i < 50000; i++) {
+            final long key = randomKey(random);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                final String value = random.nextInt(10) == 0 ? null : Integer.toString(i);
+                assertEquals(expected.put(key, value), map.put(key, value));
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        for (final Map.Entry<Long, String> e : expected.entrySet()) {
+            assertTrue(map.containsKey(e.getKey()));
+            assertEquals(e.getValue(), map.get(e.getKey()));
+        }
+        final Map<Long, String> iterated = new HashMap<>();
+        map.forEach((key, value) -> assertFalse(iterated.containsKey(key) || iterated.put(key, value) != null));
+        assertEquals(expected, iterated);
+        assertEquals(expected.size(), map.keys().length);
+        assertEquals("x", map.getOrDefault(Long.MAX_VALUE, "x"));
+
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertFalse(map.containsKey(0));
+        assertNull(map.get(expected.keySet().iterator().next()));
+    }
+
+    @Test
+    public void testHashSet() {
+        final Random random = new Random(11);
+        final LongHashSet set = new LongHashSet();
+        final Set<Long> expected = new HashSet<>();
+        for (int i = 0; i < 50000; i++) {
+            final long key = randomKey(random);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), set.remove(key));
+            } else {
+                assertEquals(expected.add(key), set.add(key));
+            }
+            assertEquals(expected.size(), set.size());
+        }
+        for (final long key : expected) {
+            assertTrue(set.contains(key));
+        }
+        final Set<Long> iterated = new HashSet<>();
+        set.forEach(key -> assertTrue(iterated.add(key)));
+        assertEquals(expected, iterated);
+        assertEquals(expected.size(), set.toArray().length);
+        set.clear();
+        assertTrue(set.isEmpty());
+    }
+
+    @Test
+    public void testSortedMap() {
+        final Random random = new Random(13);
+        final SortedLongObjectMap<Integer> map = new SortedLongObjectMap<>(0);
+        final TreeMap<Long, Integer> expected = new TreeMap<>();
+        for (int i = 0; i < 20000; i++) {
+            final int op = random.nextInt(10);
+            // ascending keys are appended
+            final long key = op < 3 ? (expected.isEmpty() ? 0 : expected.lastKey() + 1) : randomKey(random);
+            if (op == 9) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                assertEquals(expected.put(key, i), map.put(key, i));
+            }
+            assertEquals(expected.size(), map.size());
+            assertEquals(expected.get(key), map.get(key));
+            if (random.nextInt(100) == 0) {
+                final long from = randomKey(random);
+                final long to = randomKey(random);
+                final List<Long> scanned = new ArrayList<>();
+                map.forEachInRange(from, to, (k, v) -> {
+                    assertEquals(expected.get(k), v);
+                    scanned.add(k);
+                });
+                final List<Long> expectedKeys = from < to ? new ArrayList<>(expected.subMap(from, to).keySet())
+                        : Collections.emptyList();
+                assertEquals(expectedKeys, scanned);
+            }
+        }
+        final List<Long> keys = new ArrayList<>();
+        map.forEach((k, v) -> keys.add(k));
+        assertEquals(new ArrayList<>(expected.keySet()), keys);
+        assertEquals(expected.firstKey().longValue(), map.firstKey());
+        assertEquals(expected.lastKey().longValue(), map.lastKey());
+
+        final long probe = expected.firstKey() + 1;
+        final int ceiling = map.ceilingIndex(probe);
+        assertEquals(expected.ceilingKey(probe).longValue(), map.keyAt(ceiling));
+        assertEquals(expected.get(map.keyAt(ceiling)), map.valueAt(ceiling));
+        final int floor = map.floorIndex(probe);
+        assertEquals(expected.floorKey(probe).longValue(), map.keyAt(floor));
+        assertEquals(-1, map.floorIndex(expected.firstKey() - 1));
+        assertEquals(map.size(), map.ceilingIndex(expected.lastKey() + 1));
+
+        map.clear();
+        assertTrue(map.isEmpty());
+        try {
+            map.firstKey();
+            fail("Exception expected");
+        } catch (final NoSuchElementException e) {
+            assertNull(map.get(probe));
+        }
+    }
+}
@@ -0,0 +1,222 @@
+/**
+ * Copyright 2017-2019 European Union, interactive instruments GmbH
+ * Licensed under the EUPL, Version 1.2 or - as soon they will be approved by
+ * the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ *
+ * This work was supported by the EU Interoperability Solutions for
+ * European Public Administrations Programme (http://ec.europa.eu/isa)
+ * through Action 1.17: A Reusable INSPIRE Reference Platform (ARE3NA).
+ */
+package de.interactive_instruments;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import de.interactive_instruments.exceptions.ExcUtils;
+import de.interactive_instruments.model.std.Id;
+import de.interactive_instruments.model.std.IdFactory;
+import de.interactive_instruments.model.std.ManagedItemRegistry;
+import de.interactive_instruments.model.std.RetrievableItem;
+
+/**
+ * @author Jon Herrmann ( herrmann aT interactive-instruments doT de )
+ */
+public class ManagedItemRegistryTest {
+
+    private static class Item implements RetrievableItem, Releasable {
+        private final Id id = IdFactory.getDefault().createRandomUuid();
+        private final AtomicInteger releases = new AtomicInteger();
+        private volatile String releasingThread;
+
+        @Override
+        public Id getId() {
+            return id;
+        }
+
+        @Override
+        public String getLabel() {
+            return id.toString();
+        }
+
+        @Override
+        public void release() {
+            releasingThread = Thread.currentThread().getName();
+            releases.incrementAndGet();
+        }
+    }
+
+    private static class Registry extends ManagedItemRegistry<Item> {
+        Registry() {}
+
+        Registry(final int maxItems, final long maxIdleTime, final TimeUnit unit) {
+            super(maxItems, maxIdleTime, unit);
+        }
+    }
+
+    @Test(timeout = 20000)
+    public void testConcurrentAccess() throws InterruptedException {
+        final Registry registry = new Registry();
+        final int threads = 8;
+        final int itemsPerThread = 1000;
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicInteger errors = new AtomicInteger();
+        final List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            final Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < itemsPerThread; i++) {
+                        final Item item = new Item();
+                        registry.register(item);
+                        if (registry.getById(item.getId()) != item) {
+                            errors.incrementAndGet();
+                        }
+                        if (i % 2 == 0) {
+                            registry.unregister(item);
+                            if (registry.getById(item.getId()) != null) {
+                                errors.incrementAndGet();
+                            }
+                        }
+                    }
+                } catch (final InterruptedException e) {
+                    errors.incrementAndGet();
+                }
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        start.countDown();
+        for (final Thread worker : workers) {
+            worker.join();
+        }
+        assertEquals(0, errors.get());
+        assertEquals(threads * itemsPerThread / 2, registry.size());
+
+        final List<Item> items = new ArrayList<>(registry.getItems());
+        registry.release();
+        assertEquals(0, registry.size());
+        for (final Item item : items) {
+            // released once on the calling thread
+            assertEquals(1, item.releases.get());
+            assertEquals(Thread.currentThread().getName(), item.releasingThread);
+        }
+        try {
+            registry.register(new Item());
+            fail("Exception expected");
+        } catch (final IllegalStateException e) {
+            ExcUtils.suppress(e);
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testIdleEviction() throws InterruptedException {
+        final Registry registry = new Registry(0, 100, TimeUnit.MILLISECONDS);
+        try {
+            final Item idle = new Item();
+            final Item used = new Item();
+            registry.register(idle);
+            registry.register(used);
+            // a lookup of the idle item would reset its idle time
+            while (idle.releases.get() == 0) {
+                assertSame(used, registry.getById(used.getId()));
+                Thread.sleep(10);
+            }
+            assertSame(used, registry.getById(used.getId()));
+            assertNull(registry.getById(idle.getId()));
+            assertEquals(1, idle.releases.get());
+            assertEquals(0, used.releases.get());
+            // released by the scheduler
+            assertTrue(idle.releasingThread.startsWith("ExpirationScheduler-"));
+        } finally {
+            registry.release();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testSizeEviction() throws InterruptedException {
+        final Registry registry = new Registry(2, 0, TimeUnit.MILLISECONDS);
+        final Item first = new Item();
+        final Item second = new Item();
+        final Item third = new Item();
+        try {
+            registry.register(first);
+            Thread.sleep(2);
+            registry.register(second);
+            Thread.sleep(2);
+            registry.register(third);
+            Thread.sleep(2);
+            // first becomes the most recently looked up item
+            registry.getById(first.getId());
+            while (registry.size() > 2) {
+                Thread.sleep(10);
+            }
+            assertSame(first, registry.getById(first.getId()));
+            assertNull(registry.getById(second.getId()));
+            assertEquals(1, second.releases.get());
+            assertSame(third, registry.getById(third.getId()));
+        } finally {
+            registry.release();
+        }
+        assertEquals(1, first.releases.get());
+        assertEquals(1, second.releases.get());
+        assertEquals(1, third.releases.get());
+    }
+
+    @Test(timeout = 30000)
+    public void testSizeEvictionWhileLookingUp() throws InterruptedException {
+        final Registry registry = new Registry(100, 0, TimeUnit.MILLISECONDS);
+        final List<Item> items = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            final Item item = new Item();
+            items.add(item);
+            registry.register(item);
+        }
+        final AtomicBoolean stop = new AtomicBoolean();
+        final List<Thread> readers = new ArrayList<>();
+        try {
+            // the access times change while the eviction sorts the items
+            for (int t = 0; t < 4; t++) {
+                final int offset = t;
+                final Thread reader = new Thread(() -> {
+                    for (int i = offset; !stop.get(); i += 7) {
+                        registry.getById(items.get(i % items.size()).getId());
+                    }
+                });
+                reader.start();
+                readers.add(reader);
+            }
+            final long deadline = System.currentTimeMillis() + 20000;
+            while (registry.size() > 100 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(100, registry.size());
+        } finally {
+            stop.set(true);
+            for (final Thread reader : readers) {
+                reader.join();
+            }
+            registry.release();
+        }
+        for (final Item item : items) {
+            assertEquals(1, item.releases.get());
+        }
+    }
+}
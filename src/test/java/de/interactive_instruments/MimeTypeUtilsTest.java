@@ -19,10 +19,13 @@
  */
 package de.interactive_instruments;
 
-import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.*;
 
+import java.io.File;
 import java.io.IOException;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 
 import org.junit.Test;
 
@@ -48,4 +51,28 @@ public class MimeTypeUtilsTest {
 
         assertEquals("application/xml", MimeTypeUtils.detectMimeType(xmlFile));
     }
+
+    @Test
+    public void testDetectionCache() throws IOException, MimeTypeUtilsException {
+        final File file = File.createTempFile("mime", ".dat");
+        try {
+            Files.write(file.toPath(), "<?xml version=\"1.0\"?><root/>".getBytes(StandardCharsets.UTF_8));
+            assertEquals("application/xml", MimeTypeUtils.detectMimeType(file));
+            Files.write(file.toPath(), "%PDF-1.4 modified".getBytes(StandardCharsets.UTF_8));
+            file.setLastModified(file.lastModified() + 2000);
+            assertEquals("application/pdf", MimeTypeUtils.detectMimeType(file));
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testDetectLongString() throws MimeTypeUtilsException {
+        final StringBuilder sb = new StringBuilder("<?xml version=\"1.0\"?><root>");
+        for (int i = 0; i < MimeTypeUtils.SNIFF_WINDOW; i++) {
+            sb.append("<e>\u00e4</e>");
+        }
+        sb.append("</root>");
+        assertEquals("application/xml", MimeTypeUtils.detectMimeType(sb.toString()));
+    }
 }
@@ -22,9 +22,11 @@ package de.interactive_instruments;
 import static junit.framework.TestCase.assertEquals;
 import static junit.framework.TestCase.assertNotNull;
 import static junit.framework.TestCase.assertNull;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.Map;
 
 import javax.xml.namespace.QName;
@@ -257,4 +259,37 @@ public class NamespaceBuilderTest {
         assertTrue(exceptionThrown);
     }
 
+
+    @Test
+    public void testBuiltHolderLookups() {
+        final NamespaceBuilder builder = NamespaceBuilder.newInstance();
+        builder.setDefaultNamespaceUri("http://default");
+        for (int i = 0; i < 100; i++) {
+            builder.addNamespaceUriAndPrefix("http://namespace" + i, "ns" + i);
+        }
+        builder.addNamespaceUriAndPrefix("http://namespace5", "five");
+        final NamespaceHolder holder = builder.build();
+
+        assertEquals("http://default", holder.getDefaultNamespaceUri());
+        assertEquals(101, holder.prefixesSize());
+        for (int i = 0; i < 100; i++) {
+            assertEquals("ns" + i, holder.getPrefix(new String("http://namespace" + i)));
+            assertEquals("http://namespace" + i, holder.getNamespaceURI(new String("ns" + i)));
+            assertTrue(holder.hasPrefixForNamespace("http://namespace" + i));
+        }
+        assertEquals("http://namespace5", holder.getNamespaceURI("five"));
+        final Iterator<String> prefixes = holder.getPrefixes("http://namespace5");
+        assertEquals("ns5", prefixes.next());
+        assertEquals("five", prefixes.next());
+        assertFalse(prefixes.hasNext());
+        assertNull(holder.getPrefix("http://unknown"));
+        assertNull(holder.getPrefix((String) null));
+        assertNull(holder.getNamespaceURI("unknown"));
+        assertNull(holder.getPrefixes("http://unknown"));
+
+        final Iterator<Map.Entry<String, String>> entries = holder.iterator();
+        assertEquals("http://namespace0", entries.next().getKey());
+        assertEquals("ns1", entries.next().getValue());
+        assertEquals(100, holder.getNamespacesAsMap().size());
+    }
 }
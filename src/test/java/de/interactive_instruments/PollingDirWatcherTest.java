@@ -0,0 +1,104 @@
+/**
+ * Copyright 2017-2019 European Union, interactive instruments GmbH
+ * Licensed under the EUPL, Version 1.2 or - as soon they will be approved by
+ * the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ *
+ * This work was supported by the EU Interoperability Solutions for
+ * European Public Administrations Programme (http://ec.europa.eu/isa)
+ * through Action 1.17: A Reusable INSPIRE Reference Platform (ARE3NA).
+ */
+package de.interactive_instruments;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+import static org.junit.Assert.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import de.interactive_instruments.io.FileChangeListener;
+import de.interactive_instruments.io.PollingDirWatcher;
+
+/**
+ * @author Jon Herrmann ( herrmann aT interactive-instruments doT de )
+ */
+public class PollingDirWatcherTest {
+
+    private static class EventListener implements FileChangeListener {
+        private final BlockingQueue<Map<Path, WatchEvent.Kind>> events = new LinkedBlockingQueue<>();
+
+        @Override
+        public void filesChanged(final Map<Path, WatchEvent.Kind> eventMap, final Set<Path> dirs) {
+            events.add(new HashMap<>(eventMap));
+        }
+
+        /**
+         * Waits for an event of a path. A file may be reported as created and then as modified, if it is scanned while it
+         * is written.
+         */
+        private WatchEvent.Kind await(final Path path) throws InterruptedException {
+            while (true) {
+                final Map<Path, WatchEvent.Kind> next = events.poll(10, TimeUnit.SECONDS);
+                assertNotNull(next);
+                if (next.containsKey(path)) {
+                    return next.get(path);
+                }
+            }
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testCreateModifyDelete() throws Exception {
+        final Path dir = Files.createTempDirectory("poll");
+        final PollingDirWatcher watcher = new PollingDirWatcher(20, TimeUnit.MILLISECONDS);
+        try {
+            final Path existing = Files.write(dir.resolve("existing"), new byte[]{1});
+            final EventListener listener = new EventListener();
+            watcher.register(dir, listener);
+
+            // files that exist at registration time are not reported
+            final Path file = Files.write(dir.resolve("file"), new byte[]{1});
+            assertEquals(ENTRY_CREATE, listener.await(file));
+
+            Files.write(existing, new byte[]{1, 2});
+            assertEquals(ENTRY_MODIFY, listener.await(existing));
+
+            final Path subDir = Files.createDirectory(dir.resolve("sub"));
+            final Path subFile = Files.write(subDir.resolve("subFile"), new byte[]{1});
+            assertEquals(ENTRY_CREATE, listener.await(subFile));
+
+            Files.delete(subFile);
+            assertEquals(ENTRY_DELETE, listener.await(subFile));
+            Files.delete(file);
+            assertEquals(ENTRY_DELETE, listener.await(file));
+
+            // no further events without changes
+            Thread.sleep(100);
+            assertTrue(listener.events.isEmpty());
+        } finally {
+            watcher.release();
+            try (final java.util.stream.Stream<Path> files = Files.walk(dir)) {
+                files.sorted((a, b) -> b.compareTo(a)).forEach(p -> p.toFile().delete());
+            }
+        }
+        assertFalse(Files.exists(dir));
+    }
+}
@@ -0,0 +1,74 @@
+/**
+ * Copyright 2017-2019 European Union, interactive instruments GmbH
+ * Licensed under the EUPL, Version 1.2 or - as soon they will be approved by
+ * the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ *
+ * This work was supported by the EU Interoperability Solutions for
+ * European Public Administrations Programme (http://ec.europa.eu/isa)
+ * through Action 1.17: A Reusable INSPIRE Reference Platform (ARE3NA).
+ */
+package de.interactive_instruments;
+
+import static org.junit.Assert.*;
+
+import java.lang.reflect.Field;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * @author Jon Herrmann ( herrmann aT interactive-instruments doT de )
+ */
+public class ReflectionUtilsTest {
+
+    private static class Base {
+        private String baseField;
+        private int number;
+    }
+
+    private static class Derived extends Base {
+        private final String finalField = "initial";
+    }
+
+    @Test
+    public void testGetFieldsAndSuperFields() {
+        final List<Field> fields = ReflectionUtils.getFieldsAndSuperFields(Derived.class);
+        assertEquals("finalField", fields.get(0).getName());
+        assertTrue(fields.stream().anyMatch(f -> f.getName().equals("baseField")));
+        // the returned list is a copy
+        fields.clear();
+        assertFalse(ReflectionUtils.getFieldsAndSuperFields(Derived.class).isEmpty());
+    }
+
+    @Test
+    public void testSetObjectField() throws Exception {
+        final Derived derived = new Derived();
+        assertTrue(ReflectionUtils.setObjectField(derived, "baseField", "value"));
+        assertEquals("value", ((Base) derived).baseField);
+        assertTrue(ReflectionUtils.setObjectField(derived, "number", 42));
+        assertEquals(42, ((Base) derived).number);
+        assertFalse(ReflectionUtils.setObjectField(derived, "unknown", "value"));
+        try {
+            ReflectionUtils.setObjectField(derived, "number", "no number");
+            fail("Exception expected");
+        } catch (final IllegalStateException e) {
+            assertNotNull(e.getCause());
+        }
+    }
+
+    @Test
+    public void testIsHashable() {
+        assertTrue(ReflectionUtils.isHashable(Base.class));
+        assertFalse(ReflectionUtils.isHashable(String.class));
+    }
+}
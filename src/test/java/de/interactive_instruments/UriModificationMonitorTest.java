@@ -0,0 +1,195 @@
+/**
+ * Copyright 2017-2019 European Union, interactive instruments GmbH
+ * Licensed under the EUPL, Version 1.2 or - as soon they will be approved by
+ * the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ *
+ * This work was supported by the EU Interoperability Solutions for
+ * European Public Administrations Programme (http://ec.europa.eu/isa)
+ * through Action 1.17: A Reusable INSPIRE Reference Platform (ARE3NA).
+ */
+package de.interactive_instruments;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.Test;
+
+/**
+ * @author Jon Herrmann ( herrmann aT interactive-instruments doT de )
+ */
+public class UriModificationMonitorTest {
+
+    private static void respond(final HttpExchange exchange, final int code, final byte[] body) throws IOException {
+        exchange.sendResponseHeaders(code, code == 304 ? -1 : body.length);
+        try (final OutputStream out = exchange.getResponseBody()) {
+            if (code != 304) {
+                out.write(body);
+            }
+        }
+    }
+
+    /**
+     * Waits until a counter reaches a value, fails after ten seconds
+     */
+    private static void await(final LongSupplier counter, final long value) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + 10000;
+        while (counter.getAsLong() < value) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("Counter is " + counter.getAsLong() + ", expected " + value);
+            }
+            Thread.sleep(5);
+        }
+    }
+
+    /**
+     * Waits for the next event of a URI and skips the events of other URIs
+     */
+    private static UriModificationMonitor.Event next(final BlockingQueue<UriModificationMonitor.Event> events,
+            final URI uri) throws InterruptedException {
+        while (true) {
+            final UriModificationMonitor.Event event = events.poll(10, TimeUnit.SECONDS);
+            assertNotNull(event);
+            if (event.getUri().equals(uri)) {
+                return event;
+            }
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testModifications() throws Exception {
+        final AtomicInteger version = new AtomicInteger();
+        final AtomicInteger notModified = new AtomicInteger();
+        final HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/etag", exchange -> {
+            final String eTag = "\"v" + version.get() + "\"";
+            exchange.getResponseHeaders().set("ETag", eTag);
+            if (eTag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                notModified.incrementAndGet();
+                respond(exchange, 304, null);
+            } else {
+                respond(exchange, 200, eTag.getBytes(StandardCharsets.UTF_8));
+            }
+        });
+        // no validators, same length
+        server.createContext("/plain", exchange -> respond(exchange, 200,
+                ("content " + version.get()).getBytes(StandardCharsets.UTF_8)));
+        server.start();
+        final UriModificationMonitor monitor = new UriModificationMonitor(2, 0, TimeUnit.MILLISECONDS, 0.1);
+        try {
+            final BlockingQueue<UriModificationMonitor.Event> events = new LinkedBlockingQueue<>();
+            monitor.addListener(events::add);
+            final String base = "http://127.0.0.1:" + server.getAddress().getPort();
+            final UriModificationMonitor.Registration eTagRegistration = monitor.register(
+                    new URI(base + "/etag"), null, 10, TimeUnit.MILLISECONDS);
+            final UriModificationMonitor.Registration plainRegistration = monitor.register(
+                    new URI(base + "/plain"), null, 10, TimeUnit.MILLISECONDS);
+            assertEquals(2, monitor.size());
+
+            await(eTagRegistration::getChecks, 3);
+            await(plainRegistration::getChecks, 3);
+            assertTrue(events.isEmpty());
+            assertTrue(notModified.get() > 0);
+
+            version.incrementAndGet();
+            final UriModificationMonitor.Event first = events.poll(10, TimeUnit.SECONDS);
+            final UriModificationMonitor.Event second = events.poll(10, TimeUnit.SECONDS);
+            assertNotNull(first);
+            assertNotNull(second);
+            assertEquals(UriModificationMonitor.EventKind.MODIFIED, first.getKind());
+            assertEquals(UriModificationMonitor.EventKind.MODIFIED, second.getKind());
+            assertNotEquals(first.getUri(), second.getUri());
+            assertEquals(1, eTagRegistration.getModifications());
+            assertEquals(1, plainRegistration.getModifications());
+
+            // a changed length is reported once, without reading the body
+            version.set(10);
+            assertNotNull(events.poll(10, TimeUnit.SECONDS));
+            assertNotNull(events.poll(10, TimeUnit.SECONDS));
+            final long checks = plainRegistration.getChecks();
+            await(plainRegistration::getChecks, checks + 3);
+            assertTrue(events.isEmpty());
+            assertEquals(2, plainRegistration.getModifications());
+
+            // every further length change is reported
+            version.set(100);
+            assertEquals(UriModificationMonitor.EventKind.MODIFIED, next(events, plainRegistration.getUri()).getKind());
+            version.set(1000);
+            assertEquals(UriModificationMonitor.EventKind.MODIFIED, next(events, plainRegistration.getUri()).getKind());
+            assertEquals(4, plainRegistration.getModifications());
+            // skip the events of the ETag resource
+            final long lengthChecks = plainRegistration.getChecks();
+            await(plainRegistration::getChecks, lengthChecks + 3);
+            await(eTagRegistration::getChecks, eTagRegistration.getChecks() + 3);
+            events.clear();
+            await(plainRegistration::getChecks, lengthChecks + 6);
+            assertTrue(events.isEmpty());
+            assertEquals(4, plainRegistration.getModifications());
+
+            // a failing resource is reported once
+            server.removeContext("/plain");
+            final UriModificationMonitor.Event failed = events.poll(10, TimeUnit.SECONDS);
+            assertNotNull(failed);
+            assertEquals(UriModificationMonitor.EventKind.FAILED, failed.getKind());
+            assertEquals(plainRegistration.getUri(), failed.getUri());
+            assertNotNull(failed.getCause());
+            final long failures = plainRegistration.getFailures();
+            await(plainRegistration::getFailures, failures + 2);
+            assertTrue(events.isEmpty());
+
+            assertTrue(monitor.unregister(plainRegistration.getUri()));
+            assertFalse(monitor.unregister(plainRegistration.getUri()));
+            assertEquals(1, monitor.size());
+        } finally {
+            monitor.release();
+            server.stop(0);
+        }
+    }
+
+    @Test(timeout = 20000)
+    public void testHostRateLimit() throws Exception {
+        final AtomicInteger requests = new AtomicInteger();
+        final HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            requests.incrementAndGet();
+            respond(exchange, 200, new byte[]{1});
+        });
+        server.start();
+        final UriModificationMonitor monitor = new UriModificationMonitor(4, 100, TimeUnit.MILLISECONDS, 0);
+        try {
+            final String base = "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+            for (int i = 0; i < 5; i++) {
+                monitor.register(new URI(base + i), null, 1, TimeUnit.MILLISECONDS);
+            }
+            Thread.sleep(500);
+            // at most one request every 100 ms
+            assertTrue(requests.get() >= 2);
+            assertTrue(requests.get() <= 7);
+        } finally {
+            monitor.release();
+            server.stop(0);
+        }
+    }
+}
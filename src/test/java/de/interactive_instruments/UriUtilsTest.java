@@ -31,6 +31,8 @@ import java.util.*;
 
 import org.junit.Test;
 
+import de.interactive_instruments.exceptions.ExcUtils;
+
 public class UriUtilsTest {
 
     @Test
@@ -205,6 +207,33 @@ public class UriUtilsTest {
                 UriUtils.withQueryParameters(url1.toString(), params, false));
     }
 
+    @Test
+    public void testQueryParameters() {
+        final QueryParameters params = QueryParameters.parse(
+                "http://server/service?request=GetFeature&amp;typeNames=a&SERVICE=WFS&TYPENAMES=b&q&");
+        assertEquals("http://server/service", params.getBaseUrl());
+        assertEquals(4, params.size());
+        assertEquals("q", params.getName(0));
+        assertEquals("", params.getFirst("Q"));
+        assertEquals("GetFeature", params.getFirst("REQUEST"));
+        assertEquals(Arrays.asList("a", "b"), params.get("typenames"));
+        assertNull(params.get("version"));
+        assertEquals("http://server/service?q=&request=GetFeature&SERVICE=WFS&typeNames=a",
+                params.toUrl(false));
+        assertEquals("http://server/service?Q=&REQUEST=GetFeature&SERVICE=WFS&TYPENAMES=a&TYPENAMES=b",
+                params.toCanonicalString());
+
+        final QueryParameters reordered = QueryParameters.parse(
+                "http://server/service?service=WFS&q=&typenames=a&typenames=b&REQUEST=GetFeature");
+        assertEquals(params, reordered);
+        assertEquals(params.hashCode(), reordered.hashCode());
+        assertNotEquals(params, QueryParameters.parse(
+                "http://server/service?service=WFS&q=&typenames=b&typenames=a&REQUEST=GetFeature"));
+
+        assertTrue(QueryParameters.parse("http://server/service?").isEmpty());
+        assertEquals("http://server/service?&a=1", UriUtils.ensureUrlEncodedParams("http://server/service?&a=1&"));
+    }
+
     @Test
     public void testLastSegment() {
         assertEquals("file.txt", UriUtils.lastSegment("https://server/file.txt"));
@@ -340,6 +369,28 @@ public class UriUtilsTest {
         assertTrue(UriUtils.isPrivateNet(new URI("http://127.0.0.1")));
         assertFalse(UriUtils.isPrivateNet(new URI("http://9.127.0.1")));
         assertFalse(UriUtils.isPrivateNet(new URI("file://here")));
+
+        assertTrue(UriUtils.isPrivateNet("169.254.169.254"));
+        assertTrue(UriUtils.isPrivateNet("fe80::1"));
+        assertTrue(UriUtils.isPrivateNet("fd00::1"));
+        assertTrue(UriUtils.isPrivateNet(new URI("http://[::1]:8080/")));
+        assertTrue(UriUtils.isPrivateNetAsync("10.1.2.3").join());
+    }
+
+    @Test
+    public void testIpRanges() throws UnknownHostException {
+        final IpRanges ranges = IpRanges.builder().block("10.0.0.0/8", "2001:db8::/32").allow("10.1.0.0/16").build();
+        assertTrue(ranges.isBlocked(InetAddress.getByName("10.0.0.1")));
+        assertFalse(ranges.isBlocked(InetAddress.getByName("10.1.2.3")));
+        assertFalse(ranges.isBlocked(InetAddress.getByName("11.0.0.1")));
+        assertTrue(ranges.isBlocked(InetAddress.getByName("2001:db8::1")));
+        assertFalse(ranges.isBlocked(InetAddress.getByName("2001:db9::1")));
+        try {
+            IpRanges.builder().block("example.com/8");
+            fail("Exception expected");
+        } catch (final IllegalArgumentException e) {
+            ExcUtils.suppress(e);
+        }
     }
 
     @Test
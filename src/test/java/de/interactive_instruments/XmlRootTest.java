@@ -0,0 +1,96 @@
+/**
+ * Copyright 2017-2019 European Union, interactive instruments GmbH
+ * Licensed under the EUPL, Version 1.2 or - as soon they will be approved by
+ * the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ *
+ * This work was supported by the EU Interoperability Solutions for
+ * European Public Administrations Programme (http://ec.europa.eu/isa)
+ * through Action 1.17: A Reusable INSPIRE Reference Platform (ARE3NA).
+ */
+package de.interactive_instruments;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import javax.xml.namespace.QName;
+
+import org.junit.Test;
+
+import de.interactive_instruments.io.GmlAndXmlFilter;
+import de.interactive_instruments.xml.XmlRoot;
+
+/**
+ * @author Jon Herrmann ( herrmann aT interactive-instruments doT de )
+ */
+public class XmlRootTest {
+
+    private static final String WFS_RESPONSE = "<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?>\n"
+            + "<!-- comment -->\n"
+            + "<wfs:FeatureCollection xmlns:wfs=\"http://www.opengis.net/wfs/2.0\" "
+            + "xmlns:gml=\"http://www.opengis.net/gml/3.2\" "
+            + "xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\" "
+            + "xsi:schemaLocation=\"http://www.opengis.net/wfs/2.0 http://schemas.opengis.net/wfs/2.0/wfs.xsd\">"
+            + "<broken";
+
+    private static XmlRoot sniff(final String str) throws IOException {
+        return XmlRoot.sniff(new ByteArrayInputStream(str.getBytes(StandardCharsets.ISO_8859_1)));
+    }
+
+    @Test
+    public void testSniff() throws IOException {
+        final XmlRoot root = sniff(WFS_RESPONSE);
+        assertNotNull(root);
+        assertEquals(new QName("http://www.opengis.net/wfs/2.0", "FeatureCollection"), root.getRootElement());
+        assertEquals("ISO-8859-1", root.getEncoding());
+        assertEquals("gml", root.getNamespaces().getPrefix("http://www.opengis.net/gml/3.2"));
+        assertEquals("http://schemas.opengis.net/wfs/2.0/wfs.xsd",
+                root.getSchemaLocations().get("http://www.opengis.net/wfs/2.0"));
+        assertTrue(root.isGml());
+        assertEquals(XmlRoot.GML_MIME_TYPE, root.getMimeType());
+
+        final XmlRoot plain = sniff("<root xmlns=\"http://example.com\"/>");
+        assertNotNull(plain);
+        assertEquals("http://example.com", plain.getNamespaces().getDefaultNamespaceUri());
+        assertFalse(plain.isGml());
+        assertTrue(plain.getSchemaLocations().isEmpty());
+
+        assertNull(sniff("no xml"));
+        assertNull(sniff(""));
+    }
+
+    @Test
+    public void testFilter() throws IOException {
+        final File gml = File.createTempFile("gml", ".dat");
+        final File xml = File.createTempFile("xml", ".dat");
+        final File txt = File.createTempFile("txt", ".dat");
+        try {
+            Files.write(gml.toPath(), WFS_RESPONSE.getBytes(StandardCharsets.ISO_8859_1));
+            Files.write(xml.toPath(), "<root/>".getBytes(StandardCharsets.UTF_8));
+            Files.write(txt.toPath(), "text".getBytes(StandardCharsets.UTF_8));
+            assertTrue(GmlAndXmlFilter.instance().content().accept(gml));
+            assertTrue(GmlAndXmlFilter.instance().content().accept(xml));
+            assertFalse(GmlAndXmlFilter.instance().content().accept(txt));
+            assertTrue(GmlAndXmlFilter.instance().gmlContent().accept(gml));
+            assertFalse(GmlAndXmlFilter.instance().gmlContent().accept(xml));
+        } finally {
+            gml.delete();
+            xml.delete();
+            txt.delete();
+        }
+    }
+}
@@ -19,10 +19,28 @@
  */
 package de.interactive_instruments;
 
-import static org.junit.Assert.assertFalse;
-import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.xpath.XPathExpressionException;
 
 import org.junit.Test;
+import org.xml.sax.InputSource;
+
+import de.interactive_instruments.xml.NamespaceBuilder;
+import de.interactive_instruments.xml.NamespaceHolder;
+import de.interactive_instruments.xml.StreamingXmlWriter;
 
 /**
  * @author Jon Herrmann ( herrmann aT interactive-instruments doT de )
@@ -34,4 +52,130 @@ public class XmlUtilsTest {
         assertTrue(XmlUtils.isWellFormed("<xml><bla>foo</bla></xml>"));
         assertFalse(XmlUtils.isWellFormed("<xml><bla>foo<bla></xml>"));
     }
+
+    private static final String DOC = "<a:root xmlns:a=\"http://a\" xmlns:b=\"http://b\">"
+            + "<a:item b:id=\"1\">one</a:item><a:item b:id=\"2\"><a:sub/>two</a:item><a:other>x</a:other>"
+            + "</a:root>";
+
+    private final NamespaceHolder namespaces = NamespaceBuilder.newInstance()
+            .addNamespaceUriAndPrefix("http://a", "x").addNamespaceUriAndPrefix("http://b", "y").build();
+
+    @Test
+    public void testXmlHandleMultipleQueries() throws XPathExpressionException {
+        final XmlUtils.XmlHandle handle = XmlUtils.newXmlHandle(namespaces, new InputSource(new StringReader(DOC)));
+        assertEquals("2", handle.evaluateValue("count(/x:root/x:item)"));
+        assertArrayEquals(new String[]{"one", null}, handle.evaluateValues("/x:root/x:item"));
+        assertArrayEquals(new String[]{"1", "2"}, handle.evaluateValues("/x:root/x:item/@y:id"));
+        assertEquals("x", handle.evaluateValue("/x:root/x:other"));
+    }
+
+    @Test
+    public void testXmlHandleMutableNamespaceContext() throws XPathExpressionException {
+        final Map<String, String> prefixes = new HashMap<>();
+        final NamespaceContext context = new NamespaceContext() {
+            @Override
+            public String getNamespaceURI(final String prefix) {
+                return prefixes.get(prefix);
+            }
+
+            @Override
+            public String getPrefix(final String namespaceURI) {
+                return null;
+            }
+
+            @Override
+            public Iterator<String> getPrefixes(final String namespaceURI) {
+                return null;
+            }
+        };
+        prefixes.put("z", "http://c");
+        assertEquals("0", XmlUtils.newXmlHandle(context, new InputSource(new StringReader(DOC)))
+                .evaluateValue("count(/z:root)"));
+        // the expression must not be resolved with the previous mapping
+        prefixes.put("z", "http://a");
+        assertEquals("1", XmlUtils.newXmlHandle(context, new InputSource(new StringReader(DOC)))
+                .evaluateValue("count(/z:root)"));
+    }
+
+    @Test
+    public void testXmlHandleWithoutNamespaces() throws Exception {
+        // the cached XPath of the thread has been used with a NamespaceContext before
+        XmlUtils.newXmlHandle(namespaces, new InputSource(new StringReader(DOC))).evaluateValue("/x:root/x:other");
+        final XmlUtils.XmlHandle handle = XmlUtils.newXmlHandle(
+                new InputSource(new StringReader("<a><b>one</b><b>two</b></a>")));
+        assertEquals("one", handle.evaluateValue("/a/b"));
+        assertArrayEquals(new String[]{"one", "two"}, handle.evaluateValues("/a/b"));
+        assertEquals("", XmlUtils.newXmlHandle(new InputSource(new StringReader(DOC))).evaluateValue("/root"));
+    }
+
+    @Test
+    public void testStreamingEvaluation() throws IOException, XPathExpressionException {
+        final File file = File.createTempFile("xml", ".xml");
+        try {
+            Files.write(file.toPath(), DOC.getBytes(StandardCharsets.UTF_8));
+            for (final String path : new String[]{"/x:root/x:item", "/x:root/x:item/@y:id", "/x:root/*",
+                    "/*/x:other", "/x:root/x:item[2]", "/root/item"}) {
+                assertArrayEquals(path, XmlUtils.newXmlHandle(namespaces, file).evaluateValues(path),
+                        XmlUtils.evaluateValues(namespaces, file, path));
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testStreamingXmlWriter() throws IOException, XMLStreamException, XPathExpressionException {
+        final File file = File.createTempFile("xml", ".xml.gz");
+        try {
+            try (final StreamingXmlWriter writer = StreamingXmlWriter.create(file, namespaces, true)) {
+                writer.startDocument().startElement("http://a", "root");
+                for (int i = 0; i < 10000; i++) {
+                    writer.startElement("http://a", "item").attribute("http://b", "id", String.valueOf(i))
+                            .text("<" + i + ">").endElement();
+                }
+                writer.endDocument();
+            }
+            final IFile iFile = new IFile(file);
+            assertTrue(iFile.isGZipped());
+            final XmlUtils.XmlHandle handle = XmlUtils.newXmlHandle(namespaces,
+                    new InputSource(new StringReader(iFile.readContent().toString())));
+            assertEquals("10000", handle.evaluateValue("count(/x:root/x:item)"));
+            assertEquals("<9999>", handle.evaluateValue("/x:root/x:item[@y:id='9999']"));
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testStreamingXmlWriterDefaultNamespace() throws IOException, XMLStreamException, XPathExpressionException {
+        final NamespaceHolder withDefault = NamespaceBuilder.newInstance().setDefaultNamespaceUri("http://d")
+                .addNamespaceUriAndPrefix("http://a", "x").build();
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (final StreamingXmlWriter writer = StreamingXmlWriter.create(out, withDefault, false)) {
+            writer.startDocument().startElement("http://d", "root").attribute("http://d", "att", "v");
+            writer.startElement(null, "noNs").attribute("http://d", "att", "w");
+            writer.element("http://d", "back", "b");
+            writer.endElement();
+            writer.element("http://a", "prefixed", "p");
+            writer.endDocument();
+        }
+        final String xml = new String(out.toByteArray(), StandardCharsets.UTF_8);
+        final NamespaceHolder query = NamespaceBuilder.newInstance().addNamespaceUriAndPrefix("http://d", "d")
+                .addNamespaceUriAndPrefix("http://a", "x").build();
+        final XmlUtils.XmlHandle handle = XmlUtils.newXmlHandle(query, new InputSource(new StringReader(xml)));
+        assertEquals(xml, "v", handle.evaluateValue("/d:root/@d:att"));
+        assertEquals(xml, "1", handle.evaluateValue("count(/d:root/noNs)"));
+        assertEquals(xml, "w", handle.evaluateValue("/d:root/noNs/@d:att"));
+        assertEquals(xml, "b", handle.evaluateValue("/d:root/noNs/d:back"));
+        assertEquals(xml, "p", handle.evaluateValue("/d:root/x:prefixed"));
+
+        // unqualified root element
+        final ByteArrayOutputStream unqualified = new ByteArrayOutputStream();
+        try (final StreamingXmlWriter writer = StreamingXmlWriter.create(unqualified, withDefault, false)) {
+            writer.startDocument().startElement(null, "root").element("http://d", "child", "c").endDocument();
+        }
+        final String xml2 = new String(unqualified.toByteArray(), StandardCharsets.UTF_8);
+        assertEquals(xml2, "c", XmlUtils.newXmlHandle(query, new InputSource(new StringReader(xml2)))
+                .evaluateValue("/root/d:child"));
+    }
 }
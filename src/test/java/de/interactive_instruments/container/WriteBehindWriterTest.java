@@ -0,0 +1,72 @@
+/**
+ * Copyright 2017-2019 European Union, interactive instruments GmbH
+ * Licensed under the EUPL, Version 1.2 or - as soon they will be approved by
+ * the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ *
+ * This work was supported by the EU Interoperability Solutions for
+ * European Public Administrations Programme (http://ec.europa.eu/isa)
+ * through Action 1.17: A Reusable INSPIRE Reference Platform (ARE3NA).
+ */
+package de.interactive_instruments.container;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+/**
+ * In the package of the writer, which is not public
+ *
+ * @author Jon Herrmann ( herrmann aT interactive-instruments doT de )
+ */
+public class WriteBehindWriterTest {
+
+    @Test(timeout = 20000)
+    public void testFailingWrite() throws Exception {
+        final Path dir = Files.createTempDirectory("writer");
+        final WriteBehindWriter writer = new WriteBehindWriter(1, 10);
+        try {
+            // a path that can not be opened, the file system methods throw an UnsupportedOperationException
+            final Path failing = (Path) Proxy.newProxyInstance(Path.class.getClassLoader(), new Class<?>[]{Path.class},
+                    (proxy, method, args) -> {
+                        if (method.getName().equals("toString")) {
+                            return "failing";
+                        }
+                        throw new UnsupportedOperationException(method.getName());
+                    });
+            writer.write(dir.resolve("before"), new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10}, false);
+            writer.write(failing, new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10}, false);
+            // blocks until the permits of the failed write are returned
+            writer.write(dir.resolve("after"), new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10}, false);
+            try {
+                writer.flush();
+                fail("Exception expected");
+            } catch (final IOException e) {
+                assertTrue(e.getCause().getCause() instanceof UnsupportedOperationException);
+            }
+            assertEquals(0, writer.getPending());
+            assertEquals(10, Files.size(dir.resolve("before")));
+            assertEquals(10, Files.size(dir.resolve("after")));
+            // the error is only reported once
+            writer.flush();
+        } finally {
+            writer.release();
+            FileUtils.deleteDirectory(dir.toFile());
+        }
+    }
+}